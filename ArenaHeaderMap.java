@@ -0,0 +1,263 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map.Entry;
+
+// Headers packed into an HttpHeadersArena chunk, always behind a ReadOnlyHeaderMap.
+// Lookups scan the packed entries, comparing code bytes for well-known names, and
+// only the values asked for are turned into Strings. Every read checks that the arena
+// has not been reset or closed since, before and after touching the chunk.
+class ArenaHeaderMap extends AbstractMap<String, List<String>> {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private final HttpHeadersArena arena;
+    private final ByteBuffer chunk;
+    private final int offset;
+    private final int generation;
+
+    ArenaHeaderMap(HttpHeadersArena arena, ByteBuffer chunk, int offset, int generation) {
+        this.arena = arena;
+        this.chunk = chunk;
+        this.offset = offset;
+        this.generation = generation;
+    }
+
+    public int size() {
+        this.arena.checkGeneration(this.generation);
+
+        int size;
+        try {
+            size = (new Reader(this.offset)).readVarint();
+        } catch (RuntimeException var3) {
+            this.arena.checkGeneration(this.generation);
+            throw var3;
+        }
+
+        this.arena.checkGeneration(this.generation);
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return this.get(key) != null;
+    }
+
+    public List<String> get(Object key) {
+        if(!(key instanceof String)) {
+            return null;
+        } else {
+            this.arena.checkGeneration(this.generation);
+
+            List<String> values;
+            try {
+                values = this.find((String)key);
+            } catch (RuntimeException var4) {
+                this.arena.checkGeneration(this.generation);
+                throw var4;
+            }
+
+            this.arena.checkGeneration(this.generation);
+            return values;
+        }
+    }
+
+    private List<String> find(String name) {
+        int index = HttpHeaderNames.indexOf(name);
+        Reader reader = new Reader(this.offset);
+        int count = reader.readCount();
+
+        for(int i = 0; i < count; ++i) {
+            int code = reader.readByte() & 255;
+            boolean matches;
+            if(code == 0) {
+                int length = reader.readVarint();
+                matches = reader.nameMatches(length, name);
+                reader.position += length;
+            } else {
+                matches = code - 1 == index;
+            }
+
+            if(matches) {
+                return reader.readValues();
+            }
+
+            reader.skipValues();
+        }
+
+        return null;
+    }
+
+    public Set<Entry<String, List<String>>> entrySet() {
+        return new AbstractSet<Entry<String, List<String>>>() {
+            public Iterator<Entry<String, List<String>>> iterator() {
+                return ArenaHeaderMap.this.new EntryIterator();
+            }
+
+            public int size() {
+                return ArenaHeaderMap.this.size();
+            }
+        };
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, List<String>>> {
+        private final Reader reader;
+        private int remaining;
+
+        EntryIterator() {
+            this.reader = ArenaHeaderMap.this.new Reader(ArenaHeaderMap.this.offset);
+            this.remaining = ArenaHeaderMap.this.size();
+            // size() has validated the generation; skip the count it read
+            this.reader.readVarint();
+        }
+
+        public boolean hasNext() {
+            return this.remaining > 0;
+        }
+
+        public Entry<String, List<String>> next() {
+            if(this.remaining == 0) {
+                throw new NoSuchElementException();
+            } else {
+                ArenaHeaderMap.this.arena.checkGeneration(ArenaHeaderMap.this.generation);
+
+                Entry<String, List<String>> entry;
+                try {
+                    int code = this.reader.readByte() & 255;
+                    String name = code == 0?this.reader.readString(this.reader.readVarint()):HttpHeaderNames.NAMES[code - 1];
+                    entry = new SimpleImmutableEntry<String, List<String>>(name, this.reader.readValues());
+                } catch (RuntimeException var4) {
+                    ArenaHeaderMap.this.arena.checkGeneration(ArenaHeaderMap.this.generation);
+                    throw var4;
+                }
+
+                ArenaHeaderMap.this.arena.checkGeneration(ArenaHeaderMap.this.generation);
+                --this.remaining;
+                return entry;
+            }
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // reads with absolute gets, so that any number of threads can read the same chunk
+    private class Reader {
+        int position;
+
+        Reader(int position) {
+            this.position = position;
+        }
+
+        byte readByte() {
+            return ArenaHeaderMap.this.chunk.get(this.position++);
+        }
+
+        int readVarint() {
+            int value = 0;
+
+            for(int shift = 0; shift < 32; shift += 7) {
+                byte b = this.readByte();
+                value |= (b & 127) << shift;
+                if(b >= 0) {
+                    return value;
+                }
+            }
+
+            throw new IllegalStateException("Corrupt HttpHeadersArena entry");
+        }
+
+        // After a concurrent reset() the bytes may be anything: counts and lengths are
+        // bounded by what the chunk holds, so that they cannot make a reader allocate more
+        // before the generation check catches it. Every counted item takes a byte at least.
+        int readCount() {
+            int count = this.readVarint();
+            this.checkRemaining(count);
+            return count;
+        }
+
+        private void checkRemaining(int length) {
+            if(length < 0 || length > ArenaHeaderMap.this.chunk.limit() - this.position) {
+                throw new IllegalStateException("Corrupt HttpHeadersArena entry");
+            }
+        }
+
+        String readString(int length) {
+            this.checkRemaining(length);
+            byte[] bytes = new byte[length];
+            ByteBuffer source = ArenaHeaderMap.this.chunk.duplicate();
+            source.position(this.position);
+            source.get(bytes);
+            this.position += length;
+            return new String(bytes, UTF_8);
+        }
+
+        List<String> readValues() {
+            String[] values = new String[this.readCount()];
+
+            for(int i = 0; i < values.length; ++i) {
+                int length = this.readVarint();
+                values[i] = length == 0?null:this.readString(length - 1);
+            }
+
+            return Arrays.asList(values);
+        }
+
+        void skipValues() {
+            int count = this.readCount();
+
+            for(int i = 0; i < count; ++i) {
+                int length = this.readVarint();
+                if(length > 0) {
+                    this.position += length - 1;
+                }
+            }
+
+        }
+
+        // case-insensitive comparison of the UTF-8 name at the current position, without decoding ASCII names
+        boolean nameMatches(int length, String name) {
+            if(length < name.length()) {
+                return false;
+            } else {
+                if(length == name.length()) {
+                    int i = 0;
+
+                    while(true) {
+                        if(i >= length) {
+                            return true;
+                        }
+
+                        int b = ArenaHeaderMap.this.chunk.get(this.position + i);
+                        if(b < 0) {
+                            break;
+                        }
+
+                        char c = name.charAt(i);
+                        if(b != c && Character.toLowerCase((char)b) != Character.toLowerCase(c)) {
+                            return false;
+                        }
+
+                        ++i;
+                    }
+                }
+
+                int start = this.position;
+                boolean matches = this.readString(length).equalsIgnoreCase(name);
+                this.position = start;
+                return matches;
+            }
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package org.springframework.http;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.util.Assert;
+
+// The directives of a Cache-Control header (RFC 7234, section 5.2, and RFC 5861) as an
+// immutable value. Instances are built from empty() with the with* methods, or parsed;
+// parse() interns its results in a small shared cache, since nearly all traffic carries
+// one of a few distinct Cache-Control values.
+public final class CacheControlDirectives implements Serializable {
+    private static final long serialVersionUID = 3150562725651413284L;
+    // RFC 7234, section 1.2.1: larger delta-seconds are taken as 2^31
+    public static final long MAX_DELTA_SECONDS = 2147483648L;
+    static final int CACHE_LIMIT = 256;
+    private static final int MAX_CACHED_LENGTH = 256;
+    private static final int PUBLIC = 0;
+    private static final int PRIVATE = 1;
+    private static final int NO_CACHE = 2;
+    private static final int NO_STORE = 3;
+    private static final int NO_TRANSFORM = 4;
+    private static final int MUST_REVALIDATE = 5;
+    private static final int PROXY_REVALIDATE = 6;
+    private static final int MUST_UNDERSTAND = 7;
+    private static final int IMMUTABLE = 8;
+    private static final int ONLY_IF_CACHED = 9;
+    private static final String[] FLAG_NAMES = new String[]{"public", "private", "no-cache", "no-store", "no-transform", "must-revalidate", "proxy-revalidate", "must-understand", "immutable", "only-if-cached"};
+    private static final int MAX_AGE = 0;
+    private static final int S_MAXAGE = 1;
+    private static final int STALE_WHILE_REVALIDATE = 2;
+    private static final int STALE_IF_ERROR = 3;
+    private static final int MAX_STALE = 4;
+    private static final int MIN_FRESH = 5;
+    private static final String[] SECONDS_NAMES = new String[]{"max-age", "s-maxage", "stale-while-revalidate", "stale-if-error", "max-stale", "min-fresh"};
+    private static final long[] NO_SECONDS = new long[]{-1L, -1L, -1L, -1L, -1L, -1L};
+    private static final CacheControlDirectives EMPTY = new CacheControlDirectives(0, NO_SECONDS, (String)null, (String)null, (String)null);
+    private static final ConcurrentHashMap<String, CacheControlDirectives> cache = new ConcurrentHashMap<String, CacheControlDirectives>();
+    private final int flags;
+    private final long[] seconds;
+    private final String noCacheFields;
+    private final String privateFields;
+    private final String extensions;
+    private transient String value;
+
+    private CacheControlDirectives(int flags, long[] seconds, String noCacheFields, String privateFields, String extensions) {
+        this.flags = flags;
+        this.seconds = seconds;
+        this.noCacheFields = noCacheFields;
+        this.privateFields = privateFields;
+        this.extensions = extensions;
+    }
+
+    public static CacheControlDirectives empty() {
+        return EMPTY;
+    }
+
+    public static CacheControlDirectives noStore() {
+        return EMPTY.withNoStore();
+    }
+
+    public static CacheControlDirectives noCache() {
+        return EMPTY.withNoCache();
+    }
+
+    public static CacheControlDirectives maxAge(long seconds) {
+        return EMPTY.withMaxAge(seconds);
+    }
+
+    public CacheControlDirectives withPublic() {
+        return this.withFlag(PUBLIC);
+    }
+
+    public CacheControlDirectives withPrivate() {
+        return this.withFlag(PRIVATE);
+    }
+
+    public CacheControlDirectives withNoCache() {
+        return this.withFlag(NO_CACHE);
+    }
+
+    public CacheControlDirectives withNoStore() {
+        return this.withFlag(NO_STORE);
+    }
+
+    public CacheControlDirectives withNoTransform() {
+        return this.withFlag(NO_TRANSFORM);
+    }
+
+    public CacheControlDirectives withMustRevalidate() {
+        return this.withFlag(MUST_REVALIDATE);
+    }
+
+    public CacheControlDirectives withProxyRevalidate() {
+        return this.withFlag(PROXY_REVALIDATE);
+    }
+
+    public CacheControlDirectives withImmutable() {
+        return this.withFlag(IMMUTABLE);
+    }
+
+    public CacheControlDirectives withMaxAge(long seconds) {
+        return this.withSeconds(MAX_AGE, seconds);
+    }
+
+    public CacheControlDirectives withSMaxAge(long seconds) {
+        return this.withSeconds(S_MAXAGE, seconds);
+    }
+
+    public CacheControlDirectives withStaleWhileRevalidate(long seconds) {
+        return this.withSeconds(STALE_WHILE_REVALIDATE, seconds);
+    }
+
+    public CacheControlDirectives withStaleIfError(long seconds) {
+        return this.withSeconds(STALE_IF_ERROR, seconds);
+    }
+
+    private CacheControlDirectives withFlag(int flag) {
+        return (this.flags & 1 << flag) != 0?this:new CacheControlDirectives(this.flags | 1 << flag, this.seconds, this.noCacheFields, this.privateFields, this.extensions);
+    }
+
+    private CacheControlDirectives withSeconds(int index, long seconds) {
+        Assert.isTrue(seconds >= 0L, "Delta-seconds must not be negative");
+        long[] copy = (long[])this.seconds.clone();
+        copy[index] = Math.min(seconds, MAX_DELTA_SECONDS);
+        return new CacheControlDirectives(this.flags, copy, this.noCacheFields, this.privateFields, this.extensions);
+    }
+
+    public boolean isPublic() {
+        return (this.flags & 1 << PUBLIC) != 0;
+    }
+
+    public boolean isPrivate() {
+        return (this.flags & 1 << PRIVATE) != 0;
+    }
+
+    public boolean isNoCache() {
+        return (this.flags & 1 << NO_CACHE) != 0;
+    }
+
+    public boolean isNoStore() {
+        return (this.flags & 1 << NO_STORE) != 0;
+    }
+
+    public boolean isNoTransform() {
+        return (this.flags & 1 << NO_TRANSFORM) != 0;
+    }
+
+    public boolean isMustRevalidate() {
+        return (this.flags & 1 << MUST_REVALIDATE) != 0;
+    }
+
+    public boolean isProxyRevalidate() {
+        return (this.flags & 1 << PROXY_REVALIDATE) != 0;
+    }
+
+    public boolean isMustUnderstand() {
+        return (this.flags & 1 << MUST_UNDERSTAND) != 0;
+    }
+
+    public boolean isImmutable() {
+        return (this.flags & 1 << IMMUTABLE) != 0;
+    }
+
+    public boolean isOnlyIfCached() {
+        return (this.flags & 1 << ONLY_IF_CACHED) != 0;
+    }
+
+    // The following return the value in seconds, or -1 if the directive is absent. As the
+    // RFC recommends, an invalid max-age or s-maxage is taken as 0 (stale), and of repeated
+    // directives the first one counts.
+    public long getMaxAge() {
+        return this.seconds[MAX_AGE];
+    }
+
+    public long getSMaxAge() {
+        return this.seconds[S_MAXAGE];
+    }
+
+    public long getStaleWhileRevalidate() {
+        return this.seconds[STALE_WHILE_REVALIDATE];
+    }
+
+    public long getStaleIfError() {
+        return this.seconds[STALE_IF_ERROR];
+    }
+
+    // MAX_DELTA_SECONDS for max-stale without a value, which accepts any staleness
+    public long getMaxStale() {
+        return this.seconds[MAX_STALE];
+    }
+
+    public long getMinFresh() {
+        return this.seconds[MIN_FRESH];
+    }
+
+    // the field names of a qualified no-cache="..." as written, or null
+    public String getNoCacheFields() {
+        return this.noCacheFields;
+    }
+
+    // the field names of a qualified private="..." as written, or null
+    public String getPrivateFields() {
+        return this.privateFields;
+    }
+
+    public static CacheControlDirectives parse(String cacheControl) {
+        Assert.notNull(cacheControl, "\'cacheControl\' must not be null");
+        CacheControlDirectives parsed = (CacheControlDirectives)cache.get(cacheControl);
+        if(parsed == null) {
+            parsed = parseDirectives(cacheControl);
+            if(cacheControl.length() <= MAX_CACHED_LENGTH) {
+                if(cache.size() >= CACHE_LIMIT) {
+                    cache.clear();
+                }
+
+                cache.put(cacheControl, parsed);
+            }
+        }
+
+        return parsed;
+    }
+
+    // the directives of all lines of a header, as if joined with commas
+    static CacheControlDirectives parse(List<String> values) {
+        if(values.size() == 1) {
+            String value = (String)values.get(0);
+            return value != null?parse(value):EMPTY;
+        } else {
+            StringBuilder builder = new StringBuilder();
+
+            for(int i = 0; i < values.size(); ++i) {
+                String value = (String)values.get(i);
+                if(value != null) {
+                    builder.append(value).append(',');
+                }
+            }
+
+            return parse(builder.toString());
+        }
+    }
+
+    // single pass over: directive *( OWS "," OWS directive ), directive = token [ "=" ( token / quoted-string ) ]
+    private static CacheControlDirectives parseDirectives(String value) {
+        int flags = 0;
+        long[] seconds = null;
+        String noCacheFields = null;
+        String privateFields = null;
+        StringBuilder extensions = null;
+        int length = value.length();
+        int i = 0;
+
+        while(i < length) {
+            char c = value.charAt(i);
+            if(c != 44 && c != 32 && c != 9) {
+                int nameStart = i;
+
+                while(i < length && (c = value.charAt(i)) != 61 && c != 44 && c != 32 && c != 9) {
+                    ++i;
+                }
+
+                int nameEnd = i;
+                i = skipWhitespace(value, i, length);
+                int argumentStart = -1;
+                int argumentEnd = -1;
+                boolean escaped = false;
+                if(i < length && value.charAt(i) == 61) {
+                    i = skipWhitespace(value, i + 1, length);
+                    if(i < length && value.charAt(i) == 34) {
+                        ++i;
+
+                        for(argumentStart = i; i < length && (c = value.charAt(i)) != 34; ++i) {
+                            if(c == 92) {
+                                escaped = true;
+                                ++i;
+                            }
+                        }
+
+                        argumentEnd = Math.min(i, length);
+                        if(i < length) {
+                            ++i;
+                        }
+                    } else {
+                        for(argumentStart = i; i < length && (c = value.charAt(i)) != 44 && c != 32 && c != 9; ++i) {
+                            ;
+                        }
+
+                        argumentEnd = i;
+                    }
+                }
+
+                int directiveEnd = i;
+
+                while(i < length && value.charAt(i) != 44) {
+                    ++i;
+                }
+
+                int flag = indexOf(FLAG_NAMES, value, nameStart, nameEnd);
+                int index = flag < 0?indexOf(SECONDS_NAMES, value, nameStart, nameEnd):-1;
+                if(flag >= 0) {
+                    if((flags & 1 << flag) == 0) {
+                        flags |= 1 << flag;
+                        if(argumentStart >= 0 && flag == NO_CACHE) {
+                            noCacheFields = unescape(value, argumentStart, argumentEnd, escaped);
+                        } else if(argumentStart >= 0 && flag == PRIVATE) {
+                            privateFields = unescape(value, argumentStart, argumentEnd, escaped);
+                        }
+                    }
+                } else if(index >= 0) {
+                    if(seconds == null) {
+                        seconds = (long[])NO_SECONDS.clone();
+                    }
+
+                    if(seconds[index] < 0L) {
+                        long delta = argumentStart >= 0?parseDeltaSeconds(value, argumentStart, argumentEnd):-1L;
+                        seconds[index] = delta >= 0L?delta:(index == MAX_STALE && argumentStart < 0?MAX_DELTA_SECONDS:(index <= S_MAXAGE?0L:-1L));
+                    }
+                } else {
+                    if(extensions == null) {
+                        extensions = new StringBuilder();
+                    } else {
+                        extensions.append(", ");
+                    }
+
+                    extensions.append(value, nameStart, directiveEnd);
+                }
+            } else {
+                ++i;
+            }
+        }
+
+        if(flags == 0 && seconds == null && extensions == null) {
+            return EMPTY;
+        } else {
+            return new CacheControlDirectives(flags, seconds != null?seconds:NO_SECONDS, noCacheFields, privateFields, extensions != null?extensions.toString():null);
+        }
+    }
+
+    private static int skipWhitespace(String value, int i, int length) {
+        while(i < length && (value.charAt(i) == 32 || value.charAt(i) == 9)) {
+            ++i;
+        }
+
+        return i;
+    }
+
+    private static int indexOf(String[] names, String value, int start, int end) {
+        int length = end - start;
+
+        for(int i = 0; i < names.length; ++i) {
+            String name = names[i];
+            if(name.length() == length && value.regionMatches(true, start, name, 0, length)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    // -1 if not 1*DIGIT
+    private static long parseDeltaSeconds(String value, int start, int end) {
+        if(start == end) {
+            return -1L;
+        } else {
+            long result = 0L;
+
+            for(int i = start; i < end; ++i) {
+                char c = value.charAt(i);
+                if(c < 48 || c > 57) {
+                    return -1L;
+                }
+
+                if(result < MAX_DELTA_SECONDS) {
+                    result = result * 10L + (long)(c - 48);
+                }
+            }
+
+            return Math.min(result, MAX_DELTA_SECONDS);
+        }
+    }
+
+    private static String unescape(String value, int start, int end, boolean escaped) {
+        if(!escaped) {
+            return value.substring(start, end);
+        } else {
+            StringBuilder builder = new StringBuilder(end - start);
+
+            for(int i = start; i < end; ++i) {
+                char c = value.charAt(i);
+                if(c == 92 && i + 1 < end) {
+                    c = value.charAt(++i);
+                }
+
+                builder.append(c);
+            }
+
+            return builder.toString();
+        }
+    }
+
+    public boolean equals(Object other) {
+        if(this == other) {
+            return true;
+        } else if(!(other instanceof CacheControlDirectives)) {
+            return false;
+        } else {
+            CacheControlDirectives otherCacheControl = (CacheControlDirectives)other;
+            return this.flags == otherCacheControl.flags && Arrays.equals(this.seconds, otherCacheControl.seconds) && nullSafeEquals(this.noCacheFields, otherCacheControl.noCacheFields) && nullSafeEquals(this.privateFields, otherCacheControl.privateFields) && nullSafeEquals(this.extensions, otherCacheControl.extensions);
+        }
+    }
+
+    private static boolean nullSafeEquals(Object first, Object second) {
+        return first != null?first.equals(second):second == null;
+    }
+
+    public int hashCode() {
+        int result = this.flags;
+        result = 31 * result + Arrays.hashCode(this.seconds);
+        result = 31 * result + (this.noCacheFields != null?this.noCacheFields.hashCode():0);
+        result = 31 * result + (this.privateFields != null?this.privateFields.hashCode():0);
+        result = 31 * result + (this.extensions != null?this.extensions.hashCode():0);
+        return result;
+    }
+
+    // the directives in a fixed order, with unrecognized ones last as they were written
+    public String toString() {
+        String value = this.value;
+        if(value == null) {
+            StringBuilder builder = new StringBuilder();
+
+            for(int i = 0; i < FLAG_NAMES.length; ++i) {
+                if((this.flags & 1 << i) != 0) {
+                    appendSeparator(builder).append(FLAG_NAMES[i]);
+                    String fields = i == NO_CACHE?this.noCacheFields:(i == PRIVATE?this.privateFields:null);
+                    if(fields != null) {
+                        builder.append("=\"");
+
+                        for(int j = 0; j < fields.length(); ++j) {
+                            char c = fields.charAt(j);
+                            if(c == 34 || c == 92) {
+                                builder.append('\\');
+                            }
+
+                            builder.append(c);
+                        }
+
+                        builder.append('\"');
+                    }
+                }
+            }
+
+            for(int i = 0; i < SECONDS_NAMES.length; ++i) {
+                if(this.seconds[i] >= 0L) {
+                    appendSeparator(builder).append(SECONDS_NAMES[i]).append('=').append(this.seconds[i]);
+                }
+            }
+
+            if(this.extensions != null) {
+                appendSeparator(builder).append(this.extensions);
+            }
+
+            value = builder.toString();
+            this.value = value;
+        }
+
+        return value;
+    }
+
+    private static StringBuilder appendSeparator(StringBuilder builder) {
+        return builder.length() > 0?builder.append(", "):builder;
+    }
+}
@@ -0,0 +1,192 @@
+package org.springframework.http;
+
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import org.springframework.util.Assert;
+
+// The Content-Disposition header (RFC 6266) as used for multipart form data: the
+// disposition type with its name and filename parameters. A filename* parameter
+// (RFC 5987) takes precedence over a plain filename and keeps its charset.
+public final class ContentDispositionValue implements Serializable {
+    private static final long serialVersionUID = -5843426419446232532L;
+    private final String type;
+    private final String name;
+    private final String filename;
+    private final Charset charset;
+
+    public ContentDispositionValue(String type, String name, String filename) {
+        this(type, name, filename, (Charset)null);
+    }
+
+    public ContentDispositionValue(String type, String name, String filename, Charset charset) {
+        Assert.hasLength(type, "\'type\' must not be empty");
+        this.type = type;
+        this.name = name;
+        this.filename = filename;
+        this.charset = charset;
+    }
+
+    public String getType() {
+        return this.type;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public String getFilename() {
+        return this.filename;
+    }
+
+    // the charset of a filename* parameter, or null for a plain filename
+    public Charset getCharset() {
+        return this.charset;
+    }
+
+    public static ContentDispositionValue parse(String contentDisposition) {
+        Assert.hasLength(contentDisposition, "\'contentDisposition\' must not be empty");
+        int length = contentDisposition.length();
+        int typeEnd = parameterEnd(contentDisposition, 0, length);
+        String type = contentDisposition.substring(0, typeEnd).trim();
+        if(type.isEmpty()) {
+            throw new IllegalArgumentException("Invalid Content-Disposition header: " + contentDisposition);
+        } else {
+            String name = null;
+            String filename = null;
+            String extendedFilename = null;
+            Charset charset = null;
+
+            int end;
+            for(int start = typeEnd + 1; start < length; start = end + 1) {
+                end = parameterEnd(contentDisposition, start, length);
+                int equals = contentDisposition.indexOf(61, start);
+                if(equals >= 0 && equals < end) {
+                    String attribute = contentDisposition.substring(start, equals).trim();
+                    String value = contentDisposition.substring(equals + 1, end).trim();
+                    if(attribute.equalsIgnoreCase("name")) {
+                        name = unquote(value);
+                    } else if(attribute.equalsIgnoreCase("filename*")) {
+                        int charsetEnd = value.indexOf(39);
+                        int languageEnd = charsetEnd > 0?value.indexOf(39, charsetEnd + 1):-1;
+                        if(languageEnd < 0) {
+                            throw new IllegalArgumentException("Invalid filename* parameter: " + value);
+                        }
+
+                        charset = Charset.forName(value.substring(0, charsetEnd));
+                        extendedFilename = HeaderFieldParamCodec.decode(value, languageEnd + 1, value.length(), charset);
+                    } else if(attribute.equalsIgnoreCase("filename")) {
+                        filename = unquote(value);
+                    }
+                } else if(!contentDisposition.substring(start, end).trim().isEmpty()) {
+                    throw new IllegalArgumentException("Invalid Content-Disposition parameter: " + contentDisposition.substring(start, end));
+                }
+            }
+
+            return extendedFilename != null?new ContentDispositionValue(type, name, extendedFilename, charset):new ContentDispositionValue(type, name, filename);
+        }
+    }
+
+    // next ';' outside of a quoted string
+    private static int parameterEnd(String value, int from, int end) {
+        boolean quoted = false;
+
+        for(int i = from; i < end; ++i) {
+            char c = value.charAt(i);
+            if(quoted) {
+                if(c == 92) {
+                    ++i;
+                } else if(c == 34) {
+                    quoted = false;
+                }
+            } else if(c == 34) {
+                quoted = true;
+            } else if(c == 59) {
+                return i;
+            }
+        }
+
+        return end;
+    }
+
+    private static String unquote(String value) {
+        if(value.length() >= 2 && value.charAt(0) == 34 && value.charAt(value.length() - 1) == 34) {
+            if(value.indexOf(92) < 0) {
+                return value.substring(1, value.length() - 1);
+            } else {
+                StringBuilder builder = new StringBuilder(value.length());
+
+                for(int i = 1; i < value.length() - 1; ++i) {
+                    char c = value.charAt(i);
+                    if(c == 92 && i + 1 < value.length() - 1) {
+                        c = value.charAt(++i);
+                    }
+
+                    builder.append(c);
+                }
+
+                return builder.toString();
+            }
+        } else {
+            return value;
+        }
+    }
+
+    private static void appendQuoted(StringBuilder builder, String value) {
+        builder.append('\"');
+
+        for(int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if(c == 34 || c == 92) {
+                builder.append('\\');
+            }
+
+            builder.append(c);
+        }
+
+        builder.append('\"');
+    }
+
+    public boolean equals(Object other) {
+        if(this == other) {
+            return true;
+        } else if(!(other instanceof ContentDispositionValue)) {
+            return false;
+        } else {
+            ContentDispositionValue otherDisposition = (ContentDispositionValue)other;
+            return this.type.equalsIgnoreCase(otherDisposition.type) && nullSafeEquals(this.name, otherDisposition.name) && nullSafeEquals(this.filename, otherDisposition.filename) && nullSafeEquals(this.charset, otherDisposition.charset);
+        }
+    }
+
+    private static boolean nullSafeEquals(Object first, Object second) {
+        return first != null?first.equals(second):second == null;
+    }
+
+    public int hashCode() {
+        int result = this.type.toLowerCase(Locale.ENGLISH).hashCode();
+        result = 31 * result + (this.name != null?this.name.hashCode():0);
+        result = 31 * result + (this.filename != null?this.filename.hashCode():0);
+        result = 31 * result + (this.charset != null?this.charset.hashCode():0);
+        return result;
+    }
+
+    public String toString() {
+        StringBuilder builder = new StringBuilder(this.type);
+        if(this.name != null) {
+            builder.append("; name=");
+            appendQuoted(builder, this.name);
+        }
+
+        if(this.filename != null) {
+            if(this.charset != null && !this.charset.name().equals("US-ASCII")) {
+                builder.append("; filename*=");
+                HeaderFieldParamCodec.encode(this.filename, this.charset, builder);
+            } else {
+                builder.append("; filename=");
+                appendQuoted(builder, this.filename);
+            }
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,591 @@
+package org.springframework.http;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.util.Assert;
+
+// Selects the best producible media type, charset and content coding for a request
+// (RFC 7231, section 5.3). The producible variants are compiled once; Accept headers
+// are then scanned in place, and decisions are cached by header value.
+public class ContentNegotiator {
+    public static final String IDENTITY = "identity";
+    public static final int DEFAULT_CACHE_LIMIT = 1024;
+    // longer header values are negotiated but not cached
+    private static final int MAX_CACHED_VALUE_LENGTH = 1024;
+    private static final Integer NOT_ACCEPTABLE = Integer.valueOf(-1);
+    private static final int Q_MAX = 1000;
+    private static final int Q_IMPLICIT = 1;
+    private final MediaType[] mediaTypes;
+    private final String[][] mediaTypeParameters;
+    private final Charset[] charsets;
+    private final String[][] charsetNames;
+    private final String[] encodings;
+    private final int identityIndex;
+    private final Map<String, Integer> mediaTypeCache = new ConcurrentHashMap<String, Integer>();
+    private final Map<String, Integer> charsetCache = new ConcurrentHashMap<String, Integer>();
+    private final Map<String, Integer> encodingCache = new ConcurrentHashMap<String, Integer>();
+    private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+    // all arguments in server preference order; "identity" is implicitly the last encoding
+    public ContentNegotiator(Collection<MediaType> mediaTypes, Collection<Charset> charsets, Collection<String> encodings) {
+        Assert.notNull(mediaTypes, "\'mediaTypes\' must not be null");
+        Assert.notNull(charsets, "\'charsets\' must not be null");
+        Assert.notNull(encodings, "\'encodings\' must not be null");
+        this.mediaTypes = (MediaType[])mediaTypes.toArray(new MediaType[mediaTypes.size()]);
+        this.mediaTypeParameters = new String[this.mediaTypes.length][];
+
+        for(int i = 0; i < this.mediaTypes.length; ++i) {
+            MediaType mediaType = this.mediaTypes[i];
+            Assert.isTrue(mediaType != null && mediaType.isConcrete(), "Producible media types must be concrete: " + mediaType);
+            this.mediaTypeParameters[i] = compileParameters(mediaType.getParameters());
+        }
+
+        this.charsets = (Charset[])charsets.toArray(new Charset[charsets.size()]);
+        this.charsetNames = new String[this.charsets.length][];
+
+        for(int i = 0; i < this.charsets.length; ++i) {
+            Charset charset = this.charsets[i];
+            Assert.notNull(charset, "Producible charsets must not contain null");
+            String[] names = new String[charset.aliases().size() + 1];
+            names[0] = charset.name();
+            int j = 1;
+
+            for(Iterator var9 = charset.aliases().iterator(); var9.hasNext(); ++j) {
+                names[j] = (String)var9.next();
+            }
+
+            this.charsetNames[i] = names;
+        }
+
+        String[] compiled = new String[encodings.size() + 1];
+        int count = 0;
+        int identity = -1;
+
+        for(Iterator var14 = encodings.iterator(); var14.hasNext(); ++count) {
+            String encoding = (String)var14.next();
+            Assert.hasLength(encoding, "Producible encodings must not be empty");
+            compiled[count] = encoding.toLowerCase(Locale.ENGLISH);
+            if(compiled[count].equals(IDENTITY)) {
+                identity = count;
+            }
+        }
+
+        if(identity < 0) {
+            identity = count;
+            compiled[count++] = IDENTITY;
+        }
+
+        this.encodings = (String[])Arrays.copyOf(compiled, count);
+        this.identityIndex = identity;
+    }
+
+    private static String[] compileParameters(Map<String, String> parameters) {
+        String[] result = new String[parameters.size() * 2];
+        int i = 0;
+
+        for(Iterator<Entry<String, String>> var3 = parameters.entrySet().iterator(); var3.hasNext(); i += 2) {
+            Entry<String, String> entry = var3.next();
+            result[i] = (String)entry.getKey();
+            result[i + 1] = unquote((String)entry.getValue());
+        }
+
+        return result;
+    }
+
+    // number of cached decisions per header; a full cache is cleared
+    public void setCacheLimit(int cacheLimit) {
+        Assert.isTrue(cacheLimit >= 0, "\'cacheLimit\' must not be negative");
+        this.cacheLimit = cacheLimit;
+    }
+
+    public int getCacheLimit() {
+        return this.cacheLimit;
+    }
+
+    // null if one of the configured dimensions has no acceptable value
+    public Variant negotiate(HttpHeaders requestHeaders) {
+        MediaType mediaType = this.selectMediaType(requestHeaders);
+        if(mediaType == null && this.mediaTypes.length > 0) {
+            return null;
+        } else {
+            Charset charset = this.selectCharset(requestHeaders);
+            if(charset == null && this.charsets.length > 0) {
+                return null;
+            } else {
+                String encoding = this.selectEncoding(requestHeaders);
+                return encoding != null?new Variant(mediaType, charset, encoding):null;
+            }
+        }
+    }
+
+    public MediaType selectMediaType(HttpHeaders requestHeaders) {
+        int index = this.select(this.mediaTypeCache, headerValue(requestHeaders, "Accept"), 0);
+        return index >= 0 && index < this.mediaTypes.length?this.mediaTypes[index]:null;
+    }
+
+    public Charset selectCharset(HttpHeaders requestHeaders) {
+        int index = this.select(this.charsetCache, headerValue(requestHeaders, "Accept-Charset"), 1);
+        return index >= 0 && index < this.charsets.length?this.charsets[index]:null;
+    }
+
+    // "identity" when the request has no Accept-Encoding, null if identity is refused as well
+    public String selectEncoding(HttpHeaders requestHeaders) {
+        String value = headerValue(requestHeaders, "Accept-Encoding");
+        int index = value != null?this.select(this.encodingCache, value, 2):this.identityIndex;
+        return index >= 0?this.encodings[index]:null;
+    }
+
+    private static String headerValue(HttpHeaders headers, String headerName) {
+        Assert.notNull(headers, "\'headers\' must not be null");
+        List<String> values = headers.getValues(headerName);
+        if(values != null && !values.isEmpty()) {
+            if(values.size() == 1) {
+                return (String)values.get(0);
+            } else {
+                StringBuilder builder = new StringBuilder();
+
+                for(int i = 0; i < values.size(); ++i) {
+                    if(i > 0) {
+                        builder.append(',');
+                    }
+
+                    builder.append((String)values.get(i));
+                }
+
+                return builder.toString();
+            }
+        } else {
+            return null;
+        }
+    }
+
+    private int select(Map<String, Integer> cache, String value, int dimension) {
+        if(value == null) {
+            return 0;
+        } else {
+            Integer cached = (Integer)cache.get(value);
+            if(cached != null) {
+                return cached.intValue();
+            } else {
+                int index = dimension == 0?this.matchMediaType(value):(dimension == 1?this.matchCharset(value):this.matchEncoding(value));
+                if(value.length() <= MAX_CACHED_VALUE_LENGTH && this.cacheLimit > 0) {
+                    if(cache.size() >= this.cacheLimit) {
+                        cache.clear();
+                    }
+
+                    cache.put(value, index >= 0?Integer.valueOf(index):NOT_ACCEPTABLE);
+                }
+
+                return index;
+            }
+        }
+    }
+
+    int matchMediaType(String accept) {
+        int count = this.mediaTypes.length;
+        if(count == 0) {
+            return -1;
+        } else if(isBlank(accept)) {
+            return 0;
+        } else {
+            // per producible type: specificity of the most specific matching range and its quality
+            int[] specificity = new int[count];
+            int[] quality = new int[count];
+            Arrays.fill(specificity, -1);
+            int length = accept.length();
+
+            int end;
+            for(int start = 0; start < length; start = end + 1) {
+                end = elementEnd(accept, start, length);
+                int typeStart = skipWhitespace(accept, start, end);
+                int parametersStart = indexOf(accept, ';', typeStart, end);
+                int typeEnd = trimEnd(accept, typeStart, parametersStart);
+                if(typeEnd > typeStart) {
+                    int slash = indexOf(accept, '/', typeStart, typeEnd);
+                    boolean anyType;
+                    int subtypeStart;
+                    if(slash == typeEnd) {
+                        // a lone "*" as sent by some clients
+                        if(typeEnd - typeStart != 1 || accept.charAt(typeStart) != 42) {
+                            continue;
+                        }
+
+                        anyType = true;
+                        subtypeStart = typeEnd;
+                    } else {
+                        anyType = slash - typeStart == 1 && accept.charAt(typeStart) == 42;
+                        subtypeStart = slash + 1;
+                    }
+
+                    boolean anySubtype = subtypeStart == typeEnd?anyType:typeEnd - subtypeStart == 1 && accept.charAt(subtypeStart) == 42;
+                    if(anyType && !anySubtype) {
+                        continue;
+                    }
+
+                    // parameters up to "q" take part in matching, later ones are accept-extensions
+                    int q = Q_MAX;
+                    int parameterCount = 0;
+                    int parametersEnd = end;
+
+                    int next;
+                    for(int p = parametersStart; p < end; p = next) {
+                        next = elementEnd(accept, p + 1, end, ';');
+                        int nameStart = skipWhitespace(accept, p + 1, next);
+                        int equals = indexOf(accept, '=', nameStart, next);
+                        int nameEnd = trimEnd(accept, nameStart, equals);
+                        if(nameEnd - nameStart == 1 && (accept.charAt(nameStart) | 32) == 113) {
+                            q = equals < next?parseQuality(accept, equals + 1, next):-1;
+                            parametersEnd = p;
+                            break;
+                        }
+
+                        if(nameEnd > nameStart) {
+                            ++parameterCount;
+                        }
+                    }
+
+                    if(q >= 0) {
+                        for(int i = 0; i < count; ++i) {
+                            int rangeSpecificity;
+                            if(anyType) {
+                                rangeSpecificity = 0;
+                            } else {
+                                MediaType mediaType = this.mediaTypes[i];
+                                if(!regionEqualsIgnoreCase(accept, typeStart, slash, mediaType.getType())) {
+                                    continue;
+                                }
+
+                                if(anySubtype) {
+                                    rangeSpecificity = 1;
+                                } else {
+                                    if(!regionEqualsIgnoreCase(accept, subtypeStart, typeEnd, mediaType.getSubtype()) || parameterCount > 0 && !parametersMatch(accept, parametersStart, parametersEnd, this.mediaTypeParameters[i])) {
+                                        continue;
+                                    }
+
+                                    rangeSpecificity = 2 + parameterCount;
+                                }
+                            }
+
+                            if(rangeSpecificity > specificity[i]) {
+                                specificity[i] = rangeSpecificity;
+                                quality[i] = q;
+                            }
+                        }
+                    }
+                }
+            }
+
+            return best(quality, specificity);
+        }
+    }
+
+    int matchCharset(String acceptCharset) {
+        int count = this.charsets.length;
+        if(count == 0) {
+            return -1;
+        } else if(isBlank(acceptCharset)) {
+            return 0;
+        } else {
+            int[] quality = new int[count];
+            Arrays.fill(quality, -1);
+            int wildcard = -1;
+            int length = acceptCharset.length();
+
+            int end;
+            for(int start = 0; start < length; start = end + 1) {
+                end = elementEnd(acceptCharset, start, length);
+                int nameStart = skipWhitespace(acceptCharset, start, end);
+                int nameEnd = indexOf(acceptCharset, ';', nameStart, end);
+                int q = qualityOf(acceptCharset, nameEnd, end);
+                nameEnd = trimEnd(acceptCharset, nameStart, nameEnd);
+                if(q >= 0 && nameEnd > nameStart) {
+                    if(nameEnd - nameStart == 1 && acceptCharset.charAt(nameStart) == 42) {
+                        if(wildcard < 0) {
+                            wildcard = q;
+                        }
+                    } else {
+                        for(int i = 0; i < count; ++i) {
+                            if(quality[i] < 0 && matchesAny(acceptCharset, nameStart, nameEnd, this.charsetNames[i])) {
+                                quality[i] = q;
+                            }
+                        }
+                    }
+                }
+            }
+
+            // unlisted charsets are only acceptable through "*"
+            for(int i = 0; i < count; ++i) {
+                if(quality[i] < 0) {
+                    quality[i] = wildcard;
+                }
+            }
+
+            return best(quality, (int[])null);
+        }
+    }
+
+    int matchEncoding(String acceptEncoding) {
+        int count = this.encodings.length;
+        int[] quality = new int[count];
+        Arrays.fill(quality, -1);
+        int wildcard = -1;
+        int length = acceptEncoding.length();
+
+        int end;
+        for(int start = 0; start < length; start = end + 1) {
+            end = elementEnd(acceptEncoding, start, length);
+            int nameStart = skipWhitespace(acceptEncoding, start, end);
+            int nameEnd = indexOf(acceptEncoding, ';', nameStart, end);
+            int q = qualityOf(acceptEncoding, nameEnd, end);
+            nameEnd = trimEnd(acceptEncoding, nameStart, nameEnd);
+            if(q >= 0 && nameEnd > nameStart) {
+                if(nameEnd - nameStart == 1 && acceptEncoding.charAt(nameStart) == 42) {
+                    if(wildcard < 0) {
+                        wildcard = q;
+                    }
+                } else {
+                    // RFC 7230, section 4.2: x-gzip and x-compress are equivalent to gzip and compress
+                    if(nameEnd - nameStart > 2 && (acceptEncoding.charAt(nameStart) | 32) == 120 && acceptEncoding.charAt(nameStart + 1) == 45) {
+                        String name = acceptEncoding.substring(nameStart + 2, nameEnd);
+                        if(name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("compress")) {
+                            nameStart += 2;
+                        }
+                    }
+
+                    for(int i = 0; i < count; ++i) {
+                        if(quality[i] < 0 && regionEqualsIgnoreCase(acceptEncoding, nameStart, nameEnd, this.encodings[i])) {
+                            quality[i] = q;
+                        }
+                    }
+                }
+            }
+        }
+
+        for(int i = 0; i < count; ++i) {
+            if(quality[i] < 0) {
+                // identity stays acceptable unless refused explicitly, but only as a last resort
+                quality[i] = i == this.identityIndex?(wildcard >= 0?wildcard:Q_IMPLICIT):wildcard;
+            }
+        }
+
+        return best(quality, (int[])null);
+    }
+
+    // highest quality above zero; ties go to the earlier, server-preferred entry
+    private static int best(int[] quality, int[] specificity) {
+        int best = -1;
+
+        for(int i = 0; i < quality.length; ++i) {
+            if((specificity == null || specificity[i] >= 0) && quality[i] > 0 && (best < 0 || quality[i] > quality[best])) {
+                best = i;
+            }
+        }
+
+        return best;
+    }
+
+    private static boolean parametersMatch(String value, int start, int end, String[] parameters) {
+        int next;
+        for(int p = start; p < end; p = next) {
+            next = elementEnd(value, p + 1, end, ';');
+            int nameStart = skipWhitespace(value, p + 1, next);
+            int equals = indexOf(value, '=', nameStart, next);
+            int nameEnd = trimEnd(value, nameStart, equals);
+            if(nameEnd > nameStart) {
+                int valueStart = skipWhitespace(value, Math.min(equals + 1, next), next);
+                int valueEnd = trimEnd(value, valueStart, next);
+                if(valueEnd - valueStart >= 2 && value.charAt(valueStart) == 34 && value.charAt(valueEnd - 1) == 34) {
+                    ++valueStart;
+                    --valueEnd;
+                }
+
+                boolean found = false;
+
+                for(int i = 0; i < parameters.length && !found; i += 2) {
+                    if(regionEqualsIgnoreCase(value, nameStart, nameEnd, parameters[i])) {
+                        // charset names are case-insensitive, other parameter values are not
+                        found = parameters[i].equalsIgnoreCase("charset")?regionEqualsIgnoreCase(value, valueStart, valueEnd, parameters[i + 1]):valueEnd - valueStart == parameters[i + 1].length() && value.regionMatches(valueStart, parameters[i + 1], 0, valueEnd - valueStart);
+                    }
+                }
+
+                if(!found) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static int qualityOf(String value, int parametersStart, int end) {
+        int next;
+        for(int p = parametersStart; p < end; p = next) {
+            next = elementEnd(value, p + 1, end, ';');
+            int nameStart = skipWhitespace(value, p + 1, next);
+            int equals = indexOf(value, '=', nameStart, next);
+            int nameEnd = trimEnd(value, nameStart, equals);
+            if(nameEnd - nameStart == 1 && (value.charAt(nameStart) | 32) == 113) {
+                return equals < next?parseQuality(value, equals + 1, next):-1;
+            }
+        }
+
+        return Q_MAX;
+    }
+
+    // RFC 7231, section 5.3.1, leniently accepting a missing leading zero; -1 if invalid
+    static int parseQuality(String value, int start, int end) {
+        start = skipWhitespace(value, start, end);
+        end = trimEnd(value, start, end);
+        if(start == end) {
+            return -1;
+        } else {
+            int q;
+            int i;
+            char c = value.charAt(start);
+            if(c != 48 && c != 49) {
+                if(c != 46) {
+                    return -1;
+                }
+
+                q = 0;
+                i = start;
+            } else {
+                q = (c - 48) * Q_MAX;
+                i = start + 1;
+            }
+
+            if(i < end) {
+                if(value.charAt(i) != 46 || end - i > 4) {
+                    return -1;
+                }
+
+                int scale = 100;
+
+                for(++i; i < end; ++i) {
+                    c = value.charAt(i);
+                    if(c < 48 || c > 57) {
+                        return -1;
+                    }
+
+                    q += (c - 48) * scale;
+                    scale /= 10;
+                }
+            }
+
+            return q <= Q_MAX?q:-1;
+        }
+    }
+
+    private static int elementEnd(String value, int from, int end) {
+        return elementEnd(value, from, end, ',');
+    }
+
+    // next separator outside of a quoted string, or end
+    private static int elementEnd(String value, int from, int end, char separator) {
+        boolean quoted = false;
+
+        for(int i = from; i < end; ++i) {
+            char c = value.charAt(i);
+            if(quoted) {
+                if(c == 92) {
+                    ++i;
+                } else if(c == 34) {
+                    quoted = false;
+                }
+            } else if(c == 34) {
+                quoted = true;
+            } else if(c == separator) {
+                return i;
+            }
+        }
+
+        return end;
+    }
+
+    private static int indexOf(String value, char c, int from, int end) {
+        for(int i = from; i < end; ++i) {
+            if(value.charAt(i) == c) {
+                return i;
+            }
+        }
+
+        return end;
+    }
+
+    private static int skipWhitespace(String value, int from, int end) {
+        while(from < end && isWhitespace(value.charAt(from))) {
+            ++from;
+        }
+
+        return from;
+    }
+
+    private static int trimEnd(String value, int start, int end) {
+        while(end > start && isWhitespace(value.charAt(end - 1))) {
+            --end;
+        }
+
+        return end;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == 32 || c == 9;
+    }
+
+    private static boolean isBlank(String value) {
+        return skipWhitespace(value, 0, value.length()) == value.length();
+    }
+
+    private static boolean regionEqualsIgnoreCase(String value, int start, int end, String other) {
+        return end - start == other.length() && value.regionMatches(true, start, other, 0, other.length());
+    }
+
+    private static boolean matchesAny(String value, int start, int end, String[] candidates) {
+        for(int i = 0; i < candidates.length; ++i) {
+            if(regionEqualsIgnoreCase(value, start, end, candidates[i])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String unquote(String value) {
+        return value != null && value.length() >= 2 && value.charAt(0) == 34 && value.charAt(value.length() - 1) == 34?value.substring(1, value.length() - 1):value;
+    }
+
+    public static class Variant {
+        private final MediaType mediaType;
+        private final Charset charset;
+        private final String encoding;
+
+        Variant(MediaType mediaType, Charset charset, String encoding) {
+            this.mediaType = mediaType;
+            this.charset = charset;
+            this.encoding = encoding;
+        }
+
+        public MediaType getMediaType() {
+            return this.mediaType;
+        }
+
+        public Charset getCharset() {
+            return this.charset;
+        }
+
+        public String getEncoding() {
+            return this.encoding;
+        }
+
+        public String toString() {
+            return "Variant [" + this.mediaType + ", " + this.charset + ", " + this.encoding + "]";
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package org.springframework.http;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Map.Entry;
+
+class CopyOnWriteHeaderMap extends AbstractMap<String, List<String>> implements Serializable {
+    private static final long serialVersionUID = 6052377632479014232L;
+    private static final int MAX_DEPTH = 4;
+    private static final List<String> REMOVED = Collections.unmodifiableList(new ArrayList<String>(0));
+    private Map<String, List<String>> base;
+    private final int depth;
+    // replaced values or REMOVED markers for base keys, iterated at the base position
+    private IndexedHeaderMap changes;
+    // keys that are not (or no longer) part of base, iterated after it
+    private IndexedHeaderMap additions;
+    private int size;
+    private int modCount;
+
+    CopyOnWriteHeaderMap(Map<String, List<String>> base) {
+        if(base instanceof CopyOnWriteHeaderMap && ((CopyOnWriteHeaderMap)base).depth >= MAX_DEPTH) {
+            IndexedHeaderMap copy = new IndexedHeaderMap();
+            Iterator<Entry<String, List<String>>> var3 = base.entrySet().iterator();
+
+            while(var3.hasNext()) {
+                Entry<String, List<String>> entry = var3.next();
+                HeaderValueList values = new HeaderValueList();
+                values.addAll(entry.getValue());
+                copy.put((String)entry.getKey(), values);
+            }
+
+            base = copy;
+        }
+
+        this.base = base;
+        this.depth = base instanceof CopyOnWriteHeaderMap?((CopyOnWriteHeaderMap)base).depth + 1:1;
+        this.size = base.size();
+    }
+
+    boolean isModified() {
+        return this.changes != null && !this.changes.isEmpty() || this.additions != null && !this.additions.isEmpty();
+    }
+
+    Map<String, List<String>> getBase() {
+        return this.base;
+    }
+
+    // whether any base entry has been replaced or removed
+    boolean hasChanges() {
+        return this.changes != null && !this.changes.isEmpty();
+    }
+
+    // the entries that are not part of the base, in insertion order; read-only use
+    Iterator<Entry<String, List<String>>> additionsIterator() {
+        return this.additions != null?this.additions.entrySet().iterator():Collections.<Entry<String, List<String>>>emptyIterator();
+    }
+
+    // read access without copying; the returned list must not be modified
+    List<String> peek(Object key) {
+        if(this.additions != null) {
+            List<String> values = this.additions.get(key);
+            if(values != null) {
+                return values;
+            }
+        }
+
+        if(this.changes != null) {
+            List<String> values = this.changes.get(key);
+            if(values != null) {
+                return values != REMOVED?values:null;
+            }
+        }
+
+        return peek(this.base, key);
+    }
+
+    static List<String> peek(Map<String, List<String>> map, Object key) {
+        return map instanceof CopyOnWriteHeaderMap?((CopyOnWriteHeaderMap)map).peek(key):(map instanceof ReadOnlyHeaderMap?((ReadOnlyHeaderMap)map).getTargetValues(key):map.get(key));
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        if(this.additions != null && this.additions.containsKey(key)) {
+            return true;
+        } else if(this.changes != null && this.changes.containsKey(key)) {
+            return this.changes.get(key) != REMOVED;
+        } else {
+            return this.base.containsKey(key);
+        }
+    }
+
+    public List<String> get(Object key) {
+        if(this.additions != null && this.additions.containsKey(key)) {
+            return this.additions.get(key);
+        } else if(this.changes != null && this.changes.containsKey(key)) {
+            List<String> values = this.changes.get(key);
+            return values != REMOVED?values:null;
+        } else {
+            // a shared entry: reading it writes nothing, so that forks are safe for
+            // concurrent reads; the list copies the entry on its first change
+            List<String> values = peek(this.base, key);
+            return values != null?new SharedValues(this.baseKey(key), values):null;
+        }
+    }
+
+    // the values of a key for changing them in place, copying a shared entry first
+    List<String> getForWrite(String key) {
+        if(this.additions != null && this.additions.containsKey(key)) {
+            return this.additions.get(key);
+        } else if(this.changes != null && this.changes.containsKey(key)) {
+            List<String> values = this.changes.get(key);
+            return values != REMOVED?values:null;
+        } else {
+            List<String> values = peek(this.base, key);
+            return values != null?this.copy(this.baseKey(key), values):null;
+        }
+    }
+
+    static List<String> getForWrite(Map<String, List<String>> map, String key) {
+        return map instanceof CopyOnWriteHeaderMap?((CopyOnWriteHeaderMap)map).getForWrite(key):map.get(key);
+    }
+
+    private HeaderValueList copy(String baseKey, List<String> values) {
+        HeaderValueList copy = new HeaderValueList();
+        copy.addAll(values);
+        this.changes().put(baseKey, copy);
+        return copy;
+    }
+
+    // replacing the value of a present key is not a structural change
+    public List<String> put(String key, List<String> value) {
+        if(this.additions != null && this.additions.containsKey(key)) {
+            int additionsModCount = this.additions.modCount;
+            List<String> oldValue = this.additions.put(key, value);
+            if(this.additions.modCount != additionsModCount) {
+                ++this.modCount;
+            }
+
+            return oldValue;
+        } else {
+            boolean changed = this.changes != null && this.changes.containsKey(key);
+            if(changed && this.changes.get(key) == REMOVED) {
+                ++this.modCount;
+                ++this.size;
+                return this.additions().put(key, value);
+            } else if(!changed && !this.base.containsKey(key)) {
+                ++this.modCount;
+                ++this.size;
+                return this.additions().put(key, value);
+            } else {
+                List<String> oldValue = changed?this.changes.get(key):peek(this.base, key);
+                this.changes().put(key, value);
+                return oldValue;
+            }
+        }
+    }
+
+    public List<String> remove(Object key) {
+        if(this.additions != null && this.additions.containsKey(key)) {
+            ++this.modCount;
+            --this.size;
+            return this.additions.remove(key);
+        } else if(this.changes != null && this.changes.containsKey(key)) {
+            List<String> oldValue = this.changes.get(key);
+            if(oldValue == REMOVED) {
+                return null;
+            } else {
+                ++this.modCount;
+                --this.size;
+                this.changes.put(this.baseKey(key), REMOVED);
+                return oldValue;
+            }
+        } else if(this.base.containsKey(key)) {
+            ++this.modCount;
+            --this.size;
+            List<String> oldValue = peek(this.base, key);
+            this.changes().put(this.baseKey(key), REMOVED);
+            return oldValue;
+        } else {
+            return null;
+        }
+    }
+
+    public void clear() {
+        ++this.modCount;
+        this.base = Collections.emptyMap();
+        this.changes = null;
+        this.additions = null;
+        this.size = 0;
+    }
+
+    // keeps the spelling of the shared entry, as a lookup must not rename the key
+    private String baseKey(Object key) {
+        if(this.base instanceof IndexedHeaderMap) {
+            IndexedHeaderMap.Node node = ((IndexedHeaderMap)this.base).getNode((String)key);
+            if(node != null) {
+                return node.key;
+            }
+        }
+
+        return (String)key;
+    }
+
+    private IndexedHeaderMap changes() {
+        if(this.changes == null) {
+            this.changes = new IndexedHeaderMap();
+        }
+
+        return this.changes;
+    }
+
+    private IndexedHeaderMap additions() {
+        if(this.additions == null) {
+            this.additions = new IndexedHeaderMap();
+        }
+
+        return this.additions;
+    }
+
+    public Set<Entry<String, List<String>>> entrySet() {
+        return new AbstractSet<Entry<String, List<String>>>() {
+            public Iterator<Entry<String, List<String>>> iterator() {
+                return CopyOnWriteHeaderMap.this.new MergingIterator();
+            }
+
+            public int size() {
+                return CopyOnWriteHeaderMap.this.size;
+            }
+
+            public void clear() {
+                CopyOnWriteHeaderMap.this.clear();
+            }
+        };
+    }
+
+    private Object writeReplace() {
+        IndexedHeaderMap copy = new IndexedHeaderMap();
+        Iterator<Entry<String, List<String>>> var2 = this.entrySet().iterator();
+
+        while(var2.hasNext()) {
+            Entry<String, List<String>> entry = var2.next();
+            copy.put((String)entry.getKey(), new ArrayList<String>(entry.getValue()));
+        }
+
+        return copy;
+    }
+
+    // Untouched base entries are exposed read-only, since their lists are shared with
+    // other forks; setValue on them, put() or changes through get() copy the entry into
+    // this map.
+    private class MergingIterator implements Iterator<Entry<String, List<String>>> {
+        private final Iterator<Entry<String, List<String>>> baseIterator;
+        private boolean inAdditions;
+        private Entry<String, List<String>> next;
+        private Entry<String, List<String>> lastReturned;
+        private int expectedModCount;
+
+        MergingIterator() {
+            this.baseIterator = CopyOnWriteHeaderMap.this.base.entrySet().iterator();
+            this.expectedModCount = CopyOnWriteHeaderMap.this.modCount;
+            this.next = this.nextBaseEntry();
+        }
+
+        private Entry<String, List<String>> nextBaseEntry() {
+            while(this.baseIterator.hasNext()) {
+                Entry<String, List<String>> entry = this.baseIterator.next();
+                IndexedHeaderMap changes = CopyOnWriteHeaderMap.this.changes;
+                IndexedHeaderMap.Node changed = changes != null?changes.getNode((String)entry.getKey()):null;
+                if(changed == null) {
+                    return CopyOnWriteHeaderMap.this.new BaseEntry((String)entry.getKey());
+                }
+
+                if(changed.value != REMOVED) {
+                    return changed;
+                }
+            }
+
+            this.inAdditions = true;
+            return CopyOnWriteHeaderMap.this.additions != null?CopyOnWriteHeaderMap.this.additions.firstNode():null;
+        }
+
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        public Entry<String, List<String>> next() {
+            if(CopyOnWriteHeaderMap.this.modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            } else if(this.next == null) {
+                throw new NoSuchElementException();
+            } else {
+                this.lastReturned = this.next;
+                this.next = this.inAdditions?((IndexedHeaderMap.Node)this.next).after:this.nextBaseEntry();
+                return this.lastReturned;
+            }
+        }
+
+        public void remove() {
+            if(this.lastReturned == null) {
+                throw new IllegalStateException();
+            } else if(CopyOnWriteHeaderMap.this.modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            } else {
+                CopyOnWriteHeaderMap.this.remove(this.lastReturned.getKey());
+                this.lastReturned = null;
+                this.expectedModCount = CopyOnWriteHeaderMap.this.modCount;
+            }
+        }
+    }
+
+    private class BaseEntry implements Entry<String, List<String>> {
+        private final String key;
+
+        BaseEntry(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return this.key;
+        }
+
+        public List<String> getValue() {
+            List<String> values = CopyOnWriteHeaderMap.this.peek(this.key);
+            return values != null?Collections.unmodifiableList(values):null;
+        }
+
+        public List<String> setValue(List<String> value) {
+            List<String> oldValue = CopyOnWriteHeaderMap.this.peek(this.key);
+            CopyOnWriteHeaderMap.this.changes().put(this.key, value);
+            return oldValue;
+        }
+
+        public boolean equals(Object other) {
+            if(this == other) {
+                return true;
+            } else if(!(other instanceof Entry)) {
+                return false;
+            } else {
+                Entry otherEntry = (Entry)other;
+                List<String> value = this.getValue();
+                return this.key.equals(otherEntry.getKey()) && (value != null?value.equals(otherEntry.getValue()):otherEntry.getValue() == null);
+            }
+        }
+
+        public int hashCode() {
+            List<String> value = this.getValue();
+            return this.key.hashCode() ^ (value != null?value.hashCode():0);
+        }
+
+        public String toString() {
+            return this.key + "=" + this.getValue();
+        }
+    }
+
+    // The list get() returns for a shared entry. It reads the shared list until it is
+    // changed, and then a copy, which it also puts into this map unless the entry has been
+    // replaced or removed in the meantime, like a list of a replaced entry in a HashMap.
+    private final class SharedValues extends AbstractList<String> {
+        private final String key;
+        private List<String> values;
+        private boolean copied;
+
+        SharedValues(String key, List<String> values) {
+            this.key = key;
+            this.values = values;
+        }
+
+        private List<String> values() {
+            if(!this.copied) {
+                IndexedHeaderMap changes = CopyOnWriteHeaderMap.this.changes;
+                if((changes == null || !changes.containsKey(this.key)) && CopyOnWriteHeaderMap.this.base.containsKey(this.key)) {
+                    this.values = CopyOnWriteHeaderMap.this.copy(this.key, this.values);
+                } else {
+                    HeaderValueList copy = new HeaderValueList();
+                    copy.addAll(this.values);
+                    this.values = copy;
+                }
+
+                this.copied = true;
+            }
+
+            return this.values;
+        }
+
+        public String get(int index) {
+            return this.values.get(index);
+        }
+
+        public int size() {
+            return this.values.size();
+        }
+
+        public String set(int index, String value) {
+            return this.values().set(index, value);
+        }
+
+        public void add(int index, String value) {
+            this.values().add(index, value);
+            ++this.modCount;
+        }
+
+        public String remove(int index) {
+            String oldValue = this.values().remove(index);
+            ++this.modCount;
+            return oldValue;
+        }
+
+        public void clear() {
+            this.values().clear();
+            ++this.modCount;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.springframework.http;
+
+import java.util.List;
+import java.util.Map;
+
+// The immutable map behind readOnlySnapshot(). Since its contents never change, the
+// HTTP/1.1 encoding and the hash codes are computed once and shared by all threads;
+// they are published through racy single-check caching, as with String.hashCode().
+class FrozenHeaderMap extends ReadOnlyHeaderMap {
+    private static final long serialVersionUID = 4286517373466937384L;
+    private transient volatile byte[] encoded;
+    private transient int hash;
+    private transient int contentHash;
+
+    // the target must not be modified, or be reachable for modification, afterwards
+    FrozenHeaderMap(Map<String, List<String>> target) {
+        super(target);
+    }
+
+    // header lines as written by HttpHeadersWriter; must not be modified
+    byte[] getEncoded() {
+        byte[] encoded = this.encoded;
+        if(encoded == null) {
+            encoded = HttpHeadersWriter.encode(this.getTarget());
+            this.encoded = encoded;
+        }
+
+        return encoded;
+    }
+
+    public boolean equals(Object other) {
+        if(other instanceof FrozenHeaderMap && this.contentHash() != ((FrozenHeaderMap)other).contentHash()) {
+            return false;
+        } else {
+            return super.equals(other);
+        }
+    }
+
+    public int hashCode() {
+        int hash = this.hash;
+        if(hash == 0 && !this.isEmpty()) {
+            hash = this.getTarget().hashCode();
+            this.hash = hash;
+        }
+
+        return hash;
+    }
+
+    // the case-insensitive hash of HttpHeaders.contentHash(), which agrees with equals()
+    int contentHash() {
+        int contentHash = this.contentHash;
+        if(contentHash == 0 && !this.isEmpty()) {
+            contentHash = HttpHeaders.contentHash(this.getTarget());
+            this.contentHash = contentHash;
+        }
+
+        return contentHash;
+    }
+}
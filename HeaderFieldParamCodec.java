@@ -0,0 +1,136 @@
+package org.springframework.http;
+
+import java.nio.charset.Charset;
+
+// RFC 5987 ext-value encoding and decoding (charset'language'pct-encoded) driven by lookup tables
+final class HeaderFieldParamCodec {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    // RFC 5987, section 3.2.1: attr-char
+    private static final boolean[] ATTR_CHARS = new boolean[128];
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    private HeaderFieldParamCodec() {
+    }
+
+    static String encode(String input, Charset charset) {
+        StringBuilder builder = new StringBuilder(input.length() + (input.length() >> 1) + 16);
+        encode(input, charset, builder);
+        return builder.toString();
+    }
+
+    // appends charset''value; only UTF-8 and ISO-8859-1 are supported
+    static void encode(String input, Charset charset, StringBuilder target) {
+        String charsetName = charset.name();
+        boolean utf8 = charsetName.equals("UTF-8");
+        if(!utf8 && !charsetName.equals("ISO-8859-1")) {
+            throw new IllegalArgumentException("Charset should be UTF-8 or ISO-8859-1");
+        } else {
+            target.append(charsetName).append("\'\'");
+            int length = input.length();
+
+            for(int i = 0; i < length; ++i) {
+                char c = input.charAt(i);
+                if(c < 128) {
+                    appendByte(target, c);
+                } else if(!utf8) {
+                    // unmappable characters, including surrogate pairs, become one '?' as with String.getBytes
+                    if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(input.charAt(i + 1))) {
+                        ++i;
+                    }
+
+                    appendByte(target, c <= 255?c:63);
+                } else if(c < 2048) {
+                    appendByte(target, 192 | c >> 6);
+                    appendByte(target, 128 | c & 63);
+                } else if(!Character.isSurrogate(c)) {
+                    appendByte(target, 224 | c >> 12);
+                    appendByte(target, 128 | c >> 6 & 63);
+                    appendByte(target, 128 | c & 63);
+                } else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(input.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, input.charAt(++i));
+                    appendByte(target, 240 | codePoint >> 18);
+                    appendByte(target, 128 | codePoint >> 12 & 63);
+                    appendByte(target, 128 | codePoint >> 6 & 63);
+                    appendByte(target, 128 | codePoint & 63);
+                } else {
+                    appendByte(target, 63);
+                }
+            }
+
+        }
+    }
+
+    private static void appendByte(StringBuilder target, int b) {
+        if(b < 128 && ATTR_CHARS[b]) {
+            target.append((char)b);
+        } else {
+            target.append('%').append(HEX_DIGITS[b >> 4 & 15]).append(HEX_DIGITS[b & 15]);
+        }
+
+    }
+
+    static String decode(String value) {
+        int charsetEnd = value.indexOf(39);
+        int languageEnd = charsetEnd > 0?value.indexOf(39, charsetEnd + 1):-1;
+        if(languageEnd < 0) {
+            throw new IllegalArgumentException("Invalid RFC 5987 value: " + value);
+        } else {
+            // unsupported names fail with an IllegalArgumentException subclass
+            Charset charset = Charset.forName(value.substring(0, charsetEnd));
+            return decode(value, languageEnd + 1, value.length(), charset);
+        }
+    }
+
+    static String decode(String value, int start, int end, Charset charset) {
+        byte[] bytes = new byte[end - start];
+        int count = 0;
+
+        for(int i = start; i < end; ++i) {
+            char c = value.charAt(i);
+            if(c == 37) {
+                int high = i + 1 < end?hexValue(value.charAt(i + 1)):-1;
+                int low = i + 2 < end?hexValue(value.charAt(i + 2)):-1;
+                if(high < 0 || low < 0) {
+                    throw new IllegalArgumentException("Invalid percent-encoding in RFC 5987 value: " + value);
+                }
+
+                bytes[count++] = (byte)(high << 4 | low);
+                i += 2;
+            } else {
+                if(c >= 128 || !ATTR_CHARS[c]) {
+                    throw new IllegalArgumentException("Invalid character in RFC 5987 value: " + value);
+                }
+
+                bytes[count++] = (byte)c;
+            }
+        }
+
+        return new String(bytes, 0, count, charset);
+    }
+
+    private static int hexValue(char c) {
+        return c < 128?HEX_VALUES[c]:-1;
+    }
+
+    static {
+        for(int c = 48; c <= 57; ++c) {
+            ATTR_CHARS[c] = true;
+        }
+
+        for(int c = 65; c <= 90; ++c) {
+            ATTR_CHARS[c] = true;
+            ATTR_CHARS[c + 32] = true;
+        }
+
+        String marks = "!#$&+-.^_`|~";
+
+        for(int i = 0; i < marks.length(); ++i) {
+            ATTR_CHARS[marks.charAt(i)] = true;
+        }
+
+        for(int c = 0; c < 128; ++c) {
+            HEX_VALUES[c] = (byte)(c >= 48 && c <= 57?c - 48:(c >= 65 && c <= 70?c - 55:(c >= 97 && c <= 102?c - 87:-1)));
+        }
+
+    }
+}
@@ -0,0 +1,117 @@
+package org.springframework.http;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+final class HeaderValueList extends AbstractList<String> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = -4712383530296213367L;
+    // a single value is kept inline, a second value switches to a String[]
+    private Object data;
+    private int size;
+    // modCount counts structural changes only, as in the JDK lists, so that subList()
+    // views survive set(); this also counts set() for parsed header values
+    private transient int version;
+
+    HeaderValueList() {
+    }
+
+    HeaderValueList(String value) {
+        this.data = value;
+        this.size = 1;
+    }
+
+    public String get(int index) {
+        this.checkIndex(index, this.size);
+        return this.size == 1?(String)this.data:((String[])this.data)[index];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public String set(int index, String value) {
+        this.checkIndex(index, this.size);
+        String oldValue;
+        if(this.size == 1) {
+            oldValue = (String)this.data;
+            this.data = value;
+        } else {
+            String[] elements = (String[])this.data;
+            oldValue = elements[index];
+            elements[index] = value;
+        }
+
+        ++this.version;
+        return oldValue;
+    }
+
+    public void add(int index, String value) {
+        this.checkIndex(index, this.size + 1);
+        if(this.size == 0) {
+            this.data = value;
+        } else {
+            String[] elements;
+            if(this.size == 1) {
+                elements = new String[]{(String)this.data, null};
+            } else {
+                elements = (String[])this.data;
+                if(elements.length == this.size) {
+                    elements = (String[])Arrays.copyOf(elements, this.size << 1);
+                }
+            }
+
+            System.arraycopy(elements, index, elements, index + 1, this.size - index);
+            elements[index] = value;
+            this.data = elements;
+        }
+
+        ++this.size;
+        ++this.modCount;
+        ++this.version;
+    }
+
+    public String remove(int index) {
+        this.checkIndex(index, this.size);
+        String oldValue;
+        if(this.size == 1) {
+            oldValue = (String)this.data;
+            this.data = null;
+        } else {
+            String[] elements = (String[])this.data;
+            oldValue = elements[index];
+            System.arraycopy(elements, index + 1, elements, index, this.size - index - 1);
+            elements[this.size - 1] = null;
+            if(this.size == 2) {
+                this.data = elements[0];
+            }
+        }
+
+        --this.size;
+        ++this.modCount;
+        ++this.version;
+        return oldValue;
+    }
+
+    public void clear() {
+        if(this.size > 0) {
+            this.data = null;
+            this.size = 0;
+            ++this.modCount;
+            ++this.version;
+        }
+
+    }
+
+    // counts every change, including set(), so that parsed header values can be validated
+    int version() {
+        return this.version;
+    }
+
+    private void checkIndex(int index, int bound) {
+        if(index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+import org.springframework.util.Assert;
+
+public class HpackDecoder {
+    private final HpackDynamicTable dynamicTable;
+    private int maxTableSize;
+    private byte[] huffmanBuffer = new byte[64];
+
+    public HpackDecoder() {
+        this(HpackEncoder.DEFAULT_MAX_TABLE_SIZE);
+    }
+
+    public HpackDecoder(int maxTableSize) {
+        Assert.isTrue(maxTableSize >= 0, "\'maxTableSize\' must not be negative");
+        this.maxTableSize = maxTableSize;
+        this.dynamicTable = new HpackDynamicTable(maxTableSize);
+    }
+
+    // the limit advertised with SETTINGS_HEADER_TABLE_SIZE; the peer shrinks its table with a size update
+    public void setMaxTableSize(int maxTableSize) {
+        Assert.isTrue(maxTableSize >= 0, "\'maxTableSize\' must not be negative");
+        this.maxTableSize = maxTableSize;
+        if(this.dynamicTable.maxSize() > maxTableSize) {
+            this.dynamicTable.setMaxSize(maxTableSize);
+        }
+
+    }
+
+    public int getMaxTableSize() {
+        return this.maxTableSize;
+    }
+
+    HpackDynamicTable dynamicTable() {
+        return this.dynamicTable;
+    }
+
+    public HttpHeaders decode(ByteBuffer block) {
+        HttpHeaders headers = new HttpHeaders();
+        this.decode(block, headers);
+        return headers;
+    }
+
+    // decodes one complete header block, consuming the remaining bytes of the buffer
+    public void decode(ByteBuffer block, HttpHeaders headers) {
+        Assert.notNull(block, "\'block\' must not be null");
+        Assert.notNull(headers, "\'headers\' must not be null");
+        boolean blockStart = true;
+
+        while(block.hasRemaining()) {
+            int b = block.get(block.position()) & 255;
+            if((b & 128) != 0) {
+                int index = decodeInteger(block, 7);
+                if(index == 0) {
+                    throw new IllegalArgumentException("Invalid HPACK index 0");
+                }
+
+                headers.add(this.name(index), this.value(index));
+            } else if((b & 224) == 32) {
+                if(!blockStart) {
+                    throw new IllegalArgumentException("HPACK dynamic table size update must be at the start of a header block");
+                }
+
+                int maxSize = decodeInteger(block, 5);
+                if(maxSize > this.maxTableSize) {
+                    throw new IllegalArgumentException("HPACK dynamic table size " + maxSize + " exceeds the limit of " + this.maxTableSize);
+                }
+
+                this.dynamicTable.setMaxSize(maxSize);
+                continue;
+            } else {
+                boolean incremental = (b & 192) == 64;
+                int nameIndex = decodeInteger(block, incremental?6:4);
+                String name = nameIndex != 0?this.name(nameIndex):this.decodeName(block);
+                String value = this.decodeString(block);
+                if(incremental) {
+                    this.dynamicTable.add(name, value);
+                }
+
+                headers.add(name, value);
+            }
+
+            blockStart = false;
+        }
+
+    }
+
+    private String name(int index) {
+        if(index <= HpackStaticTable.LENGTH) {
+            return HpackStaticTable.HEADER_NAMES[index];
+        } else if(index - HpackStaticTable.LENGTH <= this.dynamicTable.length()) {
+            return this.dynamicTable.name(index - HpackStaticTable.LENGTH);
+        } else {
+            throw new IllegalArgumentException("Invalid HPACK index " + index);
+        }
+    }
+
+    private String value(int index) {
+        return index <= HpackStaticTable.LENGTH?HpackStaticTable.VALUES[index]:this.dynamicTable.value(index - HpackStaticTable.LENGTH);
+    }
+
+    private String decodeName(ByteBuffer block) {
+        String name = this.decodeString(block);
+        int headerIndex = HttpHeaderNames.indexOf(name);
+        return headerIndex >= 0?HttpHeaderNames.NAMES[headerIndex]:name;
+    }
+
+    private String decodeString(ByteBuffer block) {
+        if(!block.hasRemaining()) {
+            throw new IllegalArgumentException("Truncated HPACK string literal");
+        } else {
+            boolean huffman = (block.get(block.position()) & 128) != 0;
+            int length = decodeInteger(block, 7);
+            if(length > block.remaining()) {
+                throw new IllegalArgumentException("Truncated HPACK string literal");
+            } else if(!huffman) {
+                String value = HttpHeadersParser.decode(block, block.position(), block.position() + length);
+                block.position(block.position() + length);
+                return value;
+            } else {
+                // the shortest Huffman code has 5 bits
+                int capacity = (int)((long)length * 8L / 5L);
+                if(this.huffmanBuffer.length < capacity) {
+                    this.huffmanBuffer = new byte[Math.max(capacity, this.huffmanBuffer.length << 1)];
+                }
+
+                int count = HpackHuffman.decode(block, length, this.huffmanBuffer);
+                return new String(this.huffmanBuffer, 0, count, HttpHeadersParser.ISO_8859_1);
+            }
+        }
+    }
+
+    static int decodeInteger(ByteBuffer block, int prefixBits) {
+        int max = (1 << prefixBits) - 1;
+        int value = block.get() & max;
+        if(value < max) {
+            return value;
+        } else {
+            int shift = 0;
+
+            while(block.hasRemaining()) {
+                int b = block.get();
+                if(shift > 28 || shift == 28 && (b & 127) > 7) {
+                    throw new IllegalArgumentException("HPACK integer overflow");
+                }
+
+                value += (b & 127) << shift;
+                if(value < 0) {
+                    throw new IllegalArgumentException("HPACK integer overflow");
+                }
+
+                if((b & 128) == 0) {
+                    return value;
+                }
+
+                shift += 7;
+            }
+
+            throw new IllegalArgumentException("Truncated HPACK integer");
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.springframework.http;
+
+import java.util.Arrays;
+import org.springframework.util.Assert;
+
+final class HpackDynamicTable {
+    // RFC 7541, section 4.1: name and value octets plus 32 bytes of overhead
+    static final int ENTRY_OVERHEAD = 32;
+    private String[] names = new String[16];
+    private String[] values = new String[16];
+    private int head;
+    private int length;
+    private int size;
+    private int maxSize;
+    // While marked, the entries present at mark() that were evicted since, oldest first.
+    // Eviction is first-in first-out, so later entries only go once all of those have.
+    private int markLength = -1;
+    private int markMaxSize;
+    private String[] evictedNames;
+    private String[] evictedValues;
+    private int evictedCount;
+
+    HpackDynamicTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    int length() {
+        return this.length;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    int maxSize() {
+        return this.maxSize;
+    }
+
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        this.evict(0);
+    }
+
+    // index 1 is the most recently added entry
+    String name(int index) {
+        return this.names[this.slot(index)];
+    }
+
+    String value(int index) {
+        return this.values[this.slot(index)];
+    }
+
+    void add(String name, String value) {
+        int entrySize = entrySize(name, value);
+        if(entrySize > this.maxSize) {
+            // RFC 7541, section 4.4: an entry larger than the table empties it
+            this.evict(this.maxSize);
+        } else {
+            this.evict(entrySize);
+            if(this.length == this.names.length) {
+                this.grow();
+            }
+
+            this.head = (this.head + 1) % this.names.length;
+            this.names[this.head] = name;
+            this.values[this.head] = value;
+            ++this.length;
+            this.size += entrySize;
+        }
+    }
+
+    int indexOf(String name, String value) {
+        for(int i = 1; i <= this.length; ++i) {
+            int slot = this.slot(i);
+            if(this.names[slot].equals(name) && this.values[slot].equals(value)) {
+                return i;
+            }
+        }
+
+        return 0;
+    }
+
+    int indexOfName(String name) {
+        for(int i = 1; i <= this.length; ++i) {
+            if(this.names[this.slot(i)].equals(name)) {
+                return i;
+            }
+        }
+
+        return 0;
+    }
+
+    // Starts recording what rollback() needs to undo the changes made from here on.
+    void mark() {
+        this.markLength = this.length;
+        this.markMaxSize = this.maxSize;
+        this.evictedCount = 0;
+    }
+
+    void unmark() {
+        if(this.evictedCount > 0) {
+            Arrays.fill(this.evictedNames, 0, this.evictedCount, (Object)null);
+            Arrays.fill(this.evictedValues, 0, this.evictedCount, (Object)null);
+            this.evictedCount = 0;
+        }
+
+        this.markLength = -1;
+    }
+
+    // Restores the entries and maximum size of the last mark() and unmarks the table.
+    void rollback() {
+        Assert.state(this.markLength >= 0, "HPACK dynamic table is not marked");
+        String[] newNames = new String[this.names.length];
+        String[] newValues = new String[this.values.length];
+        if(this.evictedCount > 0) {
+            System.arraycopy(this.evictedNames, 0, newNames, 0, this.evictedCount);
+            System.arraycopy(this.evictedValues, 0, newValues, 0, this.evictedCount);
+        }
+
+        int survivors = this.markLength - this.evictedCount;
+
+        for(int i = 0; i < survivors; ++i) {
+            int slot = this.slot(this.length - i);
+            newNames[this.evictedCount + i] = this.names[slot];
+            newValues[this.evictedCount + i] = this.values[slot];
+        }
+
+        int newSize = 0;
+
+        for(int i = 0; i < this.markLength; ++i) {
+            newSize += entrySize(newNames[i], newValues[i]);
+        }
+
+        this.names = newNames;
+        this.values = newValues;
+        this.length = this.markLength;
+        this.head = this.markLength - 1;
+        this.size = newSize;
+        this.maxSize = this.markMaxSize;
+        this.unmark();
+    }
+
+    static int entrySize(String name, String value) {
+        return name.length() + value.length() + ENTRY_OVERHEAD;
+    }
+
+    private int slot(int index) {
+        if(index >= 1 && index <= this.length) {
+            int slot = this.head - index + 1;
+            return slot < 0?slot + this.names.length:slot;
+        } else {
+            throw new IllegalArgumentException("Invalid HPACK dynamic table index: " + index);
+        }
+    }
+
+    private void evict(int required) {
+        while(this.length > 0 && this.size + required > this.maxSize) {
+            int slot = this.slot(this.length);
+            if(this.evictedCount < this.markLength) {
+                this.recordEviction(this.names[slot], this.values[slot]);
+            }
+
+            this.size -= entrySize(this.names[slot], this.values[slot]);
+            this.names[slot] = null;
+            this.values[slot] = null;
+            --this.length;
+        }
+
+    }
+
+    private void recordEviction(String name, String value) {
+        if(this.evictedCount == 0 && (this.evictedNames == null || this.evictedNames.length < this.markLength)) {
+            this.evictedNames = new String[this.markLength];
+            this.evictedValues = new String[this.markLength];
+        }
+
+        this.evictedNames[this.evictedCount] = name;
+        this.evictedValues[this.evictedCount] = value;
+        ++this.evictedCount;
+    }
+
+    private void grow() {
+        String[] newNames = new String[this.names.length << 1];
+        String[] newValues = new String[this.values.length << 1];
+
+        for(int i = this.length; i >= 1; --i) {
+            int slot = this.slot(i);
+            newNames[this.length - i] = this.names[slot];
+            newValues[this.length - i] = this.values[slot];
+        }
+
+        this.names = newNames;
+        this.values = newValues;
+        this.head = this.length - 1;
+    }
+}
@@ -0,0 +1,217 @@
+package org.springframework.http;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import org.springframework.util.Assert;
+
+public class HpackEncoder {
+    public static final int DEFAULT_MAX_TABLE_SIZE = 4096;
+    public static final IndexingPolicy DEFAULT_INDEXING_POLICY = new IndexingPolicy() {
+        public Indexing getIndexing(String name, String value) {
+            return name.equals("authorization") || name.equals("cookie") || name.equals("set-cookie")?Indexing.NEVER_INDEXED:Indexing.INCREMENTAL;
+        }
+    };
+    private final HpackDynamicTable dynamicTable;
+    private IndexingPolicy indexingPolicy = DEFAULT_INDEXING_POLICY;
+    private boolean huffmanEnabled = true;
+    private int pendingMinTableSize = -1;
+    private int pendingTableSize = -1;
+
+    public HpackEncoder() {
+        this(DEFAULT_MAX_TABLE_SIZE);
+    }
+
+    public HpackEncoder(int maxTableSize) {
+        Assert.isTrue(maxTableSize >= 0, "\'maxTableSize\' must not be negative");
+        this.dynamicTable = new HpackDynamicTable(maxTableSize);
+    }
+
+    HpackDynamicTable dynamicTable() {
+        return this.dynamicTable;
+    }
+
+    public void setIndexingPolicy(IndexingPolicy indexingPolicy) {
+        Assert.notNull(indexingPolicy, "\'indexingPolicy\' must not be null");
+        this.indexingPolicy = indexingPolicy;
+    }
+
+    public void setHuffmanEnabled(boolean huffmanEnabled) {
+        this.huffmanEnabled = huffmanEnabled;
+    }
+
+    // signalled with a dynamic table size update at the start of the next header block
+    public void setMaxTableSize(int maxTableSize) {
+        Assert.isTrue(maxTableSize >= 0, "\'maxTableSize\' must not be negative");
+        this.pendingMinTableSize = this.pendingMinTableSize < 0?maxTableSize:Math.min(this.pendingMinTableSize, maxTableSize);
+        this.pendingTableSize = maxTableSize;
+    }
+
+    // Encodes one header block. If it does not fit, a BufferOverflowException leaves the
+    // buffer position, the dynamic table and a pending table size update as they were,
+    // so the same block can be encoded again into a larger buffer.
+    public void encode(HttpHeaders headers, ByteBuffer buffer) {
+        Assert.notNull(headers, "\'headers\' must not be null");
+        Assert.notNull(buffer, "\'buffer\' must not be null");
+        int position = buffer.position();
+        int pendingMinTableSize = this.pendingMinTableSize;
+        int pendingTableSize = this.pendingTableSize;
+        boolean encoded = false;
+        this.dynamicTable.mark();
+
+        try {
+            this.encodeHeaderBlock(headers, buffer);
+            encoded = true;
+        } finally {
+            if(encoded) {
+                this.dynamicTable.unmark();
+            } else {
+                buffer.position(position);
+                this.dynamicTable.rollback();
+                this.pendingMinTableSize = pendingMinTableSize;
+                this.pendingTableSize = pendingTableSize;
+            }
+
+        }
+
+    }
+
+    private void encodeHeaderBlock(HttpHeaders headers, ByteBuffer buffer) {
+        if(this.pendingTableSize >= 0) {
+            if(this.pendingMinTableSize < this.pendingTableSize) {
+                encodeInteger(buffer, 32, 5, this.pendingMinTableSize);
+            }
+
+            encodeInteger(buffer, 32, 5, this.pendingTableSize);
+            this.dynamicTable.setMaxSize(this.pendingTableSize);
+            this.pendingMinTableSize = -1;
+            this.pendingTableSize = -1;
+        }
+
+        Iterator var3 = headers.getHeaderMap().entrySet().iterator();
+
+        while(var3.hasNext()) {
+            Entry entry = (Entry)var3.next();
+            List values = (List)entry.getValue();
+            if(values != null) {
+                String name = (String)entry.getKey();
+                int headerIndex = HttpHeaderNames.indexOf(name);
+                String wireName;
+                int staticNameIndex;
+                if(headerIndex >= 0) {
+                    wireName = HpackStaticTable.WIRE_NAMES_BY_HEADER[headerIndex];
+                    staticNameIndex = HpackStaticTable.INDEX_BY_HEADER[headerIndex];
+                } else {
+                    wireName = toLowerCase(name);
+                    staticNameIndex = HpackStaticTable.indexOfName(wireName);
+                }
+
+                for(int i = 0; i < values.size(); ++i) {
+                    String value = (String)values.get(i);
+                    if(value != null) {
+                        this.encodeField(buffer, wireName, staticNameIndex, value);
+                    }
+                }
+            }
+        }
+
+    }
+
+    private void encodeField(ByteBuffer buffer, String name, int staticNameIndex, String value) {
+        Indexing indexing = this.indexingPolicy.getIndexing(name, value);
+        if(indexing != Indexing.NEVER_INDEXED) {
+            int index = HpackStaticTable.indexOf(staticNameIndex, value);
+            if(index == 0) {
+                index = this.dynamicTable.indexOf(name, value);
+                if(index != 0) {
+                    index += HpackStaticTable.LENGTH;
+                }
+            }
+
+            if(index != 0) {
+                encodeInteger(buffer, 128, 7, index);
+                return;
+            }
+        }
+
+        int nameIndex = staticNameIndex;
+        if(staticNameIndex == 0) {
+            nameIndex = this.dynamicTable.indexOfName(name);
+            if(nameIndex != 0) {
+                nameIndex += HpackStaticTable.LENGTH;
+            }
+        }
+
+        if(indexing == Indexing.INCREMENTAL) {
+            encodeInteger(buffer, 64, 6, nameIndex);
+        } else {
+            encodeInteger(buffer, indexing == Indexing.NEVER_INDEXED?16:0, 4, nameIndex);
+        }
+
+        if(nameIndex == 0) {
+            this.encodeString(buffer, name);
+        }
+
+        this.encodeString(buffer, value);
+        if(indexing == Indexing.INCREMENTAL) {
+            this.dynamicTable.add(name, value);
+        }
+
+    }
+
+    private void encodeString(ByteBuffer buffer, String value) {
+        int huffmanLength = this.huffmanEnabled?HpackHuffman.encodedLength(value):Integer.MAX_VALUE;
+        if(huffmanLength <= value.length()) {
+            encodeInteger(buffer, 128, 7, huffmanLength);
+            HpackHuffman.encode(buffer, value);
+        } else {
+            encodeInteger(buffer, 0, 7, value.length());
+            if(buffer.remaining() < value.length()) {
+                throw new BufferOverflowException();
+            }
+
+            HttpHeadersWriter.putChars(buffer, value, 0);
+        }
+
+    }
+
+    static void encodeInteger(ByteBuffer buffer, int mask, int prefixBits, int value) {
+        int max = (1 << prefixBits) - 1;
+        if(value < max) {
+            buffer.put((byte)(mask | value));
+        } else {
+            buffer.put((byte)(mask | max));
+
+            for(value -= max; value >= 128; value >>>= 7) {
+                buffer.put((byte)(value & 127 | 128));
+            }
+
+            buffer.put((byte)value);
+        }
+
+    }
+
+    private static String toLowerCase(String name) {
+        for(int i = 0; i < name.length(); ++i) {
+            char c = name.charAt(i);
+            if(c >= 65 && c <= 90) {
+                return name.toLowerCase(Locale.ENGLISH);
+            }
+        }
+
+        return name;
+    }
+
+    public interface IndexingPolicy {
+        Indexing getIndexing(String name, String value);
+    }
+
+    public static enum Indexing {
+        INCREMENTAL,
+        WITHOUT_INDEXING,
+        NEVER_INDEXED;
+    }
+}
@@ -0,0 +1,63 @@
+package org.springframework.http;
+
+import java.util.Locale;
+
+final class HpackStaticTable {
+    // RFC 7541, Appendix A; index 0 is unused
+    static final String[] NAMES = new String[]{null, ":authority", ":method", ":method", ":path", ":path", ":scheme", ":scheme", ":status", ":status", ":status", ":status", ":status", ":status", ":status", "accept-charset", "accept-encoding", "accept-language", "accept-ranges", "accept", "access-control-allow-origin", "age", "allow", "authorization", "cache-control", "content-disposition", "content-encoding", "content-language", "content-length", "content-location", "content-range", "content-type", "cookie", "date", "etag", "expect", "expires", "from", "host", "if-match", "if-modified-since", "if-none-match", "if-range", "if-unmodified-since", "last-modified", "link", "location", "max-forwards", "proxy-authenticate", "proxy-authorization", "range", "referer", "refresh", "retry-after", "server", "set-cookie", "strict-transport-security", "transfer-encoding", "user-agent", "vary", "via", "www-authenticate"};
+    static final String[] VALUES = new String[]{null, "", "GET", "POST", "/", "/index.html", "http", "https", "200", "204", "206", "304", "400", "404", "500", "", "gzip, deflate", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", "", ""};
+    static final int LENGTH = NAMES.length - 1;
+    // the name as it is added to HttpHeaders: the HttpHeaders constant where there is one
+    static final String[] HEADER_NAMES = new String[NAMES.length];
+    // lowercase wire name and static table index for each HttpHeaderNames entry (0 if absent)
+    static final String[] WIRE_NAMES_BY_HEADER = new String[HttpHeaderNames.COUNT];
+    static final int[] INDEX_BY_HEADER = new int[HttpHeaderNames.COUNT];
+
+    private HpackStaticTable() {
+    }
+
+    static int indexOfName(String name) {
+        int headerIndex = HttpHeaderNames.indexOf(name);
+        if(headerIndex >= 0) {
+            return INDEX_BY_HEADER[headerIndex];
+        } else {
+            for(int i = 1; i <= 7; ++i) {
+                if(NAMES[i].equals(name)) {
+                    return i;
+                }
+            }
+
+            return name.equals(":status")?8:(name.equals("refresh")?52:(name.equals("strict-transport-security")?56:0));
+        }
+    }
+
+    // entries of one name are adjacent, so only the run starting at nameIndex has to be checked
+    static int indexOf(int nameIndex, String value) {
+        if(nameIndex > 0) {
+            String name = NAMES[nameIndex];
+
+            for(int i = nameIndex; i <= LENGTH && NAMES[i].equals(name); ++i) {
+                if(VALUES[i].equals(value)) {
+                    return i;
+                }
+            }
+        }
+
+        return 0;
+    }
+
+    static {
+        for(int i = 1; i < NAMES.length; ++i) {
+            int headerIndex = HttpHeaderNames.indexOf(NAMES[i]);
+            HEADER_NAMES[i] = headerIndex >= 0?HttpHeaderNames.NAMES[headerIndex]:NAMES[i];
+            if(headerIndex >= 0 && INDEX_BY_HEADER[headerIndex] == 0) {
+                INDEX_BY_HEADER[headerIndex] = i;
+            }
+        }
+
+        for(int i = 0; i < HttpHeaderNames.COUNT; ++i) {
+            WIRE_NAMES_BY_HEADER[i] = HttpHeaderNames.NAMES[i].toLowerCase(Locale.ENGLISH);
+        }
+
+    }
+}
@@ -0,0 +1,289 @@
+package org.springframework.http;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+final class HttpDateFormatter {
+    static final String[] DATE_FORMATS = new String[]{"EEE, dd MMM yyyy HH:mm:ss zzz", "EEE, dd-MMM-yy HH:mm:ss zzz", "EEE MMM dd HH:mm:ss yyyy"};
+    private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+    private static final String[] DAYS = new String[]{"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+    private static final String[] LONG_DAYS = new String[]{"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"};
+    private static final String[] MONTHS = new String[]{"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final int MIN_FAST_YEAR = 1601;
+    private static final int MAX_FAST_YEAR = 9999;
+    private static final int PARSE_CACHE_SIZE = 64;
+    private static volatile FormattedDate lastFormatted;
+    private static final ParsedDate[] parseCache = new ParsedDate[PARSE_CACHE_SIZE];
+
+    private HttpDateFormatter() {
+    }
+
+    static String format(long date) {
+        long epochSecond = floorDiv(date, 1000L);
+        FormattedDate cached = lastFormatted;
+        if(cached != null && cached.epochSecond == epochSecond) {
+            return cached.value;
+        } else {
+            String value = formatRfc1123(epochSecond);
+            if(value == null) {
+                SimpleDateFormat dateFormat = newDateFormat(DATE_FORMATS[0]);
+                value = dateFormat.format(new Date(date));
+            }
+
+            lastFormatted = new FormattedDate(epochSecond, value);
+            return value;
+        }
+    }
+
+    static long parse(String value) {
+        int slot = value.hashCode() & PARSE_CACHE_SIZE - 1;
+        ParsedDate cached = parseCache[slot];
+        if(cached != null && cached.value.equals(value)) {
+            return cached.time;
+        } else {
+            long time = parseFast(value);
+            if(time == -1L) {
+                return parseFallback(value);
+            } else {
+                // IMF-fixdate only: two-digit RFC 850 years move with the current date, and
+                // the obsolete formats are too rare to be worth a slot
+                if(value.charAt(3) == 44) {
+                    parseCache[slot] = new ParsedDate(value, time);
+                }
+
+                return time;
+            }
+        }
+    }
+
+    private static String formatRfc1123(long epochSecond) {
+        long epochDay = floorDiv(epochSecond, 86400L);
+        int secondOfDay = (int)(epochSecond - epochDay * 86400L);
+        long yearMonthDay = civilFromDays(epochDay);
+        int year = (int)(yearMonthDay >> 16);
+        if(year >= MIN_FAST_YEAR && year <= MAX_FAST_YEAR) {
+            int month = (int)(yearMonthDay >> 8 & 255L);
+            int day = (int)(yearMonthDay & 255L);
+            String dayOfWeek = DAYS[(int)floorMod(epochDay + 3L, 7L)];
+            String monthName = MONTHS[month - 1];
+            char[] chars = new char[29];
+            chars[0] = dayOfWeek.charAt(0);
+            chars[1] = dayOfWeek.charAt(1);
+            chars[2] = dayOfWeek.charAt(2);
+            chars[3] = 44;
+            chars[4] = 32;
+            writeTwoDigits(chars, 5, day);
+            chars[7] = 32;
+            chars[8] = monthName.charAt(0);
+            chars[9] = monthName.charAt(1);
+            chars[10] = monthName.charAt(2);
+            chars[11] = 32;
+            writeTwoDigits(chars, 12, year / 100);
+            writeTwoDigits(chars, 14, year % 100);
+            chars[16] = 32;
+            writeTwoDigits(chars, 17, secondOfDay / 3600);
+            chars[19] = 58;
+            writeTwoDigits(chars, 20, secondOfDay / 60 % 60);
+            chars[22] = 58;
+            writeTwoDigits(chars, 23, secondOfDay % 60);
+            chars[25] = 32;
+            chars[26] = 71;
+            chars[27] = 77;
+            chars[28] = 84;
+            return new String(chars);
+        } else {
+            return null;
+        }
+    }
+
+    // Only accepts the canonical spelling of each format; anything else (other zones,
+    // lenient out-of-range fields, trailing text, mismatching weekday) is left to
+    // SimpleDateFormat so that results stay identical to DATE_FORMATS.
+    private static long parseFast(String value) {
+        int length = value.length();
+        if(length < 24) {
+            return -1L;
+        } else if(value.charAt(3) == 44) {
+            return length == 29 && value.charAt(4) == 32 && value.charAt(7) == 32 && value.charAt(11) == 32 && value.charAt(16) == 32 && value.charAt(25) == 32 && value.regionMatches(26, "GMT", 0, 3)?toEpochMillis(dayOfWeek(value, 0, 3), parseNumber(value, 12, 4), month(value, 8), parseNumber(value, 5, 2), value, 17):-1L;
+        } else if(value.charAt(3) == 32) {
+            if(length == 24 && value.charAt(7) == 32 && value.charAt(10) == 32 && value.charAt(19) == 32) {
+                int day = value.charAt(8) == 32?parseNumber(value, 9, 1):parseNumber(value, 8, 2);
+                return toEpochMillis(dayOfWeek(value, 0, 3), parseNumber(value, 20, 4), month(value, 4), day, value, 11);
+            } else {
+                return -1L;
+            }
+        } else {
+            int comma = value.indexOf(44);
+            if(comma >= 6 && comma <= 9 && length == comma + 24) {
+                int start = comma + 2;
+                if(value.charAt(comma + 1) == 32 && value.charAt(start + 2) == 45 && value.charAt(start + 6) == 45 && value.charAt(start + 9) == 32 && value.charAt(start + 18) == 32 && value.regionMatches(start + 19, "GMT", 0, 3)) {
+                    int year = resolveTwoDigitYear(parseNumber(value, start + 7, 2));
+                    return toEpochMillis(dayOfWeek(value, 0, comma), year, month(value, start + 3), parseNumber(value, start, 2), value, start + 10);
+                } else {
+                    return -1L;
+                }
+            } else {
+                return -1L;
+            }
+        }
+    }
+
+    private static long toEpochMillis(int dayOfWeek, int year, int month, int day, String value, int timeOffset) {
+        if(dayOfWeek >= 0 && month >= 1 && year >= MIN_FAST_YEAR && year <= MAX_FAST_YEAR && day >= 1 && day <= daysInMonth(year, month) && value.charAt(timeOffset + 2) == 58 && value.charAt(timeOffset + 5) == 58) {
+            int hour = parseNumber(value, timeOffset, 2);
+            int minute = parseNumber(value, timeOffset + 3, 2);
+            int second = parseNumber(value, timeOffset + 6, 2);
+            if(hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0 && second <= 59) {
+                long epochDay = daysFromCivil(year, month, day);
+                return floorMod(epochDay + 3L, 7L) != (long)dayOfWeek?-1L:((epochDay * 24L + (long)hour) * 60L + (long)minute) * 60000L + (long)second * 1000L;
+            } else {
+                return -1L;
+            }
+        } else {
+            return -1L;
+        }
+    }
+
+    private static long parseFallback(String value) {
+        if(value.length() >= 3) {
+            for(int i = 0; i < DATE_FORMATS.length; ++i) {
+                SimpleDateFormat dateFormat = newDateFormat(DATE_FORMATS[i]);
+                Date date = dateFormat.parse(value, new ParsePosition(0));
+                if(date != null) {
+                    return date.getTime();
+                }
+            }
+        }
+
+        return -1L;
+    }
+
+    // Mirrors SimpleDateFormat's default century (80 years back, 20 years ahead);
+    // years close to the pivot are left to the fallback since they depend on the exact instant.
+    private static int resolveTwoDigitYear(int twoDigitYear) {
+        if(twoDigitYear < 0) {
+            return -1;
+        } else {
+            long yearMonthDay = civilFromDays(floorDiv(System.currentTimeMillis(), 86400000L));
+            int startYear = (int)(yearMonthDay >> 16) - 80;
+            int pivot = startYear % 100;
+            int distance = Math.abs(twoDigitYear - pivot);
+            if(distance > 1 && distance < 99) {
+                return startYear / 100 * 100 + twoDigitYear + (twoDigitYear < pivot?100:0);
+            } else {
+                return -1;
+            }
+        }
+    }
+
+    private static int dayOfWeek(String value, int offset, int length) {
+        String[] names = length == 3?DAYS:LONG_DAYS;
+
+        for(int i = 0; i < names.length; ++i) {
+            String name = names[i];
+            if(name.length() == length && value.regionMatches(offset, name, 0, length)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int month(String value, int offset) {
+        for(int i = 0; i < MONTHS.length; ++i) {
+            if(value.regionMatches(offset, MONTHS[i], 0, 3)) {
+                return i + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int parseNumber(String value, int offset, int length) {
+        int result = 0;
+
+        for(int i = offset; i < offset + length; ++i) {
+            int digit = value.charAt(i) - 48;
+            if(digit < 0 || digit > 9) {
+                return -1;
+            }
+
+            result = result * 10 + digit;
+        }
+
+        return result;
+    }
+
+    private static void writeTwoDigits(char[] chars, int offset, int value) {
+        chars[offset] = (char)(48 + value / 10);
+        chars[offset + 1] = (char)(48 + value % 10);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if(month == 2) {
+            return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)?29:28;
+        } else {
+            return month != 4 && month != 6 && month != 9 && month != 11?31:30;
+        }
+    }
+
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2?(long)(year - 1):(long)year;
+        long era = floorDiv(y, 400L);
+        long yearOfEra = y - era * 400L;
+        long dayOfYear = (long)((153 * (month > 2?month - 3:month + 9) + 2) / 5 + day - 1);
+        long dayOfEra = yearOfEra * 365L + yearOfEra / 4L - yearOfEra / 100L + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
+    }
+
+    private static long civilFromDays(long epochDay) {
+        long z = epochDay + 719468L;
+        long era = floorDiv(z, 146097L);
+        long dayOfEra = z - era * 146097L;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460L + dayOfEra / 36524L - dayOfEra / 146096L) / 365L;
+        long dayOfYear = dayOfEra - (365L * yearOfEra + yearOfEra / 4L - yearOfEra / 100L);
+        long mp = (5L * dayOfYear + 2L) / 153L;
+        long day = dayOfYear - (153L * mp + 2L) / 5L + 1L;
+        long month = mp < 10L?mp + 3L:mp - 9L;
+        long year = yearOfEra + era * 400L + (month <= 2L?1L:0L);
+        return year << 16 | month << 8 | day;
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x ^ y) < 0L && q * y != x?q - 1L:q;
+    }
+
+    private static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+
+    private static SimpleDateFormat newDateFormat(String pattern) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(pattern, Locale.US);
+        dateFormat.setTimeZone(GMT);
+        return dateFormat;
+    }
+
+    private static final class FormattedDate {
+        final long epochSecond;
+        final String value;
+
+        FormattedDate(long epochSecond, String value) {
+            this.epochSecond = epochSecond;
+            this.value = value;
+        }
+    }
+
+    private static final class ParsedDate {
+        final String value;
+        final long time;
+
+        ParsedDate(String value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
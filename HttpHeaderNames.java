@@ -0,0 +1,213 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+final class HttpHeaderNames {
+    static final String[] NAMES = new String[]{HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_CHARSET, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.ACCEPT_RANGES, HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, HttpHeaders.ACCESS_CONTROL_MAX_AGE, HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, HttpHeaders.AGE, HttpHeaders.ALLOW, HttpHeaders.AUTHORIZATION, HttpHeaders.CACHE_CONTROL, HttpHeaders.CONNECTION, HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_DISPOSITION, HttpHeaders.CONTENT_LANGUAGE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_LOCATION, HttpHeaders.CONTENT_RANGE, HttpHeaders.CONTENT_TYPE, HttpHeaders.COOKIE, HttpHeaders.DATE, HttpHeaders.ETAG, HttpHeaders.EXPECT, HttpHeaders.EXPIRES, HttpHeaders.FROM, HttpHeaders.HOST, HttpHeaders.IF_MATCH, HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_RANGE, HttpHeaders.IF_UNMODIFIED_SINCE, HttpHeaders.LAST_MODIFIED, HttpHeaders.LINK, HttpHeaders.LOCATION, HttpHeaders.MAX_FORWARDS, HttpHeaders.ORIGIN, HttpHeaders.PRAGMA, HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.PROXY_AUTHORIZATION, HttpHeaders.RANGE, HttpHeaders.REFERER, HttpHeaders.RETRY_AFTER, HttpHeaders.SERVER, HttpHeaders.SET_COOKIE, HttpHeaders.SET_COOKIE2, HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.UPGRADE, HttpHeaders.USER_AGENT, HttpHeaders.VARY, HttpHeaders.VIA, HttpHeaders.WARNING, HttpHeaders.WWW_AUTHENTICATE};
+    static final int COUNT;
+    static final byte[][] NAME_BYTES;
+    private static final int MAX_LENGTH;
+    private static final short[] FIRST_BY_LENGTH_AND_LETTER;
+    private static final short[] NEXT;
+    private static final long SEED_0;
+    private static final long SEED_1;
+
+    private HttpHeaderNames() {
+    }
+
+    static int indexOf(CharSequence name) {
+        int length = name.length();
+        if(length != 0 && length <= MAX_LENGTH) {
+            int letter = (name.charAt(0) | 32) - 97;
+            if(letter >= 0 && letter < 26) {
+                for(int index = FIRST_BY_LENGTH_AND_LETTER[length * 26 + letter]; index >= 0; index = NEXT[index]) {
+                    if(equalsIgnoreCase(NAMES[index], name)) {
+                        return index;
+                    }
+                }
+            }
+
+            return -1;
+        } else {
+            return -1;
+        }
+    }
+
+    // String.hashCode() of the name in lower case, as the custom-name map compares names
+    static int hashIgnoreCase(String name) {
+        int hash = 0;
+
+        for(int i = 0; i < name.length(); ++i) {
+            char c = name.charAt(i);
+            if(c >= 65 && c <= 90) {
+                c = (char)(c + 32);
+            } else if(c >= 128) {
+                c = Character.toLowerCase(c);
+            }
+
+            hash = 31 * hash + c;
+        }
+
+        return hash;
+    }
+
+    // SipHash-1-3 over the UTF-16 units of the name folded to lower case, keyed with a
+    // random per-JVM key, so that names colliding in a custom-name table cannot be crafted
+    static int seededHashIgnoreCase(String name) {
+        return seededHash(name, (byte[])null, 0, name.length());
+    }
+
+    // the same for ISO-8859-1 bytes
+    static int seededHashIgnoreCase(byte[] bytes, int start, int end) {
+        return seededHash((String)null, bytes, start, end - start);
+    }
+
+    private static int seededHash(String name, byte[] bytes, int start, int length) {
+        long v0 = SEED_0 ^ 8317987319222330741L;
+        long v1 = SEED_1 ^ 7237128888997146477L;
+        long v2 = SEED_0 ^ 7816392313619706465L;
+        long v3 = SEED_1 ^ 8387220255154660723L;
+        // four units per word, the last word holds the rest and the length
+        int words = (length >> 2) + 1;
+
+        for(int w = 0; w < words + 3; ++w) {
+            long m;
+            if(w < words) {
+                m = name != null?word(name, w << 2, length):word(bytes, start, w << 2, length);
+            } else {
+                m = 0L;
+                if(w == words) {
+                    v2 ^= 255L;
+                }
+            }
+
+            v3 ^= m;
+            v0 += v1;
+            v1 = Long.rotateLeft(v1, 13) ^ v0;
+            v0 = Long.rotateLeft(v0, 32);
+            v2 += v3;
+            v3 = Long.rotateLeft(v3, 16) ^ v2;
+            v0 += v3;
+            v3 = Long.rotateLeft(v3, 21) ^ v0;
+            v2 += v1;
+            v1 = Long.rotateLeft(v1, 17) ^ v2;
+            v2 = Long.rotateLeft(v2, 32);
+            v0 ^= m;
+        }
+
+        long hash = v0 ^ v1 ^ v2 ^ v3;
+        return (int)(hash ^ hash >>> 32);
+    }
+
+    private static long word(String name, int offset, int length) {
+        if(offset + 4 <= length) {
+            return (long)fold(name.charAt(offset)) | (long)fold(name.charAt(offset + 1)) << 16 | (long)fold(name.charAt(offset + 2)) << 32 | (long)fold(name.charAt(offset + 3)) << 48;
+        } else {
+            long m = (long)(length & 65535) << 48;
+
+            for(int i = offset; i < length; ++i) {
+                m |= (long)fold(name.charAt(i)) << (i - offset << 4);
+            }
+
+            return m;
+        }
+    }
+
+    private static long word(byte[] bytes, int start, int offset, int length) {
+        int i = start + offset;
+        if(offset + 4 <= length) {
+            return (long)fold(bytes[i] & 255) | (long)fold(bytes[i + 1] & 255) << 16 | (long)fold(bytes[i + 2] & 255) << 32 | (long)fold(bytes[i + 3] & 255) << 48;
+        } else {
+            long m = (long)(length & 65535) << 48;
+
+            for(int j = offset; j < length; ++j) {
+                m |= (long)fold(bytes[start + j] & 255) << (j - offset << 4);
+            }
+
+            return m;
+        }
+    }
+
+    // as String.equalsIgnoreCase() compares characters
+    private static int fold(int c) {
+        return c < 128?(c >= 65 && c <= 90?c + 32:c):Character.toLowerCase(Character.toUpperCase((char)c));
+    }
+
+    static int indexOf(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if(length > 0 && length <= MAX_LENGTH) {
+            int letter = (buffer.get(start) | 32) - 97;
+            if(letter >= 0 && letter < 26) {
+                for(int index = FIRST_BY_LENGTH_AND_LETTER[length * 26 + letter]; index >= 0; index = NEXT[index]) {
+                    if(equalsIgnoreCase(NAMES[index], buffer, start)) {
+                        return index;
+                    }
+                }
+            }
+
+            return -1;
+        } else {
+            return -1;
+        }
+    }
+
+    // ASCII-only comparison; header names are tokens, anything else is left to the custom-name map.
+    private static boolean equalsIgnoreCase(String candidate, CharSequence name) {
+        for(int i = 1; i < candidate.length(); ++i) {
+            char expected = candidate.charAt(i);
+            char actual = name.charAt(i);
+            if(expected != actual) {
+                int lower = expected | 32;
+                if(lower < 97 || lower > 122 || lower != (actual | 32)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(String candidate, ByteBuffer buffer, int start) {
+        for(int i = 1; i < candidate.length(); ++i) {
+            int expected = candidate.charAt(i);
+            int actual = buffer.get(start + i) & 255;
+            if(expected != actual) {
+                int lower = expected | 32;
+                if(lower < 97 || lower > 122 || lower != (actual | 32)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    static {
+        COUNT = NAMES.length;
+        NAME_BYTES = new byte[COUNT][];
+        int maxLength = 0;
+
+        for(int i = 0; i < COUNT; ++i) {
+            maxLength = Math.max(maxLength, NAMES[i].length());
+            NAME_BYTES[i] = NAMES[i].getBytes(HttpHeadersParser.ISO_8859_1);
+        }
+
+        MAX_LENGTH = maxLength;
+        FIRST_BY_LENGTH_AND_LETTER = new short[(MAX_LENGTH + 1) * 26];
+        NEXT = new short[COUNT];
+        Arrays.fill(FIRST_BY_LENGTH_AND_LETTER, (short)-1);
+
+        for(int i = COUNT - 1; i >= 0; --i) {
+            int bucket = NAMES[i].length() * 26 + (NAMES[i].charAt(0) | 32) - 97;
+            NEXT[i] = FIRST_BY_LENGTH_AND_LETTER[bucket];
+            FIRST_BY_LENGTH_AND_LETTER[bucket] = (short)i;
+        }
+
+        SecureRandom random = new SecureRandom();
+        SEED_0 = random.nextLong();
+        SEED_1 = random.nextLong();
+
+    }
+}
@@ -0,0 +1,5 @@
+package org.springframework.http;
+
+public interface HttpHeaderTokenVisitor {
+    boolean visitToken(String value, int start, int end);
+}
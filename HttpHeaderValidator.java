@@ -0,0 +1,150 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+
+// Field name and value syntax checks (RFC 7230, section 3.2). Values are checked eight
+// characters at a time with SWAR arithmetic on a long: one test tells whether a word
+// holds a control character, DEL or (unless allowed) obs-text, and only such words,
+// typically those with an HTAB, are looked at character by character.
+final class HttpHeaderValidator {
+    // RFC 7230, section 3.2.6: tchar
+    static final boolean[] TCHAR = new boolean[256];
+    private static final long ONES = 72340172838076673L;
+    private static final long HIGH_BITS = -9187201950435737472L;
+    private static final long SPACES = ONES * 32L;
+    private static final long DELS = ONES * 127L;
+
+    private HttpHeaderValidator() {
+    }
+
+    static void validateName(String name) {
+        int index = invalidNameIndex(name);
+        if(index >= 0) {
+            throw new IllegalArgumentException(index == name.length()?"Empty header name":"Invalid character 0x" + Integer.toHexString(name.charAt(index)) + " at index " + index + " in header name \'" + name + "\'");
+        }
+    }
+
+    // null values are accepted, there is nothing to inject
+    static void validateValue(String name, String value, boolean allowObsText) {
+        int index = value != null?invalidValueIndex(value, allowObsText):-1;
+        if(index >= 0) {
+            throw new IllegalArgumentException("Invalid character 0x" + Integer.toHexString(value.charAt(index)) + " at index " + index + " in value of header \'" + name + "\'");
+        }
+    }
+
+    // the index of the first character that is not a tchar, the length for an empty name, or -1
+    static int invalidNameIndex(String name) {
+        int length = name.length();
+        if(length == 0) {
+            return 0;
+        } else {
+            for(int i = 0; i < length; ++i) {
+                char c = name.charAt(i);
+                if(c > 255 || !TCHAR[c]) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+    }
+
+    // the index of the first character that is not field-vchar, SP or HTAB, or -1
+    static int invalidValueIndex(String value, boolean allowObsText) {
+        int length = value.length();
+        long highBits = allowObsText?0L:HIGH_BITS;
+        int i = 0;
+
+        for(int wordEnd = 8; wordEnd <= length; wordEnd += 8) {
+            long word = 0L;
+            int wide = 0;
+
+            for(int j = i; j < wordEnd; ++j) {
+                char c = value.charAt(j);
+                wide |= c;
+                word = word << 8 | (long)(c & 255);
+            }
+
+            if(wide > 255 || needsCheck(word, highBits)) {
+                int index = scalarIndex(value, i, wordEnd, allowObsText);
+                if(index >= 0) {
+                    return index;
+                }
+            }
+
+            i = wordEnd;
+        }
+
+        return scalarIndex(value, i, length, allowObsText);
+    }
+
+    // as above for ISO-8859-1 bytes, such as a header line being parsed; the index is absolute
+    static int invalidValueIndex(ByteBuffer buffer, int start, int end, boolean allowObsText) {
+        long highBits = allowObsText?0L:HIGH_BITS;
+        int i = start;
+
+        while(i + 8 <= end) {
+            if(needsCheck(buffer.getLong(i), highBits)) {
+                int index = scalarIndex(buffer, i, i + 8, allowObsText);
+                if(index >= 0) {
+                    return index;
+                }
+            }
+
+            i += 8;
+        }
+
+        return scalarIndex(buffer, i, end, allowObsText);
+    }
+
+    // Whether any byte of the word is below SP, DEL, or has a bit of highBits set. Both
+    // byte tests are exact for the word as a whole, borrows only blur which byte matched.
+    private static boolean needsCheck(long word, long highBits) {
+        long below = word - SPACES & ~word;
+        long del = word ^ DELS;
+        del = del - ONES & ~del;
+        return ((below | del) & HIGH_BITS | word & highBits) != 0L;
+    }
+
+    private static int scalarIndex(String value, int start, int end, boolean allowObsText) {
+        for(int i = start; i < end; ++i) {
+            if(!isValueChar(value.charAt(i), allowObsText)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int scalarIndex(ByteBuffer buffer, int start, int end, boolean allowObsText) {
+        for(int i = start; i < end; ++i) {
+            if(!isValueChar(buffer.get(i) & 255, allowObsText)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean isValueChar(int c, boolean allowObsText) {
+        return c >= 32?c < 127 || c > 127 && c <= 255 && allowObsText:c == 9;
+    }
+
+    static {
+        String specials = "!#$%&\'*+-.^_`|~";
+
+        for(int i = 0; i < specials.length(); ++i) {
+            TCHAR[specials.charAt(i)] = true;
+        }
+
+        for(int c = 48; c <= 57; ++c) {
+            TCHAR[c] = true;
+        }
+
+        for(int c = 65; c <= 90; ++c) {
+            TCHAR[c] = true;
+            TCHAR[c + 32] = true;
+        }
+
+    }
+}
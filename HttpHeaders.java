@@ -1,32 +1,32 @@
 
 package org.springframework.http;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectInputStream.GetField;
 import java.io.Serializable;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.TimeZone;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
 import org.springframework.util.Assert;
-import org.springframework.util.LinkedCaseInsensitiveMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
 
@@ -92,31 +92,40 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
     public static final String VIA = "Via";
     public static final String WARNING = "Warning";
     public static final String WWW_AUTHENTICATE = "WWW-Authenticate";
-    private static final String[] DATE_FORMATS = new String[]{"EEE, dd MMM yyyy HH:mm:ss zzz", "EEE, dd-MMM-yy HH:mm:ss zzz", "EEE MMM dd HH:mm:ss yyyy"};
-    private static final Pattern ETAG_HEADER_VALUE_PATTERN = Pattern.compile("\\*|\\s*((W\\/)?(\"[^\"]*\"))\\s*,?");
-    private static TimeZone GMT = TimeZone.getTimeZone("GMT");
-    private final Map<String, List<String>> headers;
+    private static final int PARSED_ACCEPT = 0;
+    private static final int PARSED_ACCEPT_CHARSET = 1;
+    private static final int PARSED_ACCESS_CONTROL_ALLOW_METHODS = 2;
+    private static final int PARSED_ALLOW = 3;
+    private static final int PARSED_CONTENT_TYPE = 4;
+    private static final int PARSED_RANGE = 5;
+    private static final int PARSED_CACHE_CONTROL = 6;
+    private static final int PARSED_VARY = 7;
+    private Map<String, List<String>> headers;
+    private final boolean frozen;
+    private boolean strictValidation;
+    private boolean obsTextAllowed;
+    private int maxHeaderCount = Integer.MAX_VALUE;
+    private int maxValuesPerHeader = Integer.MAX_VALUE;
+    private int maxHeaderBytes = Integer.MAX_VALUE;
+    private boolean limited;
+    // the characters of all names and values while limited, or -1 until counted again
+    private transient int headerBytes = -1;
+    private boolean hashCodeCaching;
+    private transient int hash;
+    private transient volatile boolean hashValid;
+    private transient ParsedValue[] parsedValues;
+    private transient TrackingHeaderViews trackingViews;
+    // bookkeeping of HttpHeadersPool while acquired or released
+    transient Object poolState;
 
     public HttpHeaders() {
-        this(new LinkedCaseInsensitiveMap(8, Locale.ENGLISH), false);
+        this(new IndexedHeaderMap(), false);
     }
 
-    private HttpHeaders(Map<String, List<String>> headers, boolean readOnly) {
+    private HttpHeaders(Map<String, List<String>> headers, boolean frozen) {
         Assert.notNull(headers, "\'headers\' must not be null");
-        if(readOnly) {
-            LinkedCaseInsensitiveMap map = new LinkedCaseInsensitiveMap(headers.size(), Locale.ENGLISH);
-            Iterator var4 = headers.entrySet().iterator();
-
-            while(var4.hasNext()) {
-                Entry entry = (Entry)var4.next();
-                List values = Collections.unmodifiableList((List)entry.getValue());
-                map.put(entry.getKey(), values);
-            }
-
-            this.headers = Collections.unmodifiableMap(map);
-        } else {
-            this.headers = headers;
-        }
+        this.headers = headers;
+        this.frozen = frozen;
 
     }
 
@@ -125,7 +134,13 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
     }
 
     public List<MediaType> getAccept() {
-        return MediaType.parseMediaTypes(this.get("Accept"));
+        List<String> values = this.getValues("Accept");
+        ParsedValue parsed = this.getParsedValue(PARSED_ACCEPT, values);
+        if(parsed == null) {
+            parsed = this.setParsedValue(PARSED_ACCEPT, values, MediaType.parseMediaTypes(values));
+        }
+
+        return new ArrayList<MediaType>(parsed.<List<MediaType>>value());
     }
 
     public void setAccessControlAllowCredentials(boolean allowCredentials) {
@@ -149,8 +164,17 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
     }
 
     public List<HttpMethod> getAccessControlAllowMethods() {
-        ArrayList result = new ArrayList();
-        String value = this.getFirst("Access-Control-Allow-Methods");
+        List<String> values = this.getValues("Access-Control-Allow-Methods");
+        ParsedValue parsed = this.getParsedValue(PARSED_ACCESS_CONTROL_ALLOW_METHODS, values);
+        if(parsed == null) {
+            parsed = this.setParsedValue(PARSED_ACCESS_CONTROL_ALLOW_METHODS, values, this.parseAccessControlAllowMethods(values != null?(String)values.get(0):null));
+        }
+
+        return new ArrayList<HttpMethod>(parsed.<List<HttpMethod>>value());
+    }
+
+    private List<HttpMethod> parseAccessControlAllowMethods(String value) {
+        List<HttpMethod> result = new ArrayList<HttpMethod>();
         if(value != null) {
             String[] tokens = StringUtils.tokenizeToStringArray(value, ",");
             String[] var4 = tokens;
@@ -225,10 +249,19 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
     }
 
     public List<Charset> getAcceptCharset() {
-        String value = this.getFirst("Accept-Charset");
+        List<String> values = this.getValues("Accept-Charset");
+        ParsedValue parsed = this.getParsedValue(PARSED_ACCEPT_CHARSET, values);
+        if(parsed == null) {
+            parsed = this.setParsedValue(PARSED_ACCEPT_CHARSET, values, this.parseAcceptCharset(values != null?(String)values.get(0):null));
+        }
+
+        return new ArrayList<Charset>(parsed.<List<Charset>>value());
+    }
+
+    private List<Charset> parseAcceptCharset(String value) {
         if(value != null) {
             String[] tokens = StringUtils.tokenizeToStringArray(value, ",");
-            ArrayList result = new ArrayList(tokens.length);
+            List<Charset> result = new ArrayList<Charset>(tokens.length);
             String[] var4 = tokens;
             int var5 = tokens.length;
 
@@ -253,15 +286,32 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
         }
     }
 
+    public void setAcceptEncoding(List<String> acceptableEncodings) {
+        this.set("Accept-Encoding", this.toCommaDelimitedString(acceptableEncodings));
+    }
+
+    public List<String> getAcceptEncoding() {
+        return this.getValuesAsList("Accept-Encoding");
+    }
+
     public void setAllow(Set<HttpMethod> allowedMethods) {
         this.set("Allow", StringUtils.collectionToCommaDelimitedString(allowedMethods));
     }
 
     public Set<HttpMethod> getAllow() {
-        String value = this.getFirst("Allow");
+        List<String> values = this.getValues("Allow");
+        ParsedValue parsed = this.getParsedValue(PARSED_ALLOW, values);
+        if(parsed == null) {
+            parsed = this.setParsedValue(PARSED_ALLOW, values, this.parseAllow(values != null?(String)values.get(0):null));
+        }
+
+        return EnumSet.copyOf(parsed.<EnumSet<HttpMethod>>value());
+    }
+
+    private EnumSet<HttpMethod> parseAllow(String value) {
         if(!StringUtils.isEmpty(value)) {
             String[] tokens = StringUtils.tokenizeToStringArray(value, ",");
-            ArrayList result = new ArrayList(tokens.length);
+            List<HttpMethod> result = new ArrayList<HttpMethod>(tokens.length);
             String[] var4 = tokens;
             int var5 = tokens.length;
 
@@ -287,6 +337,22 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
         return this.getFieldValues("Cache-Control");
     }
 
+    public void setCacheControl(CacheControlDirectives cacheControl) {
+        Assert.notNull(cacheControl, "\'cacheControl\' must not be null");
+        this.set("Cache-Control", cacheControl.toString());
+    }
+
+    // the directives of all Cache-Control lines, or null if there are none
+    public CacheControlDirectives getCacheControlDirectives() {
+        List<String> values = this.getValues("Cache-Control");
+        ParsedValue parsed = this.getParsedValue(PARSED_CACHE_CONTROL, values);
+        if(parsed == null) {
+            parsed = this.setParsedValue(PARSED_CACHE_CONTROL, values, values != null && !values.isEmpty()?CacheControlDirectives.parse(values):null);
+        }
+
+        return (CacheControlDirectives)parsed.value;
+    }
+
     public void setConnection(String connection) {
         this.set("Connection", connection);
     }
@@ -310,7 +376,7 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
         if(filename != null) {
             if(charset != null && !charset.name().equals("US-ASCII")) {
                 builder.append("; filename*=");
-                builder.append(encodeHeaderFieldParam(filename, charset));
+                HeaderFieldParamCodec.encode(filename, charset, builder);
             } else {
                 builder.append("; filename=\"");
                 builder.append(filename).append('\"');
@@ -320,6 +386,18 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
         this.set("Content-Disposition", builder.toString());
     }
 
+    public void setContentDisposition(ContentDispositionValue contentDisposition) {
+        Assert.notNull(contentDisposition, "\'contentDisposition\' must not be null");
+        this.set("Content-Disposition", contentDisposition.toString());
+    }
+
+    // the first Content-Disposition line, or null; not named getContentDisposition(),
+    // which spring-web 5 declares for its own ContentDisposition type
+    public ContentDispositionValue getContentDispositionValue() {
+        String value = this.getFirst("Content-Disposition");
+        return value != null?ContentDispositionValue.parse(value):null;
+    }
+
     public void setContentLength(long contentLength) {
         this.set("Content-Length", Long.toString(contentLength));
     }
@@ -336,8 +414,14 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
     }
 
     public MediaType getContentType() {
-        String value = this.getFirst("Content-Type");
-        return StringUtils.hasLength(value)?MediaType.parseMediaType(value):null;
+        List<String> values = this.getValues("Content-Type");
+        ParsedValue parsed = this.getParsedValue(PARSED_CONTENT_TYPE, values);
+        if(parsed == null) {
+            String value = values != null?(String)values.get(0):null;
+            parsed = this.setParsedValue(PARSED_CONTENT_TYPE, values, StringUtils.hasLength(value)?MediaType.parseMediaType(value):null);
+        }
+
+        return (MediaType)parsed.value;
     }
 
     public void setDate(long date) {
@@ -448,8 +532,13 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
     }
 
     public List<HttpRange> getRange() {
-        String value = this.getFirst("Range");
-        return HttpRange.parseRanges(value);
+        List<String> values = this.getValues("Range");
+        ParsedValue parsed = this.getParsedValue(PARSED_RANGE, values);
+        if(parsed == null) {
+            parsed = this.setParsedValue(PARSED_RANGE, values, HttpRange.parseRanges(values != null?(String)values.get(0):null));
+        }
+
+        return new ArrayList<HttpRange>(parsed.<List<HttpRange>>value());
     }
 
     public void setUpgrade(String upgrade) {
@@ -468,10 +557,19 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
         return this.getValuesAsList("Vary");
     }
 
+    // the compiled Vary header, for fingerprinting the requests this response may serve
+    public VarySpec getVarySpec() {
+        List<String> values = this.getValues("Vary");
+        ParsedValue parsed = this.getParsedValue(PARSED_VARY, values);
+        if(parsed == null) {
+            parsed = this.setParsedValue(PARSED_VARY, values, VarySpec.of(this));
+        }
+
+        return (VarySpec)parsed.value;
+    }
+
     public void setDate(String headerName, long date) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMATS[0], Locale.US);
-        dateFormat.setTimeZone(GMT);
-        this.set(headerName, dateFormat.format(new Date(date)));
+        this.set(headerName, HttpDateFormatter.format(date));
     }
 
     public long getFirstDate(String headerName) {
@@ -483,25 +581,10 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
         if(headerValue == null) {
             return -1L;
         } else {
-            if(headerValue.length() >= 3) {
-                String[] var4 = DATE_FORMATS;
-                int var5 = var4.length;
-                int var6 = 0;
-
-                while(var6 < var5) {
-                    String dateFormat = var4[var6];
-                    SimpleDateFormat simpleDateFormat = new SimpleDateFormat(dateFormat, Locale.US);
-                    simpleDateFormat.setTimeZone(GMT);
-
-                    try {
-                        return simpleDateFormat.parse(headerValue).getTime();
-                    } catch (ParseException var10) {
-                        ++var6;
-                    }
-                }
-            }
-
-            if(rejectInvalid) {
+            long date = HttpDateFormatter.parse(headerValue);
+            if(date != -1L) {
+                return date;
+            } else if(rejectInvalid) {
                 throw new IllegalArgumentException("Cannot parse date value \"" + headerValue + "\" for \"" + headerName + "\" header");
             } else {
                 return -1L;
@@ -510,42 +593,101 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
     }
 
     public List<String> getValuesAsList(String headerName) {
-        List values = this.get(headerName);
+        List<String> values = this.getValues(headerName);
         if(values == null) {
             return Collections.emptyList();
         } else {
-            ArrayList result = new ArrayList();
-            Iterator var4 = values.iterator();
+            List<String> result = new ArrayList<String>();
 
-            while(true) {
-                String value;
-                do {
-                    if(!var4.hasNext()) {
-                        return result;
+            for(int i = 0; i < values.size(); ++i) {
+                String value = (String)values.get(i);
+                if(value != null) {
+                    for(long bounds = findToken(value, 0); bounds != -1L; bounds = findToken(value, (int)bounds + 1)) {
+                        result.add(value.substring((int)(bounds >>> 32), (int)bounds));
                     }
+                }
+            }
 
-                    value = (String)var4.next();
-                } while(value == null);
+            return result;
+        }
+    }
 
-                String[] tokens = StringUtils.tokenizeToStringArray(value, ",");
-                String[] var7 = tokens;
-                int var8 = tokens.length;
+    public boolean visitTokens(String headerName, HttpHeaderTokenVisitor visitor) {
+        Assert.notNull(visitor, "\'visitor\' must not be null");
+        List<String> values = this.getValues(headerName);
+        if(values != null) {
+            for(int i = 0; i < values.size(); ++i) {
+                String value = (String)values.get(i);
+                if(value != null) {
+                    for(long bounds = findToken(value, 0); bounds != -1L; bounds = findToken(value, (int)bounds + 1)) {
+                        if(!visitor.visitToken(value, (int)(bounds >>> 32), (int)bounds)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
 
-                for(int var9 = 0; var9 < var8; ++var9) {
-                    String token = var7[var9];
-                    result.add(token);
+        return true;
+    }
+
+    public boolean containsToken(String headerName, String token) {
+        Assert.notNull(token, "\'token\' must not be null");
+        List<String> values = this.getValues(headerName);
+        if(values != null) {
+            for(int i = 0; i < values.size(); ++i) {
+                String value = (String)values.get(i);
+                if(value != null) {
+                    for(long bounds = findToken(value, 0); bounds != -1L; bounds = findToken(value, (int)bounds + 1)) {
+                        int start = (int)(bounds >>> 32);
+                        int length = (int)bounds - start;
+                        if(length == token.length() && value.regionMatches(true, start, token, 0, length)) {
+                            return true;
+                        }
+                    }
                 }
             }
         }
+
+        return false;
+    }
+
+    // Same tokens as StringUtils.tokenizeToStringArray(value, ","): split on commas, trimmed,
+    // empty tokens skipped. Returns (start << 32 | end) of the next token, or -1.
+    static long findToken(String value, int from) {
+        int length = value.length();
+
+        while(from < length) {
+            int comma = value.indexOf(44, from);
+            int end = comma != -1?comma:length;
+
+            int start;
+            for(start = from; start < end && value.charAt(start) <= 32; ++start) {
+                ;
+            }
+
+            int tokenEnd;
+            for(tokenEnd = end; tokenEnd > start && value.charAt(tokenEnd - 1) <= 32; --tokenEnd) {
+                ;
+            }
+
+            if(tokenEnd > start) {
+                return (long)start << 32 | (long)tokenEnd;
+            }
+
+            from = end + 1;
+        }
+
+        return -1L;
     }
 
     protected List<String> getETagValuesAsList(String headerName) {
-        List values = this.get(headerName);
+        List<String> values = this.getValues(headerName);
         if(values == null) {
             return Collections.emptyList();
         } else {
-            ArrayList result = new ArrayList();
-            Iterator var4 = values.iterator();
+            List<String> result = new ArrayList<String>();
+            Iterator<String> var4 = values.iterator();
 
             String value;
             do {
@@ -557,14 +699,8 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
                     value = (String)var4.next();
                 } while(value == null);
 
-                Matcher matcher = ETAG_HEADER_VALUE_PATTERN.matcher(value);
-
-                while(matcher.find()) {
-                    if("*".equals(matcher.group())) {
-                        result.add(matcher.group());
-                    } else {
-                        result.add(matcher.group(1));
-                    }
+                for(long bounds = findETag(value, 0); bounds != -1L; bounds = findETag(value, (int)bounds)) {
+                    result.add(value.substring((int)(bounds >>> 32), (int)bounds));
                 }
             } while(!result.isEmpty());
 
@@ -572,8 +708,224 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
         }
     }
 
+    public boolean matchesIfMatch(String eTag) {
+        return this.matchesETag("If-Match", eTag, false);
+    }
+
+    public boolean matchesIfNoneMatch(String eTag) {
+        return this.matchesETag("If-None-Match", eTag, true);
+    }
+
+    public HttpStatus checkETagPreconditions(String eTag, HttpMethod method) {
+        if(this.containsKey("If-Match") && !this.matchesIfMatch(eTag)) {
+            return HttpStatus.PRECONDITION_FAILED;
+        } else if(this.containsKey("If-None-Match") && this.matchesIfNoneMatch(eTag)) {
+            return method != HttpMethod.GET && method != HttpMethod.HEAD?HttpStatus.PRECONDITION_FAILED:HttpStatus.NOT_MODIFIED;
+        } else {
+            return null;
+        }
+    }
+
+    // Strong comparison for If-Match, weak comparison for If-None-Match (RFC 7232, section 2.3.2).
+    private boolean matchesETag(String headerName, String eTag, boolean weak) {
+        List<String> values = this.getValues(headerName);
+        if(values != null && eTag != null) {
+            boolean eTagWeak = eTag.startsWith("W/");
+            int eTagStart = eTagWeak?2:0;
+            if(eTagWeak && !weak) {
+                return false;
+            } else {
+                for(int i = 0; i < values.size(); ++i) {
+                    String value = (String)values.get(i);
+                    if(value != null) {
+                        for(long bounds = findETag(value, 0); bounds != -1L; bounds = findETag(value, (int)bounds)) {
+                            int start = (int)(bounds >>> 32);
+                            int end = (int)bounds;
+                            if(value.charAt(start) == 42) {
+                                return true;
+                            }
+
+                            if(value.startsWith("W/", start)) {
+                                if(!weak) {
+                                    continue;
+                                }
+
+                                start += 2;
+                            }
+
+                            int length = end - start;
+                            if(length == eTag.length() - eTagStart && value.regionMatches(start, eTag, eTagStart, length)) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+
+                return false;
+            }
+        } else {
+            return false;
+        }
+    }
+
+    // Finds the next "*" or [W/]"opaque-tag" at or after the given index, with the same
+    // results as scanning for \*|\s*((W\/)?("[^"]*"))\s*,? but without a Matcher.
+    // Returns (start << 32 | end) of the tag, where end is also where scanning resumes, or -1.
+    static long findETag(String value, int from) {
+        int length = value.length();
+
+        for(int i = from; i < length; ++i) {
+            char c = value.charAt(i);
+            if(c == 42) {
+                return (long)i << 32 | (long)(i + 1);
+            }
+
+            int start;
+            for(start = i; start < length && isRegexWhitespace(value.charAt(start)); ++start) {
+                ;
+            }
+
+            int quote = value.startsWith("W/", start)?start + 2:start;
+            if(quote < length && value.charAt(quote) == 34) {
+                int end = value.indexOf(34, quote + 1);
+                if(end != -1) {
+                    return (long)start << 32 | (long)(end + 1);
+                }
+            }
+        }
+
+        return -1L;
+    }
+
+    private static boolean isRegexWhitespace(char c) {
+        return c == 32 || c == 9 || c == 10 || c == 11 || c == 12 || c == 13;
+    }
+
+    // Parsed values are keyed by the identity and version of the value list they came from,
+    // so any mutation (set, add, put, remove, entry or list updates) invalidates them.
+    // Lists not created by HttpHeaders are only cached on frozen snapshots.
+    private ParsedValue getParsedValue(int slot, List<String> source) {
+        ParsedValue[] parsedValues = this.parsedValues;
+        if(parsedValues != null && source != null) {
+            ParsedValue parsed = parsedValues[slot];
+            if(parsed != null && parsed.source == source && parsed.version == this.versionOf(source)) {
+                return parsed;
+            }
+        }
+
+        return null;
+    }
+
+    private ParsedValue setParsedValue(int slot, List<String> source, Object value) {
+        ParsedValue parsed = new ParsedValue(source, this.versionOf(source), value);
+        if(source != null && (this.frozen || source instanceof HeaderValueList)) {
+            if(this.parsedValues == null) {
+                this.parsedValues = new ParsedValue[PARSED_VARY + 1];
+            }
+
+            this.parsedValues[slot] = parsed;
+        }
+
+        return parsed;
+    }
+
+    private int versionOf(List<String> source) {
+        return source instanceof HeaderValueList?((HeaderValueList)source).version():0;
+    }
+
+    Map<String, List<String>> getHeaderMap() {
+        return this.headers;
+    }
+
+    int getSerializationFlags() {
+        int flags = this.frozen?HttpHeadersBinaryCodec.FLAG_FROZEN | HttpHeadersBinaryCodec.FLAG_READ_ONLY:(this.headers instanceof ReadOnlyHeaderMap?HttpHeadersBinaryCodec.FLAG_READ_ONLY:0);
+        if(this.strictValidation) {
+            flags |= HttpHeadersBinaryCodec.FLAG_STRICT_VALIDATION;
+        }
+
+        if(this.obsTextAllowed) {
+            flags |= HttpHeadersBinaryCodec.FLAG_OBS_TEXT_ALLOWED;
+        }
+
+        if(this.hashCodeCaching) {
+            flags |= HttpHeadersBinaryCodec.FLAG_HASH_CODE_CACHING;
+        }
+
+        if(this.limited) {
+            flags |= HttpHeadersBinaryCodec.FLAG_LIMITS;
+        }
+
+        return flags;
+    }
+
+    // the map must not be reachable by anyone else
+    static HttpHeaders fromDecodedMap(IndexedHeaderMap map, boolean readOnly, boolean frozen) {
+        return frozen?new HttpHeaders(new FrozenHeaderMap(map), true):(readOnly?readOnlyView(map):new HttpHeaders(map, false));
+    }
+
+    // with the settings, but not the contents, of the template if there is one
+    static HttpHeaders fromLazyMap(LazyHeaderMap map, HttpHeaders template) {
+        HttpHeaders headers = new HttpHeaders(map, false);
+        if(template != null) {
+            headers.strictValidation = template.strictValidation;
+            headers.obsTextAllowed = template.obsTextAllowed;
+            headers.maxHeaderCount = template.maxHeaderCount;
+            headers.maxValuesPerHeader = template.maxValuesPerHeader;
+            headers.maxHeaderBytes = template.maxHeaderBytes;
+            headers.limited = template.limited;
+            headers.hashCodeCaching = template.hashCodeCaching;
+        }
+
+        return headers;
+    }
+
+    // the first write to lazily parsed headers moves them to a regular map
+    private void materialize() {
+        if(this.headers instanceof LazyHeaderMap) {
+            this.headers = ((LazyHeaderMap)this.headers).materialize();
+        }
+
+    }
+
+    // read-only headers over a map that nobody else can modify
+    static HttpHeaders readOnlyView(Map<String, List<String>> target) {
+        return new HttpHeaders(new ReadOnlyHeaderMap(target), false);
+    }
+
+    // Serialized through HttpHeadersBinaryCodec rather than field by field; streams
+    // written before still deserialize through the default mechanism.
+    private Object writeReplace() {
+        return new HttpHeadersBinaryCodec.SerializedForm(this);
+    }
+
+    // Streams written field by field, by earlier versions or for subclasses, may lack the
+    // settings added since; those take their defaults, as field initializers do not run.
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        GetField fields = in.readFields();
+        this.headers = (Map<String, List<String>>)fields.get("headers", (Object)null);
+        this.strictValidation = fields.get("strictValidation", false);
+        this.obsTextAllowed = fields.get("obsTextAllowed", false);
+        this.maxHeaderCount = fields.get("maxHeaderCount", Integer.MAX_VALUE);
+        this.maxValuesPerHeader = fields.get("maxValuesPerHeader", Integer.MAX_VALUE);
+        this.maxHeaderBytes = fields.get("maxHeaderBytes", Integer.MAX_VALUE);
+        this.hashCodeCaching = fields.get("hashCodeCaching", false);
+        if(this.headers == null) {
+            throw new InvalidObjectException("HttpHeaders without a header map");
+        } else if(this.maxHeaderCount <= 0 || this.maxValuesPerHeader <= 0 || this.maxHeaderBytes <= 0) {
+            throw new InvalidObjectException("HttpHeaders limits must be greater than 0");
+        } else {
+            this.updateLimited();
+        }
+    }
+
+    // raw values without copying, also for forks; the list must not be modified
+    List<String> getValues(String headerName) {
+        return CopyOnWriteHeaderMap.peek(this.headers, headerName);
+    }
+
     protected String getFieldValues(String headerName) {
-        List headerValues = this.get(headerName);
+        List<String> headerValues = this.getValues(headerName);
         return headerValues != null?this.toCommaDelimitedString(headerValues):null;
     }
 
@@ -593,24 +945,44 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
     }
 
     public String getFirst(String headerName) {
-        List headerValues = (List)this.headers.get(headerName);
+        List headerValues = this.getValues(headerName);
         return headerValues != null?(String)headerValues.get(0):null;
     }
 
     public void add(String headerName, String headerValue) {
-        Object headerValues = (List)this.headers.get(headerName);
+        if(this.strictValidation) {
+            this.validate(headerName, headerValue);
+        }
+
+        if(this.limited) {
+            this.checkLimits(headerName, headerValue, (List<String>)null, true);
+        }
+
+        this.materialize();
+        int entryHash = this.hashBefore(headerName);
+        List<String> headerValues = CopyOnWriteHeaderMap.getForWrite(this.headers, headerName);
         if(headerValues == null) {
-            headerValues = new LinkedList();
-            this.headers.put(headerName, headerValues);
+            this.headers.put(headerName, new HeaderValueList(headerValue));
+        } else {
+            headerValues.add(headerValue);
         }
 
-        ((List)headerValues).add(headerValue);
+        this.hashAfter(headerName, entryHash);
     }
 
     public void set(String headerName, String headerValue) {
-        LinkedList headerValues = new LinkedList();
-        headerValues.add(headerValue);
-        this.headers.put(headerName, headerValues);
+        if(this.strictValidation) {
+            this.validate(headerName, headerValue);
+        }
+
+        if(this.limited) {
+            this.checkLimits(headerName, headerValue, (List<String>)null, false);
+        }
+
+        this.materialize();
+        int entryHash = this.hashBefore(headerName);
+        this.headers.put(headerName, new HeaderValueList(headerValue));
+        this.hashAfter(headerName, entryHash);
     }
 
     public void setAll(Map<String, String> values) {
@@ -624,17 +996,30 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
     }
 
     public Map<String, String> toSingleValueMap() {
-        LinkedHashMap singleValueMap = new LinkedHashMap(this.headers.size());
-        Iterator var2 = this.headers.entrySet().iterator();
+        Map<String, String> singleValueMap = new LinkedHashMap<String, String>(this.headers.size());
+        Iterator<Entry<String, List<String>>> var2 = this.headers.entrySet().iterator();
 
         while(var2.hasNext()) {
-            Entry entry = (Entry)var2.next();
-            singleValueMap.put(entry.getKey(), ((List)entry.getValue()).get(0));
+            Entry<String, List<String>> entry = var2.next();
+            singleValueMap.put(entry.getKey(), (String)((List<String>)entry.getValue()).get(0));
         }
 
         return singleValueMap;
     }
 
+    public HttpHeadersWriter writer() {
+        return new HttpHeadersWriter(this);
+    }
+
+    // The channel must be in blocking mode; writer() resumes writes to non-blocking channels.
+    public void writeTo(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        if(channel instanceof SelectableChannel) {
+            Assert.isTrue(((SelectableChannel)channel).isBlocking(), "\'channel\' must be in blocking mode");
+        }
+
+        this.writer().writeTo(channel, buffer);
+    }
+
     public int size() {
         return this.headers.size();
     }
@@ -652,35 +1037,364 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
     }
 
     public List<String> get(Object key) {
-        return (List)this.headers.get(key);
+        List<String> values = (List<String>)this.headers.get(key);
+        return this.isTracking()?this.trackingViews().list(values):values;
     }
 
     public List<String> put(String key, List<String> value) {
-        return (List)this.headers.put(key, value);
+        if(this.strictValidation) {
+            this.validate(key, value);
+        }
+
+        if(this.limited) {
+            this.checkLimits(key, (String)null, value, false);
+        }
+
+        this.materialize();
+        this.invalidateHash();
+        return (List<String>)this.headers.put(key, value);
     }
 
     public List<String> remove(Object key) {
-        return (List)this.headers.remove(key);
+        this.materialize();
+        if(key instanceof String) {
+            int entryHash = this.hashBefore((String)key);
+            List<String> removed = (List<String>)this.headers.remove(key);
+            this.hashAfter((String)key, entryHash);
+            if(removed != null && this.headerBytes >= 0) {
+                this.headerBytes -= byteCount((String)key, removed);
+            }
+
+            return removed;
+        } else {
+            return (List<String>)this.headers.remove(key);
+        }
     }
 
     public void putAll(Map<? extends String, ? extends List<String>> map) {
-        this.headers.putAll(map);
+        if(this.strictValidation) {
+            Iterator<? extends Entry<? extends String, ? extends List<String>>> var2 = map.entrySet().iterator();
+
+            while(var2.hasNext()) {
+                Entry<? extends String, ? extends List<String>> entry = var2.next();
+                this.validate((String)entry.getKey(), (List<String>)entry.getValue());
+            }
+        }
+
+        if(this.limited) {
+            // entry by entry, so that each is checked against what the previous ones took
+            Iterator<? extends Entry<? extends String, ? extends List<String>>> var3 = map.entrySet().iterator();
+
+            while(var3.hasNext()) {
+                Entry<? extends String, ? extends List<String>> entry = var3.next();
+                this.put((String)entry.getKey(), (List<String>)entry.getValue());
+            }
+        } else {
+            this.materialize();
+            this.invalidateHash();
+            this.headers.putAll(map);
+        }
+    }
+
+    // With strict validation, set(), add(), put() and putAll() (and the typed setters built
+    // on them) reject field names that are not tokens and values with control characters,
+    // such as CR/LF injected through user input, or with obs-text unless allowed. Lists
+    // obtained through get() and modified directly are not checked; see validateAll().
+    public void setStrictValidation(boolean strictValidation) {
+        this.strictValidation = strictValidation;
+    }
+
+    public boolean isStrictValidation() {
+        return this.strictValidation;
+    }
+
+    // whether strict validation accepts obs-text, characters 0x80 to 0xFF, in values
+    public void setObsTextAllowed(boolean obsTextAllowed) {
+        this.obsTextAllowed = obsTextAllowed;
+    }
+
+    public boolean isObsTextAllowed() {
+        return this.obsTextAllowed;
+    }
+
+    // Hard limits for headers filled from untrusted input, such as a request being parsed:
+    // the number of distinct names, the number of values of one name, and the characters
+    // of all names and values together (their bytes on an HTTP/1.1 connection, less the
+    // separators). set(), add() and put() (and the typed setters built on them) throw an
+    // HttpHeadersLimitException and leave the headers unchanged when a write would exceed
+    // a limit, putAll() stops at the first entry that would; HttpHeadersParser and
+    // HttpHeadersDecoder report it as they report malformed input. As with strict
+    // validation, lists obtained through get() and modified directly are not checked.
+    // Limits already exceeded when they are set stay in place.
+    public void setMaxHeaderCount(int maxHeaderCount) {
+        Assert.isTrue(maxHeaderCount > 0, "\'maxHeaderCount\' must be greater than 0");
+        this.maxHeaderCount = maxHeaderCount;
+        this.updateLimited();
+    }
+
+    public int getMaxHeaderCount() {
+        return this.maxHeaderCount;
+    }
+
+    public void setMaxValuesPerHeader(int maxValuesPerHeader) {
+        Assert.isTrue(maxValuesPerHeader > 0, "\'maxValuesPerHeader\' must be greater than 0");
+        this.maxValuesPerHeader = maxValuesPerHeader;
+        this.updateLimited();
+    }
+
+    public int getMaxValuesPerHeader() {
+        return this.maxValuesPerHeader;
+    }
+
+    public void setMaxHeaderBytes(int maxHeaderBytes) {
+        Assert.isTrue(maxHeaderBytes > 0, "\'maxHeaderBytes\' must be greater than 0");
+        this.maxHeaderBytes = maxHeaderBytes;
+        this.updateLimited();
+    }
+
+    public int getMaxHeaderBytes() {
+        return this.maxHeaderBytes;
+    }
+
+    private void updateLimited() {
+        this.limited = this.maxHeaderCount != Integer.MAX_VALUE || this.maxValuesPerHeader != Integer.MAX_VALUE || this.maxHeaderBytes != Integer.MAX_VALUE;
+        this.headerBytes = -1;
+    }
+
+    // for a write of either one value or a list, appended to or replacing the current values
+    private void checkLimits(String headerName, String headerValue, List<String> headerValues, boolean append) {
+        List<String> current = this.getValues(headerName);
+        if(current == null && this.headers.size() >= this.maxHeaderCount) {
+            throw new HttpHeadersLimitException("Header \'" + headerName + "\' exceeds the limit of " + this.maxHeaderCount + " headers");
+        } else {
+            int valueCount = (append && current != null?current.size():0) + (headerValues != null?headerValues.size():1);
+            if(valueCount > this.maxValuesPerHeader) {
+                throw new HttpHeadersLimitException("Header \'" + headerName + "\' exceeds the limit of " + this.maxValuesPerHeader + " values");
+            } else if(this.maxHeaderBytes != Integer.MAX_VALUE) {
+                long bytes = (long)this.headerBytes();
+                if(append && current != null) {
+                    bytes += (long)length(headerValue);
+                } else {
+                    bytes += (current != null?-(long)byteCount(headerName, current):0L) + (headerValues != null?(long)byteCount(headerName, headerValues):(long)(headerName.length() + length(headerValue)));
+                }
+
+                if(bytes > (long)this.maxHeaderBytes) {
+                    throw new HttpHeadersLimitException("Header \'" + headerName + "\' exceeds the limit of " + this.maxHeaderBytes + " bytes for all headers");
+                }
+
+                // the write follows and cannot fail anymore
+                this.headerBytes = (int)bytes;
+            }
+        }
+    }
+
+    private int headerBytes() {
+        if(this.headerBytes < 0) {
+            long bytes = 0L;
+            Iterator<Entry<String, List<String>>> var3 = this.headers.entrySet().iterator();
+
+            while(var3.hasNext()) {
+                Entry<String, List<String>> entry = var3.next();
+                bytes += (long)byteCount((String)entry.getKey(), (List<String>)entry.getValue());
+            }
+
+            this.headerBytes = (int)Math.min(bytes, 2147483647L);
+        }
+
+        return this.headerBytes;
+    }
+
+    private static int byteCount(String headerName, List<String> headerValues) {
+        int bytes = headerName.length();
+
+        for(int i = 0; i < headerValues.size(); ++i) {
+            bytes += length((String)headerValues.get(i));
+        }
+
+        return bytes;
+    }
+
+    private static int length(String headerValue) {
+        return headerValue != null?headerValue.length():0;
+    }
+
+    // Checks all current names and values as strict validation would, whether enabled or
+    // not, and throws an IllegalArgumentException for the first invalid one.
+    public void validateAll() {
+        Iterator<Entry<String, List<String>>> var1 = this.headers.entrySet().iterator();
+
+        while(var1.hasNext()) {
+            Entry<String, List<String>> entry = var1.next();
+            this.validate((String)entry.getKey(), (List<String>)entry.getValue());
+        }
+
+    }
+
+    private void validate(String headerName, String headerValue) {
+        HttpHeaderValidator.validateName(headerName);
+        HttpHeaderValidator.validateValue(headerName, headerValue, this.obsTextAllowed);
+    }
+
+    private void validate(String headerName, List<String> headerValues) {
+        HttpHeaderValidator.validateName(headerName);
+        if(headerValues != null) {
+            Iterator var3 = headerValues.iterator();
+
+            while(var3.hasNext()) {
+                HttpHeaderValidator.validateValue(headerName, (String)var3.next(), this.obsTextAllowed);
+            }
+        }
+
     }
 
     public void clear() {
+        this.materialize();
         this.headers.clear();
+        this.hash = 0;
+        this.headerBytes = -1;
+    }
+
+    // Removes all headers like clear(), but keeps the allocated entries and value lists
+    // for the next use, so that a recycled instance reaches a steady state without
+    // allocating. Value lists obtained through get() before the reset must not be used.
+    public void reset() {
+        if(this.headers instanceof IndexedHeaderMap) {
+            ((IndexedHeaderMap)this.headers).reset();
+        } else if(this.headers instanceof CopyOnWriteHeaderMap || this.headers instanceof LazyHeaderMap) {
+            // start over with a private map: forks share the base, and lazily parsed lines would only be parsed to be dropped
+            this.headers = new IndexedHeaderMap();
+        } else {
+            if(this.headers instanceof ReadOnlyHeaderMap) {
+                throw new UnsupportedOperationException("Read-only HttpHeaders cannot be reset");
+            }
+
+            this.headers.clear();
+        }
+
+        if(this.parsedValues != null) {
+            Arrays.fill(this.parsedValues, (Object)null);
+        }
+
+        this.hash = 0;
+        this.headerBytes = -1;
+    }
+
+    // the settings of a new instance, for instances recycled by HttpHeadersPool
+    void resetSettings() {
+        this.strictValidation = false;
+        this.obsTextAllowed = false;
+        this.maxHeaderCount = Integer.MAX_VALUE;
+        this.maxValuesPerHeader = Integer.MAX_VALUE;
+        this.maxHeaderBytes = Integer.MAX_VALUE;
+        this.updateLimited();
+        this.hashCodeCaching = false;
+        this.hashValid = false;
+    }
+
+    // For HttpHeaders used as map keys. hashCode() ignores the case of names, as
+    // equals() does, so it cannot match the hash code of other maps with the same
+    // entries; in this mode it is computed once and then kept up to date by set(),
+    // add(), remove(), clear() and reset(), including the typed setters. Changes made
+    // through the value lists and views of get(), keySet(), values() and entrySet(), as
+    // well as put() and putAll(), drop the cached value until the next hashCode();
+    // lists and views obtained before the mode was enabled must not be used for
+    // changes. Forks inherit the mode; read-only views report the hash code of the
+    // headers they reflect, and snapshots from readOnlySnapshot() compute it once. As
+    // with any map key, instances must not change while they are used as keys.
+    public void setHashCodeCaching(boolean hashCodeCaching) {
+        this.hashCodeCaching = hashCodeCaching;
+        this.hashValid = false;
+    }
+
+    public boolean isHashCodeCaching() {
+        return this.hashCodeCaching;
+    }
+
+    private int hashBefore(String headerName) {
+        return this.hashCodeCaching && this.hashValid?entryHash(headerName, this.getValues(headerName)):0;
+    }
+
+    private void hashAfter(String headerName, int entryHash) {
+        if(this.hashCodeCaching && this.hashValid) {
+            this.hash += entryHash(headerName, this.getValues(headerName)) - entryHash;
+        }
+
+    }
+
+    private void invalidateHash() {
+        if(this.hashValid) {
+            this.hashValid = false;
+        }
+
+    }
+
+    private boolean isHashCodeCached() {
+        return this.hashCodeCaching || this.headers instanceof FrozenHeaderMap;
+    }
+
+    // case-insensitive in the names, cached where possible
+    private int contentHashCode() {
+        if(this.headers instanceof FrozenHeaderMap) {
+            return ((FrozenHeaderMap)this.headers).contentHash();
+        } else if(this.headers instanceof ReadOnlyHeaderMap && ((ReadOnlyHeaderMap)this.headers).getTarget() instanceof HttpHeaders) {
+            return ((HttpHeaders)((ReadOnlyHeaderMap)this.headers).getTarget()).contentHashCode();
+        } else if(!this.hashCodeCaching) {
+            return contentHash(this.headers);
+        } else if(this.hashValid) {
+            return this.hash;
+        } else {
+            int hash = contentHash(this.headers);
+            this.hash = hash;
+            this.hashValid = true;
+            return hash;
+        }
+    }
+
+    // case-insensitive in the names, so that it agrees with equals()
+    static int contentHash(Map<String, List<String>> map) {
+        int hash = 0;
+
+        Entry<String, List<String>> entry;
+        for(Iterator<Entry<String, List<String>>> var2 = map.entrySet().iterator(); var2.hasNext(); hash += entryHash((String)entry.getKey(), (List<String>)entry.getValue())) {
+            entry = var2.next();
+        }
+
+        return hash;
+    }
+
+    private static int entryHash(String headerName, List<String> headerValues) {
+        return headerValues != null?HttpHeaderNames.hashIgnoreCase(headerName) ^ headerValues.hashCode():0;
     }
 
     public Set<String> keySet() {
-        return this.headers.keySet();
+        return this.isTracking()?this.trackingViews().keySet():this.headers.keySet();
     }
 
     public Collection<List<String>> values() {
-        return this.headers.values();
+        return this.isTracking()?this.trackingViews().values():this.headers.values();
     }
 
     public Set<Entry<String, List<String>>> entrySet() {
-        return this.headers.entrySet();
+        return this.isTracking()?this.trackingViews().entrySet():this.headers.entrySet();
+    }
+
+    // whether a hash code or byte count is kept that changes made by callers must drop
+    private boolean isTracking() {
+        return this.hashCodeCaching || this.limited;
+    }
+
+    private TrackingHeaderViews trackingViews() {
+        if(this.trackingViews == null) {
+            this.trackingViews = new TrackingHeaderViews(this);
+        }
+
+        return this.trackingViews;
+    }
+
+    // called back by TrackingHeaderViews after a caller changed a list or view
+    void contentModified() {
+        this.invalidateHash();
+        this.headerBytes = -1;
     }
 
     public boolean equals(Object other) {
@@ -690,12 +1404,30 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
             return false;
         } else {
             HttpHeaders otherHeaders = (HttpHeaders)other;
-            return this.headers.equals(otherHeaders.headers);
+            if(this.headers.size() != otherHeaders.headers.size()) {
+                return false;
+            } else if(this.isHashCodeCached() && otherHeaders.isHashCodeCached() && this.contentHashCode() != otherHeaders.contentHashCode()) {
+                return false;
+            } else {
+                Iterator<Entry<String, List<String>>> var3 = this.headers.entrySet().iterator();
+
+                while(var3.hasNext()) {
+                    Entry<String, List<String>> entry = var3.next();
+                    List<String> values = (List<String>)entry.getValue();
+                    // raw lists, so that comparing neither copies shared entries nor drops cached hashes
+                    List<String> otherValues = CopyOnWriteHeaderMap.peek(otherHeaders.headers, entry.getKey());
+                    if(values != null?!values.equals(otherValues):otherValues != null || !otherHeaders.headers.containsKey(entry.getKey())) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
         }
     }
 
     public int hashCode() {
-        return this.headers.hashCode();
+        return this.contentHashCode();
     }
 
     public String toString() {
@@ -703,43 +1435,87 @@ public class HttpHeaders implements MultiValueMap<String, String>, Serializable
     }
 
     public static HttpHeaders readOnlyHttpHeaders(HttpHeaders headers) {
-        return new HttpHeaders(headers, true);
+        Assert.notNull(headers, "\'headers\' must not be null");
+        return headers.headers instanceof ReadOnlyHeaderMap?headers:new HttpHeaders(new ReadOnlyHeaderMap(headers), false);
+    }
+
+    public HttpHeaders fork() {
+        HttpHeaders fork = new HttpHeaders(new CopyOnWriteHeaderMap(this.freeze()), false);
+        fork.strictValidation = this.strictValidation;
+        fork.obsTextAllowed = this.obsTextAllowed;
+        fork.maxHeaderCount = this.maxHeaderCount;
+        fork.maxValuesPerHeader = this.maxValuesPerHeader;
+        fork.maxHeaderBytes = this.maxHeaderBytes;
+        fork.limited = this.limited;
+        fork.headerBytes = this.headerBytes;
+        fork.hashCodeCaching = this.hashCodeCaching;
+        fork.hash = this.hash;
+        fork.hashValid = this.hashValid;
+        return fork;
+    }
+
+    // Turns the current contents into an immutable base that forks can share. A mutable
+    // instance carries on with a copy-on-write layer over that base, so value lists
+    // obtained through get() before the fork must not be modified afterwards.
+    private Map<String, List<String>> freeze() {
+        if(this.frozen) {
+            return this.headers;
+        } else if(this.headers instanceof ReadOnlyHeaderMap) {
+            // only views of other HttpHeaders can change underneath
+            Map<String, List<String>> target = ((ReadOnlyHeaderMap)this.headers).getTarget();
+            return target instanceof HttpHeaders?((HttpHeaders)target).freeze():this.headers;
+        } else if(this.headers instanceof CopyOnWriteHeaderMap && !((CopyOnWriteHeaderMap)this.headers).isModified()) {
+            return ((CopyOnWriteHeaderMap)this.headers).getBase();
+        } else {
+            // lazily parsed headers cache what they parse, so they cannot be shared
+            Map<String, List<String>> current = this.headers instanceof LazyHeaderMap?((LazyHeaderMap)this.headers).materialize():this.headers;
+            this.headers = new CopyOnWriteHeaderMap(current);
+            return current;
+        }
     }
 
-    static String encodeHeaderFieldParam(String input, Charset charset) {
-        Assert.notNull(input, "Input String should not be null");
-        Assert.notNull(charset, "Charset should not be null");
-        if(charset.name().equals("US-ASCII")) {
-            return input;
+    // An immutable copy that threads can share; it caches its encoded lines and hash code,
+    // and fork() puts a mutable layer on top of it without copying.
+    public static HttpHeaders readOnlySnapshot(HttpHeaders headers) {
+        Assert.notNull(headers, "\'headers\' must not be null");
+        if(headers.frozen) {
+            return headers;
         } else {
-            Assert.isTrue(charset.name().equals("UTF-8") || charset.name().equals("ISO-8859-1"), "Charset should be UTF-8 or ISO-8859-1");
-            byte[] source = input.getBytes(charset);
-            int len = source.length;
-            StringBuilder sb = new StringBuilder(len << 1);
-            sb.append(charset.name());
-            sb.append("\'\'");
-            byte[] var5 = source;
-            int var6 = source.length;
-
-            for(int var7 = 0; var7 < var6; ++var7) {
-                byte b = var5[var7];
-                if(isRFC5987AttrChar(b)) {
-                    sb.append((char)b);
-                } else {
-                    sb.append('%');
-                    char hex1 = Character.toUpperCase(Character.forDigit(b >> 4 & 15, 16));
-                    char hex2 = Character.toUpperCase(Character.forDigit(b & 15, 16));
-                    sb.append(hex1);
-                    sb.append(hex2);
-                }
+            IndexedHeaderMap copy = new IndexedHeaderMap();
+            Iterator<Entry<String, List<String>>> var2 = headers.headers.entrySet().iterator();
+
+            while(var2.hasNext()) {
+                Entry<String, List<String>> entry = var2.next();
+                HeaderValueList values = new HeaderValueList();
+                values.addAll((List<String>)entry.getValue());
+                copy.put((String)entry.getKey(), values);
             }
 
-            return sb.toString();
+            return new HttpHeaders(new FrozenHeaderMap(copy), true);
         }
     }
 
-    private static boolean isRFC5987AttrChar(byte c) {
-        return c >= 48 && c <= 57 || c >= 97 && c <= 122 || c >= 65 && c <= 90 || c == 33 || c == 35 || c == 36 || c == 38 || c == 43 || c == 45 || c == 46 || c == 94 || c == 95 || c == 96 || c == 124 || c == 126;
+    static String encodeHeaderFieldParam(String input, Charset charset) {
+        Assert.notNull(input, "Input String should not be null");
+        Assert.notNull(charset, "Charset should not be null");
+        return charset.name().equals("US-ASCII")?input:HeaderFieldParamCodec.encode(input, charset);
     }
-}
 
+    private static final class ParsedValue {
+        final List<String> source;
+        final int version;
+        final Object value;
+
+        ParsedValue(List<String> source, int version, Object value) {
+            this.source = source;
+            this.version = version;
+            this.value = value;
+        }
+
+        // the parse result, of the type the accessor stored
+        @SuppressWarnings("unchecked")
+        <T> T value() {
+            return (T)this.value;
+        }
+    }
+}
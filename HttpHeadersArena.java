@@ -0,0 +1,128 @@
+package org.springframework.http;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.util.Assert;
+
+// Off-heap storage for large numbers of long-lived headers, such as those of cached
+// responses. store() packs the headers into direct memory chunks (in the layout of
+// HttpHeadersBinaryCodec) and returns a read-only HttpHeaders that materializes Strings
+// only when they are read, so a stored instance costs a few small heap objects.
+//
+// Memory is freed in bulk: reset() invalidates everything stored so far and reuses the
+// chunks, close() releases them. Stored headers must not be used afterwards; reads
+// then fail with an IllegalStateException. Stored headers may be read concurrently.
+public final class HttpHeadersArena implements Closeable {
+    public static final int DEFAULT_CHUNK_SIZE = 1048576;
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+    private final List<ByteBuffer> oversized = new ArrayList<ByteBuffer>();
+    private int chunkIndex;
+    private int chunkOffset;
+    private long usedBytes;
+    private boolean closed;
+    volatile int generation;
+
+    public HttpHeadersArena() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public HttpHeadersArena(int chunkSize) {
+        Assert.isTrue(chunkSize > 0, "\'chunkSize\' must be positive");
+        this.chunkSize = chunkSize;
+    }
+
+    // an immutable copy of the headers backed by this arena
+    public HttpHeaders store(HttpHeaders headers) {
+        Assert.notNull(headers, "\'headers\' must not be null");
+        byte[] entries = HttpHeadersBinaryCodec.encodeEntries(headers.getHeaderMap());
+        synchronized(this) {
+            if(this.closed) {
+                throw new IllegalStateException("HttpHeadersArena has been closed");
+            } else {
+                ByteBuffer chunk;
+                int offset;
+                if(entries.length > this.chunkSize) {
+                    // oversized entries get a buffer of their own and leave the current chunk as is
+                    chunk = ByteBuffer.allocateDirect(entries.length);
+                    this.oversized.add(chunk);
+                    offset = 0;
+                } else {
+                    chunk = this.currentChunk(entries.length);
+                    offset = this.chunkOffset;
+                    this.chunkOffset += entries.length;
+                }
+
+                ByteBuffer target = chunk.duplicate();
+                target.position(offset);
+                target.put(entries);
+                this.usedBytes += (long)entries.length;
+                return HttpHeaders.readOnlyView(new ArenaHeaderMap(this, chunk, offset, this.generation));
+            }
+        }
+    }
+
+    private ByteBuffer currentChunk(int length) {
+        if(this.chunks.isEmpty()) {
+            this.chunks.add(ByteBuffer.allocateDirect(this.chunkSize));
+        } else if(this.chunkOffset + length > this.chunkSize) {
+            ++this.chunkIndex;
+            if(this.chunkIndex == this.chunks.size()) {
+                this.chunks.add(ByteBuffer.allocateDirect(this.chunkSize));
+            }
+
+            this.chunkOffset = 0;
+        }
+
+        return this.chunks.get(this.chunkIndex);
+    }
+
+    // frees everything stored so far at once; the chunks are kept for reuse
+    public synchronized void reset() {
+        ++this.generation;
+        this.chunkIndex = 0;
+        this.chunkOffset = 0;
+        this.usedBytes = 0L;
+        this.oversized.clear();
+    }
+
+    // Invalidates everything stored and drops the chunks. The JDK offers no portable way
+    // to unmap a direct buffer, so their memory is returned once they are garbage collected.
+    public synchronized void close() {
+        ++this.generation;
+        this.closed = true;
+        this.chunkIndex = 0;
+        this.chunkOffset = 0;
+        this.usedBytes = 0L;
+        this.chunks.clear();
+        this.oversized.clear();
+    }
+
+    public synchronized boolean isClosed() {
+        return this.closed;
+    }
+
+    // bytes taken by headers stored since the last reset
+    public synchronized long getUsedBytes() {
+        return this.usedBytes;
+    }
+
+    // direct memory held by the arena
+    public synchronized long getAllocatedBytes() {
+        long allocated = (long)this.chunks.size() * (long)this.chunkSize;
+
+        for(int i = 0; i < this.oversized.size(); ++i) {
+            allocated += (long)this.oversized.get(i).capacity();
+        }
+
+        return allocated;
+    }
+
+    void checkGeneration(int generation) {
+        if(this.generation != generation) {
+            throw new IllegalStateException("Headers are no longer valid: their HttpHeadersArena has been reset or closed");
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package org.springframework.http;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+import org.springframework.util.Assert;
+
+// Compact binary form of HttpHeaders, also used for Java serialization:
+//
+//   version      1 byte (currently 1)
+//   length       4 bytes, size of the payload
+//   payload      flags (1 byte: read-only, frozen, strict validation, obs-text
+//                allowed, hash code caching, limits), with the limits flag the
+//                maximum header count, values per header and header bytes
+//                (varints), then the entry count (varint) and per entry a name code
+//                (1 byte: 1 + index of a well-known name in canonical spelling, or 0
+//                followed by a varint length and UTF-8 name), a value count (varint)
+//                and each value as varint length + 1 (0 for null) and UTF-8 bytes
+//   checksum     4 bytes, CRC-32 of the payload
+public final class HttpHeadersBinaryCodec {
+    public static final int VERSION = 1;
+    static final int FLAG_READ_ONLY = 1;
+    static final int FLAG_FROZEN = 2;
+    static final int FLAG_STRICT_VALIDATION = 4;
+    static final int FLAG_OBS_TEXT_ALLOWED = 8;
+    static final int FLAG_HASH_CODE_CACHING = 16;
+    static final int FLAG_LIMITS = 32;
+    private static final int FRAME_OVERHEAD = 9;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private HttpHeadersBinaryCodec() {
+    }
+
+    public static byte[] toByteArray(HttpHeaders headers) {
+        Assert.notNull(headers, "\'headers\' must not be null");
+        Encoder encoder = new Encoder();
+        encoder.writeFrame(headers);
+        return Arrays.copyOf(encoder.bytes, encoder.count);
+    }
+
+    // entry count and entries as in the payload, without flags and framing
+    static byte[] encodeEntries(Map<String, List<String>> map) {
+        Encoder encoder = new Encoder();
+        encoder.writeEntries(map);
+        return Arrays.copyOf(encoder.bytes, encoder.count);
+    }
+
+    public static void write(HttpHeaders headers, ByteBuffer buffer) {
+        Assert.notNull(buffer, "\'buffer\' must not be null");
+        Assert.notNull(headers, "\'headers\' must not be null");
+        Encoder encoder = new Encoder();
+        encoder.writeFrame(headers);
+        buffer.put(encoder.bytes, 0, encoder.count);
+    }
+
+    public static void write(HttpHeaders headers, DataOutput output) throws IOException {
+        Assert.notNull(output, "\'output\' must not be null");
+        Assert.notNull(headers, "\'headers\' must not be null");
+        Encoder encoder = new Encoder();
+        encoder.writeFrame(headers);
+        output.write(encoder.bytes, 0, encoder.count);
+    }
+
+    // consumes one frame; IllegalArgumentException if it is truncated, corrupt or of an unknown version
+    public static HttpHeaders read(ByteBuffer buffer) {
+        Assert.notNull(buffer, "\'buffer\' must not be null");
+        if(buffer.remaining() < FRAME_OVERHEAD) {
+            throw new IllegalArgumentException("Truncated HttpHeaders frame");
+        } else {
+            int start = buffer.position();
+            checkVersion(buffer.get(start));
+            int length = buffer.getInt(start + 1);
+            if(length >= 0 && length <= buffer.remaining() - FRAME_OVERHEAD) {
+                ByteBuffer payload = buffer.duplicate();
+                payload.position(start + 5).limit(start + 5 + length);
+                CRC32 crc = new CRC32();
+                crc.update(payload.duplicate());
+                if((int)crc.getValue() != buffer.getInt(start + 5 + length)) {
+                    throw new IllegalArgumentException("HttpHeaders frame checksum mismatch");
+                } else {
+                    HttpHeaders headers = decode(payload);
+                    buffer.position(start + FRAME_OVERHEAD + length);
+                    return headers;
+                }
+            } else {
+                throw new IllegalArgumentException("Truncated HttpHeaders frame");
+            }
+        }
+    }
+
+    public static HttpHeaders read(DataInput input) throws IOException {
+        Assert.notNull(input, "\'input\' must not be null");
+        int version = input.readUnsignedByte();
+        int length = input.readInt();
+        if(version != VERSION) {
+            throw new StreamCorruptedException("Unsupported HttpHeaders format version " + version);
+        } else if(length < 0) {
+            throw new StreamCorruptedException("Invalid HttpHeaders payload length " + length);
+        } else {
+            byte[] frame = new byte[FRAME_OVERHEAD + length];
+            frame[0] = (byte)version;
+            ByteBuffer.wrap(frame).putInt(1, length);
+            input.readFully(frame, 5, length + 4);
+
+            try {
+                return read(ByteBuffer.wrap(frame));
+            } catch (IllegalArgumentException var5) {
+                throw new StreamCorruptedException(var5.getMessage());
+            }
+        }
+    }
+
+    private static void checkVersion(int version) {
+        if(version != VERSION) {
+            throw new IllegalArgumentException("Unsupported HttpHeaders format version " + version);
+        }
+    }
+
+    private static HttpHeaders decode(ByteBuffer payload) {
+        try {
+            int flags = payload.get();
+            int maxHeaderCount = Integer.MAX_VALUE;
+            int maxValuesPerHeader = Integer.MAX_VALUE;
+            int maxHeaderBytes = Integer.MAX_VALUE;
+            if((flags & FLAG_LIMITS) != 0) {
+                maxHeaderCount = readLimit(payload);
+                maxValuesPerHeader = readLimit(payload);
+                maxHeaderBytes = readLimit(payload);
+            }
+
+            int count = readCount(payload);
+            IndexedHeaderMap map = new IndexedHeaderMap();
+
+            for(int i = 0; i < count; ++i) {
+                int code = payload.get() & 255;
+                String name;
+                if(code == 0) {
+                    name = readString(payload, readCount(payload));
+                } else {
+                    if(code > HttpHeaderNames.COUNT) {
+                        throw new IllegalArgumentException("Unknown header name code " + code);
+                    }
+
+                    name = HttpHeaderNames.NAMES[code - 1];
+                }
+
+                int valueCount = readCount(payload);
+                HeaderValueList values = new HeaderValueList();
+
+                for(int j = 0; j < valueCount; ++j) {
+                    int length = readCount(payload);
+                    values.add(length == 0?null:readString(payload, length - 1));
+                }
+
+                map.put(name, values);
+            }
+
+            if(payload.hasRemaining()) {
+                throw new IllegalArgumentException("Unexpected bytes after HttpHeaders payload");
+            } else {
+                HttpHeaders headers = HttpHeaders.fromDecodedMap(map, (flags & FLAG_READ_ONLY) != 0, (flags & FLAG_FROZEN) != 0);
+                headers.setStrictValidation((flags & FLAG_STRICT_VALIDATION) != 0);
+                headers.setObsTextAllowed((flags & FLAG_OBS_TEXT_ALLOWED) != 0);
+                headers.setHashCodeCaching((flags & FLAG_HASH_CODE_CACHING) != 0);
+                headers.setMaxHeaderCount(maxHeaderCount);
+                headers.setMaxValuesPerHeader(maxValuesPerHeader);
+                headers.setMaxHeaderBytes(maxHeaderBytes);
+                return headers;
+            }
+        } catch (BufferUnderflowException var9) {
+            throw new IllegalArgumentException("Truncated HttpHeaders payload");
+        }
+    }
+
+    // a varint that cannot exceed the remaining payload, so corrupt input cannot trigger large allocations
+    private static int readCount(ByteBuffer payload) {
+        int value = 0;
+
+        for(int shift = 0; shift < 32; shift += 7) {
+            int b = payload.get();
+            value |= (b & 127) << shift;
+            if(b >= 0) {
+                if(value >= 0 && value <= payload.remaining() + 1) {
+                    return value;
+                }
+
+                throw new IllegalArgumentException("Invalid length " + (value & 4294967295L) + " in HttpHeaders payload");
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid varint in HttpHeaders payload");
+    }
+
+    private static int readLimit(ByteBuffer payload) {
+        int value = 0;
+
+        for(int shift = 0; shift < 32; shift += 7) {
+            int b = payload.get();
+            value |= (b & 127) << shift;
+            if(b >= 0) {
+                if(value > 0) {
+                    return value;
+                }
+
+                throw new IllegalArgumentException("Invalid limit " + (value & 4294967295L) + " in HttpHeaders payload");
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid varint in HttpHeaders payload");
+    }
+
+    private static String readString(ByteBuffer payload, int length) {
+        if(length > payload.remaining()) {
+            throw new BufferUnderflowException();
+        } else {
+            String value;
+            if(payload.hasArray()) {
+                value = new String(payload.array(), payload.arrayOffset() + payload.position(), length, UTF_8);
+            } else {
+                byte[] bytes = new byte[length];
+                payload.duplicate().get(bytes);
+                value = new String(bytes, UTF_8);
+            }
+
+            payload.position(payload.position() + length);
+            return value;
+        }
+    }
+
+    private static final class Encoder {
+        byte[] bytes = new byte[256];
+        int count;
+
+        void writeFrame(HttpHeaders headers) {
+            this.ensureCapacity(5);
+            this.bytes[0] = (byte)VERSION;
+            this.count = 5;
+            int flags = headers.getSerializationFlags();
+            this.writeByte(flags);
+            if((flags & FLAG_LIMITS) != 0) {
+                this.writeVarint(headers.getMaxHeaderCount());
+                this.writeVarint(headers.getMaxValuesPerHeader());
+                this.writeVarint(headers.getMaxHeaderBytes());
+            }
+
+            this.writeEntries(headers.getHeaderMap());
+            int length = this.count - 5;
+            CRC32 crc = new CRC32();
+            crc.update(this.bytes, 5, length);
+            ByteBuffer.wrap(this.bytes).putInt(1, length);
+            this.ensureCapacity(4);
+            ByteBuffer.wrap(this.bytes).putInt(this.count, (int)crc.getValue());
+            this.count += 4;
+        }
+
+        void writeEntries(Map<String, List<String>> map) {
+            this.writeVarint(map.size());
+            Iterator<Entry<String, List<String>>> var3 = map.entrySet().iterator();
+
+            while(var3.hasNext()) {
+                Entry<String, List<String>> entry = var3.next();
+                String name = (String)entry.getKey();
+                int index = HttpHeaderNames.indexOf(name);
+                if(index >= 0 && HttpHeaderNames.NAMES[index].equals(name)) {
+                    this.writeByte(index + 1);
+                } else {
+                    this.writeByte(0);
+                    this.writeString(name, 0);
+                }
+
+                List<String> values = entry.getValue();
+                if(values == null) {
+                    this.writeVarint(0);
+                } else {
+                    this.writeVarint(values.size());
+                    Iterator var8 = values.iterator();
+
+                    while(var8.hasNext()) {
+                        String value = (String)var8.next();
+                        if(value == null) {
+                            this.writeByte(0);
+                        } else {
+                            this.writeString(value, 1);
+                        }
+                    }
+                }
+            }
+
+        }
+
+        private void writeString(String value, int lengthBias) {
+            int length = value.length();
+            int i = 0;
+
+            while(i < length && value.charAt(i) < 128) {
+                ++i;
+            }
+
+            if(i == length) {
+                this.writeVarint(length + lengthBias);
+                this.ensureCapacity(length);
+
+                for(i = 0; i < length; ++i) {
+                    this.bytes[this.count++] = (byte)value.charAt(i);
+                }
+            } else {
+                byte[] encoded = value.getBytes(UTF_8);
+                this.writeVarint(encoded.length + lengthBias);
+                this.ensureCapacity(encoded.length);
+                System.arraycopy(encoded, 0, this.bytes, this.count, encoded.length);
+                this.count += encoded.length;
+            }
+
+        }
+
+        private void writeVarint(int value) {
+            this.ensureCapacity(5);
+
+            while((value & -128) != 0) {
+                this.bytes[this.count++] = (byte)(value & 127 | 128);
+                value >>>= 7;
+            }
+
+            this.bytes[this.count++] = (byte)value;
+        }
+
+        private void writeByte(int value) {
+            this.ensureCapacity(1);
+            this.bytes[this.count++] = (byte)value;
+        }
+
+        private void ensureCapacity(int additional) {
+            if(this.count + additional > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length << 1, this.count + additional));
+            }
+
+        }
+    }
+
+    // Stands in for HttpHeaders in Java serialization streams (see HttpHeaders.writeReplace)
+    static final class SerializedForm implements Externalizable {
+        private static final long serialVersionUID = 1L;
+        private HttpHeaders headers;
+
+        public SerializedForm() {
+        }
+
+        SerializedForm(HttpHeaders headers) {
+            this.headers = headers;
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            HttpHeadersBinaryCodec.write(this.headers, out);
+        }
+
+        public void readExternal(ObjectInput in) throws IOException {
+            this.headers = HttpHeadersBinaryCodec.read(in);
+        }
+
+        private Object readResolve() {
+            return this.headers;
+        }
+    }
+}
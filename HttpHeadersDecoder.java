@@ -0,0 +1,114 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.springframework.util.Assert;
+
+public class HttpHeadersDecoder {
+    private final HttpHeadersParser parser;
+    private HttpHeaders headers;
+    private byte[] pending = new byte[0];
+    private ByteBuffer pendingBuffer;
+    private int pendingLength;
+    private Status status;
+    private String errorMessage;
+
+    public HttpHeadersDecoder() {
+        this(new HttpHeadersParser(), new HttpHeaders());
+    }
+
+    public HttpHeadersDecoder(HttpHeadersParser parser, HttpHeaders headers) {
+        Assert.notNull(parser, "\'parser\' must not be null");
+        Assert.notNull(headers, "\'headers\' must not be null");
+        this.parser = parser;
+        this.headers = headers;
+        this.pendingBuffer = ByteBuffer.wrap(this.pending);
+        this.status = Status.NEED_MORE_INPUT;
+    }
+
+    public Status decode(ByteBuffer chunk) {
+        Assert.notNull(chunk, "\'chunk\' must not be null");
+        if(this.status != Status.NEED_MORE_INPUT) {
+            return this.status;
+        } else {
+            try {
+                int position = chunk.position();
+                int limit = chunk.limit();
+
+                while(position < limit && this.status == Status.NEED_MORE_INPUT) {
+                    int lineFeed = this.parser.findLineFeed(chunk, position, limit, this.pendingLength);
+                    if(lineFeed == -1) {
+                        this.append(chunk, position, limit);
+                        position = limit;
+                    } else if(this.pendingLength == 0) {
+                        this.processLine(chunk, position, lineFeed);
+                        position = lineFeed + 1;
+                    } else {
+                        this.append(chunk, position, lineFeed + 1);
+                        position = lineFeed + 1;
+                        this.processLine(this.pendingBuffer, 0, this.pendingLength - 1);
+                        this.pendingLength = 0;
+                    }
+
+                    chunk.position(position);
+                }
+            } catch (IllegalArgumentException var5) {
+                this.status = Status.ERROR;
+                this.errorMessage = var5.getMessage();
+            }
+
+            return this.status;
+        }
+    }
+
+    private void processLine(ByteBuffer buffer, int lineStart, int lineFeed) {
+        int lineEnd = HttpHeadersParser.lineEnd(buffer, lineStart, lineFeed);
+        this.parser.checkLineLength(lineEnd - lineStart);
+        if(lineEnd == lineStart) {
+            this.status = Status.COMPLETE;
+        } else {
+            HttpHeadersParser.parseLine(buffer, lineStart, lineEnd, this.headers);
+        }
+
+    }
+
+    private void append(ByteBuffer chunk, int start, int end) {
+        int length = end - start;
+        if(this.pendingLength + length > this.pending.length) {
+            this.pending = Arrays.copyOf(this.pending, Math.max(this.pendingLength + length, this.pending.length << 1));
+            this.pendingBuffer = ByteBuffer.wrap(this.pending);
+        }
+
+        for(int i = 0; i < length; ++i) {
+            this.pending[this.pendingLength + i] = chunk.get(start + i);
+        }
+
+        this.pendingLength += length;
+    }
+
+    public HttpHeaders getHeaders() {
+        return this.headers;
+    }
+
+    public Status getStatus() {
+        return this.status;
+    }
+
+    public String getErrorMessage() {
+        return this.errorMessage;
+    }
+
+    public void reset(HttpHeaders headers) {
+        Assert.notNull(headers, "\'headers\' must not be null");
+        this.headers = headers;
+        this.pendingLength = 0;
+        this.status = Status.NEED_MORE_INPUT;
+        this.errorMessage = null;
+    }
+
+    public static enum Status {
+        COMPLETE,
+        NEED_MORE_INPUT,
+        ERROR;
+    }
+}
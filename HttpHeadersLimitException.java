@@ -0,0 +1,12 @@
+package org.springframework.http;
+
+// Thrown when a write would take HttpHeaders past one of the limits set on it, such as
+// for a request with too many or too large headers (status 431 in RFC 6585). It is an
+// IllegalArgumentException, so that parsers report it like any other malformed input.
+public class HttpHeadersLimitException extends IllegalArgumentException {
+    private static final long serialVersionUID = 4018250213469781596L;
+
+    public HttpHeadersLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,250 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import org.springframework.util.Assert;
+
+public class HttpHeadersParser {
+    public static final int DEFAULT_MAX_LINE_LENGTH = 8192;
+    static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    private static final String INCOMPLETE_BLOCK = "Incomplete header block: no empty line at end of buffer";
+    private int maxLineLength = DEFAULT_MAX_LINE_LENGTH;
+
+    public void setMaxLineLength(int maxLineLength) {
+        Assert.isTrue(maxLineLength > 0, "\'maxLineLength\' must be greater than 0");
+        this.maxLineLength = maxLineLength;
+    }
+
+    public int getMaxLineLength() {
+        return this.maxLineLength;
+    }
+
+    public HttpHeaders parse(ByteBuffer buffer) {
+        HttpHeaders headers = new HttpHeaders();
+        this.parse(buffer, headers);
+        return headers;
+    }
+
+    // Parses the field lines of a complete block, up to and including the empty line that
+    // ends it; a block that may arrive in parts is for HttpHeadersDecoder.
+    public void parse(ByteBuffer buffer, HttpHeaders headers) {
+        Assert.notNull(buffer, "\'buffer\' must not be null");
+        Assert.notNull(headers, "\'headers\' must not be null");
+        int position = buffer.position();
+        int limit = buffer.limit();
+
+        while(position < limit) {
+            int lineFeed = this.findLineFeed(buffer, position, limit, 0);
+            if(lineFeed == -1) {
+                throw new IllegalArgumentException("Incomplete header line at end of buffer");
+            }
+
+            int lineEnd = lineEnd(buffer, position, lineFeed);
+            this.checkLineLength(lineEnd - position);
+            if(lineEnd == position) {
+                buffer.position(lineFeed + 1);
+                return;
+            }
+
+            parseLine(buffer, position, lineEnd, headers);
+            position = lineFeed + 1;
+            buffer.position(position);
+        }
+
+        throw new IllegalArgumentException(INCOMPLETE_BLOCK);
+    }
+
+    // Validates the header block like parse(), but keeps a copy of its bytes with an index of
+    // the lines and turns names and values into Strings only when they are read; for
+    // handlers that look at a few of many headers. The first write through the returned
+    // instance parses the remaining headers into a regular mutable store.
+    public HttpHeaders parseLazily(ByteBuffer buffer) {
+        return this.parseLazily(buffer, (HttpHeaders)null);
+    }
+
+    // As parseLazily(ByteBuffer), with the settings of the template. The byte limit, and the
+    // number of lines that names times values per name allow, are enforced while the lines
+    // are indexed, before the block is copied; the limits on names and values per name when
+    // the lines are grouped by name. Strict validation without obs-text rejects obs-text in
+    // values. The returned headers keep these settings; the contents of the template are
+    // not used.
+    public HttpHeaders parseLazily(ByteBuffer buffer, HttpHeaders template) {
+        Assert.notNull(buffer, "'buffer' must not be null");
+        int maxHeaderCount = template != null?template.getMaxHeaderCount():Integer.MAX_VALUE;
+        int maxValuesPerHeader = template != null?template.getMaxValuesPerHeader():Integer.MAX_VALUE;
+        int maxHeaderBytes = template != null?template.getMaxHeaderBytes():Integer.MAX_VALUE;
+        boolean obsTextAllowed = template == null || !template.isStrictValidation() || template.isObsTextAllowed();
+        // no more lines than names times values per name can be within the limits
+        long maxLines = (long)maxHeaderCount * (long)maxValuesPerHeader;
+        long headerBytes = 0L;
+        int blockStart = buffer.position();
+        int blockEnd = blockStart;
+        int position = blockStart;
+        int limit = buffer.limit();
+        int[] lines = new int[32 * LazyHeaderMap.LINE_STRIDE];
+        int lineCount = 0;
+        boolean complete = false;
+
+        while(position < limit) {
+            int lineFeed = this.findLineFeed(buffer, position, limit, 0);
+            if(lineFeed == -1) {
+                throw new IllegalArgumentException("Incomplete header line at end of buffer");
+            }
+
+            int lineEnd = lineEnd(buffer, position, lineFeed);
+            this.checkLineLength(lineEnd - position);
+            if(lineEnd == position) {
+                buffer.position(lineFeed + 1);
+                complete = true;
+                break;
+            }
+
+            int nameEnd = checkLine(buffer, position, lineEnd, obsTextAllowed);
+            int valueStart = valueStart(buffer, nameEnd, lineEnd);
+            int valueEnd = valueEnd(buffer, valueStart, lineEnd);
+            headerBytes += (long)(nameEnd - position + valueEnd - valueStart);
+            if(headerBytes > (long)maxHeaderBytes) {
+                throw new HttpHeadersLimitException("Header \'" + decode(buffer, position, nameEnd) + "\' exceeds the limit of " + maxHeaderBytes + " bytes for all headers");
+            }
+
+            if((long)lineCount >= maxLines) {
+                throw new HttpHeadersLimitException("Header \'" + decode(buffer, position, nameEnd) + "\' exceeds the limit of " + maxHeaderCount + " headers with " + maxValuesPerHeader + " values each");
+            }
+
+            if((lineCount + 1) * LazyHeaderMap.LINE_STRIDE > lines.length) {
+                lines = Arrays.copyOf(lines, lines.length << 1);
+            }
+
+            int base = lineCount * LazyHeaderMap.LINE_STRIDE;
+            lines[base] = position - blockStart;
+            lines[base + 1] = nameEnd - blockStart;
+            lines[base + 2] = valueStart - blockStart;
+            lines[base + 3] = valueEnd - blockStart;
+            lines[base + 4] = HttpHeaderNames.indexOf(buffer, position, nameEnd);
+            ++lineCount;
+            blockEnd = lineEnd;
+            position = lineFeed + 1;
+            buffer.position(position);
+        }
+
+        if(!complete) {
+            throw new IllegalArgumentException(INCOMPLETE_BLOCK);
+        }
+
+        // a copy, as the buffer is typically reused for the next message
+        byte[] block = new byte[blockEnd - blockStart];
+        ByteBuffer source = buffer.duplicate();
+        source.limit(blockEnd).position(blockStart);
+        source.get(block);
+        return HttpHeaders.fromLazyMap(new LazyHeaderMap(block, lines, lineCount, maxHeaderCount, maxValuesPerHeader), template);
+    }
+
+    int findLineFeed(ByteBuffer buffer, int from, int limit, int scanned) {
+        int end = Math.min(limit, from + this.maxLineLength + 2 - scanned);
+
+        for(int i = from; i < end; ++i) {
+            if(buffer.get(i) == 10) {
+                return i;
+            }
+        }
+
+        if(end < limit || scanned + (end - from) >= this.maxLineLength + 2) {
+            throw new IllegalArgumentException("Header line exceeds the limit of " + this.maxLineLength + " bytes");
+        } else {
+            return -1;
+        }
+    }
+
+    void checkLineLength(int length) {
+        if(length > this.maxLineLength) {
+            throw new IllegalArgumentException("Header line exceeds the limit of " + this.maxLineLength + " bytes");
+        }
+    }
+
+    static int lineEnd(ByteBuffer buffer, int lineStart, int lineFeed) {
+        return lineFeed > lineStart && buffer.get(lineFeed - 1) == 13?lineFeed - 1:lineFeed;
+    }
+
+    static void parseLine(ByteBuffer buffer, int start, int end, HttpHeaders headers) {
+        int nameEnd = checkLine(buffer, start, end);
+        int valueStart = valueStart(buffer, nameEnd, end);
+        int valueEnd = valueEnd(buffer, valueStart, end);
+        int index = HttpHeaderNames.indexOf(buffer, start, nameEnd);
+        String name = index >= 0?HttpHeaderNames.NAMES[index]:decode(buffer, start, nameEnd);
+        headers.add(name, decode(buffer, valueStart, valueEnd));
+    }
+
+    static int checkLine(ByteBuffer buffer, int start, int end) {
+        return checkLine(buffer, start, end, true);
+    }
+
+    // validates a field line and returns the end of its name, where the colon is
+    static int checkLine(ByteBuffer buffer, int start, int end, boolean obsTextAllowed) {
+        byte first = buffer.get(start);
+        if(first != 32 && first != 9) {
+            int nameEnd;
+            for(nameEnd = start; nameEnd < end && HttpHeaderValidator.TCHAR[buffer.get(nameEnd) & 255]; ++nameEnd) {
+                ;
+            }
+
+            if(nameEnd != start && nameEnd != end && buffer.get(nameEnd) == 58) {
+                int valueStart = valueStart(buffer, nameEnd, end);
+                int invalid = HttpHeaderValidator.invalidValueIndex(buffer, valueStart, valueEnd(buffer, valueStart, end), obsTextAllowed);
+                if(invalid >= 0) {
+                    int b = buffer.get(invalid) & 255;
+                    throw new IllegalArgumentException(b == 13?"Bare CR in header value":"Invalid character 0x" + Integer.toHexString(b) + " in header value");
+                } else {
+                    return nameEnd;
+                }
+            } else if(nameEnd != end && isWhitespace(buffer.get(nameEnd))) {
+                throw new IllegalArgumentException("Whitespace between header name and colon");
+            } else if(nameEnd != end && buffer.get(nameEnd) == 13) {
+                throw new IllegalArgumentException("Bare CR in header name");
+            } else {
+                throw new IllegalArgumentException("Invalid header name");
+            }
+        } else {
+            throw new IllegalArgumentException("Obsolete line folding (obs-fold) is not supported");
+        }
+    }
+
+    private static int valueStart(ByteBuffer buffer, int nameEnd, int end) {
+        int valueStart;
+        for(valueStart = nameEnd + 1; valueStart < end && isWhitespace(buffer.get(valueStart)); ++valueStart) {
+            ;
+        }
+
+        return valueStart;
+    }
+
+    private static int valueEnd(ByteBuffer buffer, int valueStart, int end) {
+        int valueEnd;
+        for(valueEnd = end; valueEnd > valueStart && isWhitespace(buffer.get(valueEnd - 1)); --valueEnd) {
+            ;
+        }
+
+        return valueEnd;
+    }
+
+    static String decode(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if(length == 0) {
+            return "";
+        } else if(buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, length, ISO_8859_1);
+        } else {
+            byte[] bytes = new byte[length];
+
+            for(int i = 0; i < length; ++i) {
+                bytes[i] = buffer.get(start + i);
+            }
+
+            return new String(bytes, ISO_8859_1);
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == 32 || b == 9;
+    }
+}
@@ -0,0 +1,137 @@
+package org.springframework.http;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+// A bounded pool of HttpHeaders that are reset() on release, with strict validation, limits
+// and hash code caching back at their defaults. One instance can be kept per connection,
+// or shared by the threads of a server: lookups start at a slot derived from the current
+// thread, use no ThreadLocal and never block, so virtual threads are fine.
+public class HttpHeadersPool {
+    private static final Log logger = LogFactory.getLog(HttpHeadersPool.class);
+    // the pool state of released headers; acquired ones have none or their LeakRecord
+    private static final Object RELEASED = new Object();
+    private final AtomicReferenceArray<HttpHeaders> slots;
+    private final boolean leakDetection;
+    private final Set<LeakRecord> outstanding;
+    private final ReferenceQueue<HttpHeaders> released;
+    private final AtomicInteger leakCount = new AtomicInteger();
+
+    public HttpHeadersPool(int capacity) {
+        this(capacity, logger.isDebugEnabled());
+    }
+
+    public HttpHeadersPool(int capacity, boolean leakDetection) {
+        Assert.isTrue(capacity > 0, "\'capacity\' must be greater than 0");
+        this.slots = new AtomicReferenceArray<HttpHeaders>(capacity);
+        this.leakDetection = leakDetection;
+        this.outstanding = leakDetection?Collections.newSetFromMap(new ConcurrentHashMap<LeakRecord, Boolean>()):null;
+        this.released = leakDetection?new ReferenceQueue<HttpHeaders>():null;
+    }
+
+    public HttpHeaders acquire() {
+        HttpHeaders headers = null;
+        int length = this.slots.length();
+        int start = this.startSlot(length);
+
+        for(int i = 0; i < length && headers == null; ++i) {
+            int slot = (start + i) % length;
+            if(this.slots.get(slot) != null) {
+                headers = (HttpHeaders)this.slots.getAndSet(slot, (HttpHeaders)null);
+            }
+        }
+
+        if(headers == null) {
+            headers = new HttpHeaders();
+        }
+
+        if(this.leakDetection) {
+            this.reportLeaks();
+            LeakRecord record = new LeakRecord(headers, this.released);
+            this.outstanding.add(record);
+            headers.poolState = record;
+        } else {
+            headers.poolState = null;
+        }
+
+        return headers;
+    }
+
+    // The headers must not be used by the caller afterwards; when the pool is full they are
+    // dropped. Releasing the same headers twice without acquiring them in between fails.
+    public void release(HttpHeaders headers) {
+        Assert.notNull(headers, "\'headers\' must not be null");
+        if(headers.poolState == RELEASED) {
+            throw new IllegalStateException("HttpHeaders have already been released");
+        }
+
+        if(this.leakDetection) {
+            this.reportLeaks();
+            this.untrack(headers);
+        }
+
+        headers.reset();
+        headers.resetSettings();
+        headers.poolState = RELEASED;
+        int length = this.slots.length();
+        int start = this.startSlot(length);
+
+        for(int i = 0; i < length; ++i) {
+            int slot = (start + i) % length;
+            if(this.slots.get(slot) == null && this.slots.compareAndSet(slot, (HttpHeaders)null, headers)) {
+                return;
+            }
+        }
+
+    }
+
+    // number of acquired instances that were garbage collected without being released
+    public int getLeakCount() {
+        if(this.leakDetection) {
+            this.reportLeaks();
+        }
+
+        return this.leakCount.get();
+    }
+
+    private int startSlot(int length) {
+        long id = Thread.currentThread().getId();
+        return (int)((id * -7046029254386353131L >>> 33) % (long)length);
+    }
+
+    private void untrack(HttpHeaders headers) {
+        Object record = headers.poolState;
+        if(!(record instanceof LeakRecord) || !this.outstanding.remove(record)) {
+            throw new IllegalStateException("HttpHeaders were not acquired from this pool");
+        }
+
+        ((LeakRecord)record).clear();
+    }
+
+    private void reportLeaks() {
+        LeakRecord record;
+        while((record = (LeakRecord)this.released.poll()) != null) {
+            if(this.outstanding.remove(record)) {
+                this.leakCount.incrementAndGet();
+                logger.error("HttpHeaders acquired from the pool were garbage collected without being released", record.acquiredAt);
+            }
+        }
+
+    }
+
+    private static final class LeakRecord extends WeakReference<HttpHeaders> {
+        final Throwable acquiredAt = new Throwable("HttpHeaders acquired here");
+
+        LeakRecord(HttpHeaders headers, ReferenceQueue<HttpHeaders> queue) {
+            super(headers, queue);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.springframework.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.springframework.util.Assert;
+
+public class HttpHeadersWriter {
+    private static final byte[] SEPARATOR = new byte[]{58, 32};
+    private static final byte[] CRLF = new byte[]{13, 10};
+    private static final int NAME = 0;
+    private static final int SEPARATOR_PHASE = 1;
+    private static final int VALUE = 2;
+    private static final int LINE_END = 3;
+    private static final int PREFIX = 4;
+    private final Iterator<Entry<String, List<String>>> entries;
+    // pre-encoded lines of a frozen base, written before the entries
+    private byte[] prefix;
+    private String name;
+    private byte[] nameBytes;
+    private List<String> values;
+    private int valueIndex;
+    private String value;
+    private int phase;
+    private int offset;
+    private boolean complete;
+    // whether the buffer of writeTo(WritableByteChannel, ByteBuffer) holds unwritten bytes
+    private boolean draining;
+
+    public HttpHeadersWriter(HttpHeaders headers) {
+        Assert.notNull(headers, "\'headers\' must not be null");
+        Map<String, List<String>> map = headers.getHeaderMap();
+        CopyOnWriteHeaderMap layered = map instanceof CopyOnWriteHeaderMap?(CopyOnWriteHeaderMap)map:null;
+        if(map instanceof FrozenHeaderMap) {
+            this.prefix = ((FrozenHeaderMap)map).getEncoded();
+            this.entries = Collections.emptyIterator();
+        } else if(layered != null && layered.getBase() instanceof FrozenHeaderMap && !layered.hasChanges()) {
+            // the frozen base is untouched, so only the headers added on top need encoding
+            this.prefix = ((FrozenHeaderMap)layered.getBase()).getEncoded();
+            this.entries = layered.additionsIterator();
+        } else {
+            this.entries = map.entrySet().iterator();
+        }
+
+        this.start();
+    }
+
+    private HttpHeadersWriter(Map<String, List<String>> headers) {
+        this.entries = headers.entrySet().iterator();
+        this.start();
+    }
+
+    private void start() {
+        if(this.prefix != null && this.prefix.length > 0) {
+            this.advance(PREFIX);
+        } else {
+            this.complete = !this.nextLine();
+        }
+
+    }
+
+    static byte[] encode(Map<String, List<String>> headers) {
+        HttpHeadersWriter writer = new HttpHeadersWriter(headers);
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+
+        while(!writer.writeTo(buffer)) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() << 1);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public boolean writeTo(ByteBuffer buffer) {
+        Assert.notNull(buffer, "\'buffer\' must not be null");
+
+        while(!this.complete && buffer.hasRemaining()) {
+            switch(this.phase) {
+            case NAME:
+                this.offset = this.nameBytes != null?putBytes(buffer, this.nameBytes, this.offset):putChars(buffer, this.name, this.offset);
+                if(this.offset == (this.nameBytes != null?this.nameBytes.length:this.name.length())) {
+                    this.advance(SEPARATOR_PHASE);
+                }
+                break;
+            case SEPARATOR_PHASE:
+                this.offset = putBytes(buffer, SEPARATOR, this.offset);
+                if(this.offset == SEPARATOR.length) {
+                    this.advance(VALUE);
+                }
+                break;
+            case VALUE:
+                this.offset = putChars(buffer, this.value, this.offset);
+                if(this.offset == this.value.length()) {
+                    this.advance(LINE_END);
+                }
+                break;
+            case PREFIX:
+                this.offset = putBytes(buffer, this.prefix, this.offset);
+                if(this.offset == this.prefix.length) {
+                    this.complete = !this.nextLine();
+                }
+                break;
+            default:
+                this.offset = putBytes(buffer, CRLF, this.offset);
+                if(this.offset == CRLF.length) {
+                    this.complete = !this.nextLine();
+                }
+            }
+        }
+
+        return this.complete;
+    }
+
+    // Writes the remaining lines to the channel through the given buffer. Returns true once
+    // everything is written, and false when a non-blocking channel takes no more bytes: the
+    // buffer then keeps what is still to be written, and the call is to be repeated with
+    // the same buffer once the channel is writable again. A blocking channel always
+    // completes in one call.
+    public boolean writeTo(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        Assert.notNull(channel, "\'channel\' must not be null");
+        Assert.notNull(buffer, "\'buffer\' must not be null");
+        Assert.isTrue(buffer.capacity() > 0, "\'buffer\' must have a capacity greater than 0");
+
+        while(true) {
+            if(!this.draining) {
+                if(this.complete) {
+                    return true;
+                }
+
+                buffer.clear();
+                this.writeTo(buffer);
+                buffer.flip();
+                this.draining = true;
+            }
+
+            while(buffer.hasRemaining()) {
+                if(channel.write(buffer) == 0) {
+                    return false;
+                }
+            }
+
+            this.draining = false;
+        }
+    }
+
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    private void advance(int phase) {
+        this.phase = phase;
+        this.offset = 0;
+    }
+
+    // null values are skipped, as are names that end up without any value
+    private boolean nextLine() {
+        if(this.values != null) {
+            while(++this.valueIndex < this.values.size()) {
+                this.value = (String)this.values.get(this.valueIndex);
+                if(this.value != null) {
+                    this.advance(NAME);
+                    return true;
+                }
+            }
+        }
+
+        while(this.entries.hasNext()) {
+            Entry<String, List<String>> entry = this.entries.next();
+            this.values = entry.getValue();
+            if(this.values != null) {
+                this.name = (String)entry.getKey();
+                int index = HttpHeaderNames.indexOf(this.name);
+                this.nameBytes = index >= 0 && HttpHeaderNames.NAMES[index].equals(this.name)?HttpHeaderNames.NAME_BYTES[index]:null;
+                this.valueIndex = -1;
+
+                while(++this.valueIndex < this.values.size()) {
+                    this.value = (String)this.values.get(this.valueIndex);
+                    if(this.value != null) {
+                        this.advance(NAME);
+                        return true;
+                    }
+                }
+            }
+        }
+
+        this.values = null;
+        this.value = null;
+        return false;
+    }
+
+    private static int putBytes(ByteBuffer buffer, byte[] bytes, int offset) {
+        int length = Math.min(buffer.remaining(), bytes.length - offset);
+        buffer.put(bytes, offset, length);
+        return offset + length;
+    }
+
+    // ISO-8859-1 without a CharsetEncoder; characters outside of it are written as '?'
+    static int putChars(ByteBuffer buffer, String chars, int offset) {
+        int end = offset + Math.min(buffer.remaining(), chars.length() - offset);
+        if(buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int arrayPosition = buffer.arrayOffset() + buffer.position();
+
+            for(int i = offset; i < end; ++i) {
+                char c = chars.charAt(i);
+                array[arrayPosition++] = c <= 255?(byte)c:63;
+            }
+
+            buffer.position(buffer.position() + end - offset);
+        } else {
+            for(int i = offset; i < end; ++i) {
+                char c = chars.charAt(i);
+                buffer.put(c <= 255?(byte)c:63);
+            }
+        }
+
+        return end;
+    }
+}
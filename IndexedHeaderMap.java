@@ -0,0 +1,444 @@
+package org.springframework.http;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Map.Entry;
+
+class IndexedHeaderMap extends AbstractMap<String, List<String>> implements Serializable {
+    private static final long serialVersionUID = 2437562913436538475L;
+    private transient Node[] slots;
+    // Custom names in a chained table under HttpHeaderNames.seededHashIgnoreCase(), so
+    // that no one can send names that all land in one bucket.
+    private transient Node[] customTable;
+    private transient int customCount;
+    private transient Node head;
+    private transient Node tail;
+    private transient int size;
+    transient int modCount;
+    // nodes left over from reset(), reused without their value lists: well-known names
+    // by index, custom names as a free list linked through 'after'
+    private transient Node[] recycled;
+    private transient Node recycledCustom;
+
+    IndexedHeaderMap() {
+        this.slots = new Node[HttpHeaderNames.COUNT];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return key instanceof String && this.getNode((String)key) != null;
+    }
+
+    public List<String> get(Object key) {
+        if(key instanceof String) {
+            Node node = this.getNode((String)key);
+            return node != null?node.value:null;
+        } else {
+            return null;
+        }
+    }
+
+    public List<String> put(String key, List<String> value) {
+        int index = HttpHeaderNames.indexOf(key);
+        int hash = index >= 0?0:HttpHeaderNames.seededHashIgnoreCase(key);
+        Node node = index >= 0?this.slots[index]:this.getCustomNode(key, hash);
+        if(node != null) {
+            List<String> oldValue = node.value;
+            node.value = value;
+            if(!node.key.equals(key)) {
+                // same as LinkedCaseInsensitiveMap: a new spelling replaces the key and moves it to the end
+                // (a structural change, unlike replacing the value of a present key)
+                node.key = key;
+                this.unlink(node);
+                this.linkLast(node);
+                ++this.modCount;
+            }
+
+            return oldValue;
+        } else {
+            node = this.newNode(key, index, value);
+            if(index >= 0) {
+                this.slots[index] = node;
+            } else {
+                node.hash = hash;
+                this.addCustomNode(node);
+            }
+
+            this.linkLast(node);
+            ++this.size;
+            ++this.modCount;
+            return null;
+        }
+    }
+
+    public List<String> remove(Object key) {
+        if(key instanceof String) {
+            Node node = this.getNode((String)key);
+            if(node != null) {
+                this.removeNode(node);
+                return node.value;
+            }
+        }
+
+        return null;
+    }
+
+    public void clear() {
+        if(this.size > 0) {
+            Arrays.fill(this.slots, (Object)null);
+            this.customTable = null;
+            this.customCount = 0;
+            this.head = null;
+            this.tail = null;
+            this.size = 0;
+            ++this.modCount;
+        }
+
+    }
+
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            public Iterator<String> iterator() {
+                return new NodeIterator<String>() {
+                    public String next() {
+                        return this.nextNode().key;
+                    }
+                };
+            }
+
+            public int size() {
+                return IndexedHeaderMap.this.size;
+            }
+
+            public boolean contains(Object key) {
+                return IndexedHeaderMap.this.containsKey(key);
+            }
+
+            public boolean remove(Object key) {
+                return IndexedHeaderMap.this.remove(key) != null;
+            }
+
+            public void clear() {
+                IndexedHeaderMap.this.clear();
+            }
+        };
+    }
+
+    public Set<Entry<String, List<String>>> entrySet() {
+        return new AbstractSet<Entry<String, List<String>>>() {
+            public Iterator<Entry<String, List<String>>> iterator() {
+                return new NodeIterator<Entry<String, List<String>>>() {
+                    public Entry<String, List<String>> next() {
+                        return this.nextNode();
+                    }
+                };
+            }
+
+            public int size() {
+                return IndexedHeaderMap.this.size;
+            }
+
+            public void clear() {
+                IndexedHeaderMap.this.clear();
+            }
+        };
+    }
+
+    // Clears the map but keeps its nodes and the capacity of the custom name map for
+    // reuse. Value lists are dropped, not emptied: they may still be referenced from
+    // copies, read-only views or callers of get(), which must not see the next request.
+    void reset() {
+        if(this.size > 0) {
+            if(this.recycled == null) {
+                this.recycled = new Node[HttpHeaderNames.COUNT];
+            }
+
+            Node next;
+            for(Node node = this.head; node != null; node = next) {
+                next = node.after;
+                node.before = null;
+                node.after = null;
+                node.value = null;
+
+                if(node.index >= 0) {
+                    this.recycled[node.index] = node;
+                } else {
+                    node.key = null;
+                    node.after = this.recycledCustom;
+                    this.recycledCustom = node;
+                }
+            }
+
+            Arrays.fill(this.slots, (Object)null);
+            if(this.customTable != null) {
+                Arrays.fill(this.customTable, (Object)null);
+                this.customCount = 0;
+            }
+
+            this.head = null;
+            this.tail = null;
+            this.size = 0;
+            ++this.modCount;
+        }
+
+    }
+
+    private Node newNode(String key, int index, List<String> value) {
+        Node node = null;
+        if(this.recycled != null) {
+            if(index >= 0) {
+                node = this.recycled[index];
+                this.recycled[index] = null;
+            } else if(this.recycledCustom != null) {
+                node = this.recycledCustom;
+                this.recycledCustom = node.after;
+                node.after = null;
+            }
+        }
+
+        if(node == null) {
+            return new Node(key, index, value);
+        } else {
+            node.key = key;
+            node.value = value;
+            return node;
+        }
+    }
+
+    final Node getNode(String key) {
+        int index = HttpHeaderNames.indexOf(key);
+        return index >= 0?this.slots[index]:(this.customTable != null?this.getCustomNode(key, HttpHeaderNames.seededHashIgnoreCase(key)):null);
+    }
+
+    private Node getCustomNode(String key, int hash) {
+        if(this.customTable != null) {
+            for(Node node = this.customTable[hash & this.customTable.length - 1]; node != null; node = node.next) {
+                if(node.hash == hash && node.key.equalsIgnoreCase(key)) {
+                    return node;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private void addCustomNode(Node node) {
+        if(this.customTable == null) {
+            this.customTable = new Node[8];
+        } else if(this.customCount >= this.customTable.length - (this.customTable.length >> 2)) {
+            Node[] table = new Node[this.customTable.length << 1];
+
+            Node next;
+            for(int i = 0; i < this.customTable.length; ++i) {
+                for(Node chained = this.customTable[i]; chained != null; chained = next) {
+                    next = chained.next;
+                    chained.next = table[chained.hash & table.length - 1];
+                    table[chained.hash & table.length - 1] = chained;
+                }
+            }
+
+            this.customTable = table;
+        }
+
+        int bucket = node.hash & this.customTable.length - 1;
+        node.next = this.customTable[bucket];
+        this.customTable[bucket] = node;
+        ++this.customCount;
+    }
+
+    private void removeCustomNode(Node node) {
+        int bucket = node.hash & this.customTable.length - 1;
+        Node previous = null;
+
+        for(Node chained = this.customTable[bucket]; chained != null; chained = chained.next) {
+            if(chained == node) {
+                if(previous == null) {
+                    this.customTable[bucket] = node.next;
+                } else {
+                    previous.next = node.next;
+                }
+
+                node.next = null;
+                --this.customCount;
+                return;
+            }
+
+            previous = chained;
+        }
+
+    }
+
+    final Node firstNode() {
+        return this.head;
+    }
+
+    final void removeNode(Node node) {
+        if(node.index >= 0) {
+            this.slots[node.index] = null;
+        } else {
+            this.removeCustomNode(node);
+        }
+
+        this.unlink(node);
+        --this.size;
+        ++this.modCount;
+    }
+
+    private void linkLast(Node node) {
+        node.after = null;
+        node.before = this.tail;
+        if(this.tail == null) {
+            this.head = node;
+        } else {
+            this.tail.after = node;
+        }
+
+        this.tail = node;
+    }
+
+    private void unlink(Node node) {
+        if(node.before == null) {
+            this.head = node.after;
+        } else {
+            node.before.after = node.after;
+        }
+
+        if(node.after == null) {
+            this.tail = node.before;
+        } else {
+            node.after.before = node.before;
+        }
+
+        node.before = null;
+        node.after = null;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(this.size);
+
+        for(Node node = this.head; node != null; node = node.after) {
+            out.writeObject(node.key);
+            out.writeObject(node.value);
+        }
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.slots = new Node[HttpHeaderNames.COUNT];
+        int count = in.readInt();
+
+        for(int i = 0; i < count; ++i) {
+            this.put((String)in.readObject(), (List)in.readObject());
+        }
+
+    }
+
+    static final class Node implements Entry<String, List<String>> {
+        String key;
+        final int index;
+        List<String> value;
+        Node before;
+        Node after;
+        // custom names only: the seeded hash and the next node in the bucket
+        int hash;
+        Node next;
+
+        Node(String key, int index, List<String> value) {
+            this.key = key;
+            this.index = index;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return this.key;
+        }
+
+        public List<String> getValue() {
+            return this.value;
+        }
+
+        public List<String> setValue(List<String> value) {
+            List<String> oldValue = this.value;
+            this.value = value;
+            return oldValue;
+        }
+
+        public boolean equals(Object other) {
+            if(this == other) {
+                return true;
+            } else if(!(other instanceof Entry)) {
+                return false;
+            } else {
+                Entry otherEntry = (Entry)other;
+                return this.key.equals(otherEntry.getKey()) && (this.value != null?this.value.equals(otherEntry.getValue()):otherEntry.getValue() == null);
+            }
+        }
+
+        public int hashCode() {
+            return this.key.hashCode() ^ (this.value != null?this.value.hashCode():0);
+        }
+
+        public String toString() {
+            return this.key + "=" + this.value;
+        }
+    }
+
+    private abstract class NodeIterator<T> implements Iterator<T> {
+        private Node next;
+        private Node lastReturned;
+        private int expectedModCount;
+
+        NodeIterator() {
+            this.next = IndexedHeaderMap.this.head;
+            this.expectedModCount = IndexedHeaderMap.this.modCount;
+        }
+
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        final Node nextNode() {
+            if(IndexedHeaderMap.this.modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            } else if(this.next == null) {
+                throw new NoSuchElementException();
+            } else {
+                this.lastReturned = this.next;
+                this.next = this.next.after;
+                return this.lastReturned;
+            }
+        }
+
+        public void remove() {
+            if(this.lastReturned == null) {
+                throw new IllegalStateException();
+            } else if(IndexedHeaderMap.this.modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            } else {
+                IndexedHeaderMap.this.removeNode(this.lastReturned);
+                this.lastReturned = null;
+                this.expectedModCount = IndexedHeaderMap.this.modCount;
+            }
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package org.springframework.http;
+
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Headers over the raw block of field lines they were parsed from, for HttpHeadersParser.
+// Construction only groups the lines by name in an offset index; names and values are
+// turned into Strings when they are first read, and iteration materializes the values
+// of an entry only through getValue(). The first write moves everything into an
+// IndexedHeaderMap, which then serves all calls; HttpHeaders switches over to it.
+// Like any HashMap, concurrent reads are safe as long as no one writes: value lists
+// are built completely before they are published, and a String is safe without.
+class LazyHeaderMap extends AbstractMap<String, List<String>> {
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    // per line: name start, name end, value start, value end and well-known name index
+    static final int LINE_STRIDE = 5;
+    private final byte[] block;
+    private final int[] lines;
+    // per line, the next line of the same name, or -1
+    private final int[] nextLine;
+    // per entry: its first and last line and the hash of its name
+    private final int[] firstLine;
+    private final int[] lastLine;
+    private final int[] hashes;
+    // entry + 1 by name hash, open addressing; custom names are hashed with a seed
+    private final int[] table;
+    private final String[] names;
+    private final AtomicReferenceArray<HeaderValueList> values;
+    private final int size;
+    private IndexedHeaderMap materialized;
+    // the modCount of the materialized map right after it was built
+    private int materializedModCount;
+
+    LazyHeaderMap(byte[] block, int[] lines, int lineCount) {
+        this(block, lines, lineCount, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    // HttpHeadersLimitException if there are more names or values of one name than allowed
+    LazyHeaderMap(byte[] block, int[] lines, int lineCount, int maxHeaderCount, int maxValuesPerHeader) {
+        this.block = block;
+        this.lines = lines;
+        this.nextLine = new int[lineCount];
+        this.firstLine = new int[lineCount];
+        this.lastLine = new int[lineCount];
+        this.hashes = new int[lineCount];
+        this.table = new int[Integer.highestOneBit(Math.max(lineCount, 4) * 2 - 1) << 1];
+        int size = 0;
+        int[] valueCounts = maxValuesPerHeader != Integer.MAX_VALUE?new int[lineCount]:null;
+
+        for(int line = 0; line < lineCount; ++line) {
+            int base = line * LINE_STRIDE;
+            int code = lines[base + 4];
+            int hash = code >= 0?code:HttpHeaderNames.seededHashIgnoreCase(block, lines[base], lines[base + 1]);
+            int entry = this.find(hash, code, line);
+            this.nextLine[line] = -1;
+            if(entry >= 0) {
+                this.nextLine[this.lastLine[entry]] = line;
+                this.lastLine[entry] = line;
+            } else {
+                if(size >= maxHeaderCount) {
+                    throw new HttpHeadersLimitException("Header \'" + this.decode(lines[base], lines[base + 1]) + "\' exceeds the limit of " + maxHeaderCount + " headers");
+                }
+
+                entry = size;
+                this.firstLine[size] = line;
+                this.lastLine[size] = line;
+                this.hashes[size] = hash;
+                this.table[this.slot(hash)] = size + 1;
+                ++size;
+            }
+
+            if(valueCounts != null && ++valueCounts[entry] > maxValuesPerHeader) {
+                throw new HttpHeadersLimitException("Header \'" + this.decode(lines[base], lines[base + 1]) + "\' exceeds the limit of " + maxValuesPerHeader + " values");
+            }
+        }
+
+        this.size = size;
+        this.names = new String[size];
+        this.values = new AtomicReferenceArray<HeaderValueList>(size);
+    }
+
+    // the entry with the name of the given line, or -1
+    private int find(int hash, int code, int line) {
+        int mask = this.table.length - 1;
+
+        for(int i = mix(hash) & mask; this.table[i] != 0; i = i + 1 & mask) {
+            int entry = this.table[i] - 1;
+            if(this.hashes[entry] == hash) {
+                int other = this.firstLine[entry] * LINE_STRIDE;
+                if(code >= 0?this.lines[other + 4] == code:this.lines[other + 4] < 0 && this.sameName(other, line * LINE_STRIDE)) {
+                    return entry;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    // the entry of a name, or -1
+    private int find(String name) {
+        int code = HttpHeaderNames.indexOf(name);
+        int hash = code >= 0?code:HttpHeaderNames.seededHashIgnoreCase(name);
+        int mask = this.table.length - 1;
+
+        for(int i = mix(hash) & mask; this.table[i] != 0; i = i + 1 & mask) {
+            int entry = this.table[i] - 1;
+            if(this.hashes[entry] == hash) {
+                int line = this.firstLine[entry] * LINE_STRIDE;
+                if(code >= 0?this.lines[line + 4] == code:this.lines[line + 4] < 0 && this.nameEquals(line, name)) {
+                    return entry;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private int slot(int hash) {
+        int mask = this.table.length - 1;
+
+        int i;
+        for(i = mix(hash) & mask; this.table[i] != 0; i = i + 1 & mask) {
+            ;
+        }
+
+        return i;
+    }
+
+    private static int mix(int hash) {
+        hash *= -1640531527;
+        return hash ^ hash >>> 16;
+    }
+
+    private boolean sameName(int line, int otherLine) {
+        int start = this.lines[line];
+        int length = this.lines[line + 1] - start;
+        int otherStart = this.lines[otherLine];
+        if(this.lines[otherLine + 1] - otherStart != length) {
+            return false;
+        } else {
+            for(int i = 0; i < length; ++i) {
+                int c = this.block[start + i];
+                int other = this.block[otherStart + i];
+                if(c != other && toLowerCase(c) != toLowerCase(other)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private boolean nameEquals(int line, String name) {
+        int start = this.lines[line];
+        int length = this.lines[line + 1] - start;
+        if(name.length() != length) {
+            return false;
+        } else {
+            for(int i = 0; i < length; ++i) {
+                int c = this.block[start + i];
+                int other = name.charAt(i);
+                if(c != other && toLowerCase(c) != toLowerCase(other)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static int toLowerCase(int c) {
+        return c >= 65 && c <= 90?c + 32:c;
+    }
+
+    private String name(int entry) {
+        String name = this.names[entry];
+        if(name == null) {
+            int line = this.firstLine[entry] * LINE_STRIDE;
+            int code = this.lines[line + 4];
+            name = code >= 0?HttpHeaderNames.NAMES[code]:this.decode(this.lines[line], this.lines[line + 1]);
+            this.names[entry] = name;
+        }
+
+        return name;
+    }
+
+    private HeaderValueList values(int entry) {
+        HeaderValueList values = this.values.get(entry);
+        if(values == null) {
+            values = new HeaderValueList();
+
+            for(int line = this.firstLine[entry]; line >= 0; line = this.nextLine[line]) {
+                values.add(this.decode(this.lines[line * LINE_STRIDE + 2], this.lines[line * LINE_STRIDE + 3]));
+            }
+
+            // two readers may race here; both must end up with the same list
+            if(!this.values.compareAndSet(entry, (HeaderValueList)null, values)) {
+                values = this.values.get(entry);
+            }
+        }
+
+        return values;
+    }
+
+    private String decode(int start, int end) {
+        return start == end?"":new String(this.block, start, end - start, ISO_8859_1);
+    }
+
+    // The regular map these headers move to on the first write. Value lists already handed
+    // out are carried over, so that changes made through them stay visible.
+    IndexedHeaderMap materialize() {
+        if(this.materialized == null) {
+            IndexedHeaderMap map = new IndexedHeaderMap();
+
+            for(int entry = 0; entry < this.size; ++entry) {
+                map.put(this.name(entry), this.values(entry));
+            }
+
+            this.materializedModCount = map.modCount;
+            this.materialized = map;
+        }
+
+        return this.materialized;
+    }
+
+    public int size() {
+        return this.materialized != null?this.materialized.size():this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return this.materialized != null?this.materialized.containsKey(key):key instanceof String && this.find((String)key) >= 0;
+    }
+
+    public List<String> get(Object key) {
+        if(this.materialized != null) {
+            return this.materialized.get(key);
+        } else if(key instanceof String) {
+            int entry = this.find((String)key);
+            return entry >= 0?this.values(entry):null;
+        } else {
+            return null;
+        }
+    }
+
+    public List<String> put(String key, List<String> value) {
+        return this.materialize().put(key, value);
+    }
+
+    public List<String> remove(Object key) {
+        return this.materialize().remove(key);
+    }
+
+    public void clear() {
+        this.materialize().clear();
+    }
+
+    public Set<Entry<String, List<String>>> entrySet() {
+        return new AbstractSet<Entry<String, List<String>>>() {
+            public Iterator<Entry<String, List<String>>> iterator() {
+                return LazyHeaderMap.this.materialized != null?LazyHeaderMap.this.materialized.entrySet().iterator():LazyHeaderMap.this.new EntryIterator();
+            }
+
+            public int size() {
+                return LazyHeaderMap.this.size();
+            }
+
+            public void clear() {
+                LazyHeaderMap.this.clear();
+            }
+        };
+    }
+
+    // counts the structural changes after materialization, which itself keeps the entries
+    // where they are
+    private int modCount() {
+        return this.materialized != null?this.materialized.modCount - this.materializedModCount:0;
+    }
+
+    // walks the index, which keeps its order after materialization; adding or removing
+    // entries other than through remove() ends the iteration
+    private class EntryIterator implements Iterator<Entry<String, List<String>>> {
+        private int next;
+        private int lastReturned = -1;
+        private int expectedModCount;
+
+        EntryIterator() {
+            this.expectedModCount = LazyHeaderMap.this.modCount();
+        }
+
+        public boolean hasNext() {
+            return this.next < LazyHeaderMap.this.size;
+        }
+
+        public Entry<String, List<String>> next() {
+            if(LazyHeaderMap.this.modCount() != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            } else if(this.next >= LazyHeaderMap.this.size) {
+                throw new NoSuchElementException();
+            } else {
+                this.lastReturned = this.next++;
+                return LazyHeaderMap.this.new IndexEntry(this.lastReturned);
+            }
+        }
+
+        public void remove() {
+            if(this.lastReturned < 0) {
+                throw new IllegalStateException();
+            } else if(LazyHeaderMap.this.modCount() != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            } else {
+                LazyHeaderMap.this.remove(LazyHeaderMap.this.name(this.lastReturned));
+                this.lastReturned = -1;
+                this.expectedModCount = LazyHeaderMap.this.modCount();
+            }
+        }
+    }
+
+    private class IndexEntry implements Entry<String, List<String>> {
+        private final int entry;
+
+        IndexEntry(int entry) {
+            this.entry = entry;
+        }
+
+        public String getKey() {
+            return LazyHeaderMap.this.name(this.entry);
+        }
+
+        public List<String> getValue() {
+            return LazyHeaderMap.this.materialized != null?LazyHeaderMap.this.materialized.get(this.getKey()):LazyHeaderMap.this.values(this.entry);
+        }
+
+        public List<String> setValue(List<String> value) {
+            return LazyHeaderMap.this.materialize().put(this.getKey(), value);
+        }
+
+        public boolean equals(Object other) {
+            if(this == other) {
+                return true;
+            } else if(!(other instanceof Entry)) {
+                return false;
+            } else {
+                Entry otherEntry = (Entry)other;
+                List<String> value = this.getValue();
+                return this.getKey().equals(otherEntry.getKey()) && (value != null?value.equals(otherEntry.getValue()):otherEntry.getValue() == null);
+            }
+        }
+
+        public int hashCode() {
+            List<String> value = this.getValue();
+            return this.getKey().hashCode() ^ (value != null?value.hashCode():0);
+        }
+
+        public String toString() {
+            return this.getKey() + "=" + this.getValue();
+        }
+    }
+}
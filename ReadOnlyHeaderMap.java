@@ -0,0 +1,88 @@
+package org.springframework.http;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map.Entry;
+
+class ReadOnlyHeaderMap extends AbstractMap<String, List<String>> implements Serializable {
+    private static final long serialVersionUID = -1862154623580627418L;
+    private final Map<String, List<String>> target;
+
+    ReadOnlyHeaderMap(Map<String, List<String>> target) {
+        this.target = target;
+    }
+
+    Map<String, List<String>> getTarget() {
+        return this.target;
+    }
+
+    // For views of HttpHeaders, the map behind them, so that reads neither copy entries a
+    // fork shares nor drop a cached hash code as the HttpHeaders accessors would.
+    private Map<String, List<String>> source() {
+        return this.target instanceof HttpHeaders?((HttpHeaders)this.target).getHeaderMap():this.target;
+    }
+
+    // the backing list, for read paths inside HttpHeaders that never hand it out
+    List<String> getTargetValues(Object key) {
+        return CopyOnWriteHeaderMap.peek(this.source(), key);
+    }
+
+    public int size() {
+        return this.source().size();
+    }
+
+    public boolean isEmpty() {
+        return this.source().isEmpty();
+    }
+
+    public boolean containsKey(Object key) {
+        return this.source().containsKey(key);
+    }
+
+    public boolean containsValue(Object value) {
+        return this.source().containsValue(value);
+    }
+
+    public List<String> get(Object key) {
+        List<String> values = this.getTargetValues(key);
+        return values != null?Collections.unmodifiableList(values):null;
+    }
+
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(this.source().keySet());
+    }
+
+    public Set<Entry<String, List<String>>> entrySet() {
+        return new AbstractSet<Entry<String, List<String>>>() {
+            public Iterator<Entry<String, List<String>>> iterator() {
+                final Iterator<Entry<String, List<String>>> iterator = ReadOnlyHeaderMap.this.source().entrySet().iterator();
+                return new Iterator<Entry<String, List<String>>>() {
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    public Entry<String, List<String>> next() {
+                        Entry<String, List<String>> entry = iterator.next();
+                        List<String> values = entry.getValue();
+                        return new SimpleImmutableEntry<String, List<String>>(entry.getKey(), values != null?Collections.unmodifiableList(values):null);
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            public int size() {
+                return ReadOnlyHeaderMap.this.size();
+            }
+        };
+    }
+}
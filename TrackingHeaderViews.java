@@ -0,0 +1,208 @@
+package org.springframework.http;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Map.Entry;
+
+// The value lists and views HttpHeaders hands out while it keeps a hash code or a byte
+// count up to date. Reads go straight to the header map; changes made through the lists,
+// views, entries or iterators tell the headers to drop what they keep, so that reading
+// through get() or entrySet() does not.
+final class TrackingHeaderViews {
+    private final HttpHeaders owner;
+
+    TrackingHeaderViews(HttpHeaders owner) {
+        this.owner = owner;
+    }
+
+    List<String> list(List<String> values) {
+        return values != null?new TrackingList(values):null;
+    }
+
+    Set<String> keySet() {
+        return new AbstractSet<String>() {
+            public Iterator<String> iterator() {
+                final Iterator<String> iterator = TrackingHeaderViews.this.owner.getHeaderMap().keySet().iterator();
+                return new Iterator<String>() {
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    public String next() {
+                        return (String)iterator.next();
+                    }
+
+                    public void remove() {
+                        iterator.remove();
+                        TrackingHeaderViews.this.owner.contentModified();
+                    }
+                };
+            }
+
+            public int size() {
+                return TrackingHeaderViews.this.owner.getHeaderMap().size();
+            }
+
+            public boolean contains(Object key) {
+                return TrackingHeaderViews.this.owner.getHeaderMap().containsKey(key);
+            }
+
+            public boolean remove(Object key) {
+                if(!TrackingHeaderViews.this.owner.getHeaderMap().containsKey(key)) {
+                    return false;
+                } else {
+                    TrackingHeaderViews.this.owner.remove(key);
+                    return true;
+                }
+            }
+
+            public void clear() {
+                TrackingHeaderViews.this.owner.clear();
+            }
+        };
+    }
+
+    Collection<List<String>> values() {
+        return new AbstractCollection<List<String>>() {
+            public Iterator<List<String>> iterator() {
+                final Iterator<List<String>> iterator = TrackingHeaderViews.this.owner.getHeaderMap().values().iterator();
+                return new Iterator<List<String>>() {
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    public List<String> next() {
+                        return TrackingHeaderViews.this.list(iterator.next());
+                    }
+
+                    public void remove() {
+                        iterator.remove();
+                        TrackingHeaderViews.this.owner.contentModified();
+                    }
+                };
+            }
+
+            public int size() {
+                return TrackingHeaderViews.this.owner.getHeaderMap().size();
+            }
+
+            public void clear() {
+                TrackingHeaderViews.this.owner.clear();
+            }
+        };
+    }
+
+    Set<Entry<String, List<String>>> entrySet() {
+        return new AbstractSet<Entry<String, List<String>>>() {
+            public Iterator<Entry<String, List<String>>> iterator() {
+                final Iterator<Entry<String, List<String>>> iterator = TrackingHeaderViews.this.owner.getHeaderMap().entrySet().iterator();
+                return new Iterator<Entry<String, List<String>>>() {
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    public Entry<String, List<String>> next() {
+                        return TrackingHeaderViews.this.new TrackingEntry(iterator.next());
+                    }
+
+                    public void remove() {
+                        iterator.remove();
+                        TrackingHeaderViews.this.owner.contentModified();
+                    }
+                };
+            }
+
+            public int size() {
+                return TrackingHeaderViews.this.owner.getHeaderMap().size();
+            }
+
+            public boolean contains(Object entry) {
+                return TrackingHeaderViews.this.owner.getHeaderMap().entrySet().contains(entry);
+            }
+
+            public void clear() {
+                TrackingHeaderViews.this.owner.clear();
+            }
+        };
+    }
+
+    private final class TrackingEntry implements Entry<String, List<String>> {
+        private final Entry<String, List<String>> entry;
+
+        TrackingEntry(Entry<String, List<String>> entry) {
+            this.entry = entry;
+        }
+
+        public String getKey() {
+            return (String)this.entry.getKey();
+        }
+
+        public List<String> getValue() {
+            return TrackingHeaderViews.this.list(this.entry.getValue());
+        }
+
+        public List<String> setValue(List<String> value) {
+            List<String> oldValue = this.entry.setValue(value);
+            TrackingHeaderViews.this.owner.contentModified();
+            return oldValue;
+        }
+
+        public boolean equals(Object other) {
+            return this.entry.equals(other);
+        }
+
+        public int hashCode() {
+            return this.entry.hashCode();
+        }
+
+        public String toString() {
+            return this.entry.toString();
+        }
+    }
+
+    private final class TrackingList extends AbstractList<String> {
+        private final List<String> values;
+
+        TrackingList(List<String> values) {
+            this.values = values;
+        }
+
+        public String get(int index) {
+            return (String)this.values.get(index);
+        }
+
+        public int size() {
+            return this.values.size();
+        }
+
+        public String set(int index, String value) {
+            String oldValue = (String)this.values.set(index, value);
+            TrackingHeaderViews.this.owner.contentModified();
+            return oldValue;
+        }
+
+        public void add(int index, String value) {
+            this.values.add(index, value);
+            ++this.modCount;
+            TrackingHeaderViews.this.owner.contentModified();
+        }
+
+        public String remove(int index) {
+            String oldValue = (String)this.values.remove(index);
+            ++this.modCount;
+            TrackingHeaderViews.this.owner.contentModified();
+            return oldValue;
+        }
+
+        public void clear() {
+            this.values.clear();
+            ++this.modCount;
+            TrackingHeaderViews.this.owner.contentModified();
+        }
+    }
+}
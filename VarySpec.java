@@ -0,0 +1,308 @@
+package org.springframework.http;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import org.springframework.util.Assert;
+
+// The request headers named by a response's Vary header, compiled for computing cache
+// keys. Names are normalized (canonical spelling for well-known names, lower case
+// otherwise), deduplicated and sorted, so equivalent Vary headers give equal specs.
+//
+// fingerprint() hashes the values of those headers straight from the request's store,
+// without building Strings: lines are joined as one comma-separated list, whitespace
+// runs outside quoted strings collapse to one space and around commas to none, empty
+// list elements are dropped, and the Accept* headers are compared ignoring case. An
+// absent header hashes differently from an empty one. The hash is stable across JVMs.
+public final class VarySpec implements Serializable {
+    private static final long serialVersionUID = -4427413286702751874L;
+    private static final VarySpec WILDCARD = new VarySpec(new String[0], true);
+    private static final long PRIME_1 = 1099511628211L;
+    private static final long PRIME_2 = -7046029254386353131L;
+    private static final long SEED_1 = -3750763034362895579L;
+    private static final long SEED_2 = 2870177450012600261L;
+    // outside the char range, so they cannot collide with value characters
+    private static final int ABSENT = 65536;
+    private static final int PRESENT = 65537;
+    private static final int END = 65538;
+    private final String[] names;
+    private final boolean[] caseInsensitive;
+    private final boolean wildcard;
+    private final long seed1;
+    private final long seed2;
+
+    private VarySpec(String[] names, boolean wildcard) {
+        this.names = names;
+        this.wildcard = wildcard;
+        this.caseInsensitive = new boolean[names.length];
+        long h1 = SEED_1;
+        long h2 = SEED_2;
+
+        for(int i = 0; i < names.length; ++i) {
+            String name = names[i];
+            this.caseInsensitive[i] = name.equals(HttpHeaders.ACCEPT) || name.equals(HttpHeaders.ACCEPT_CHARSET) || name.equals(HttpHeaders.ACCEPT_ENCODING) || name.equals(HttpHeaders.ACCEPT_LANGUAGE);
+
+            for(int j = 0; j < name.length(); ++j) {
+                h1 = (h1 ^ (long)name.charAt(j)) * PRIME_1;
+                h2 = (h2 ^ (long)name.charAt(j)) * PRIME_2;
+            }
+
+            h1 = (h1 ^ (long)END) * PRIME_1;
+            h2 = (h2 ^ (long)END) * PRIME_2;
+        }
+
+        this.seed1 = h1;
+        this.seed2 = h2;
+    }
+
+    // the spec of the response's Vary header; empty if there is none
+    public static VarySpec of(HttpHeaders response) {
+        Assert.notNull(response, "\'response\' must not be null");
+        List<String> values = response.getValues("Vary");
+        return values != null?parse(values):of(Collections.<String>emptyList());
+    }
+
+    public static VarySpec of(Collection<String> headerNames) {
+        Assert.notNull(headerNames, "\'headerNames\' must not be null");
+        List<String> names = new ArrayList<String>(headerNames.size());
+        Iterator<String> var2 = headerNames.iterator();
+
+        while(var2.hasNext()) {
+            String name = ((String)var2.next()).trim();
+            if(name.equals("*")) {
+                return WILDCARD;
+            }
+
+            if(!name.isEmpty()) {
+                names.add(normalize(name));
+            }
+        }
+
+        return compile(names);
+    }
+
+    // single pass over the comma-separated lists of all Vary lines
+    static VarySpec parse(List<String> values) {
+        List<String> names = new ArrayList<String>();
+
+        for(int i = 0; i < values.size(); ++i) {
+            String value = (String)values.get(i);
+            int length = value != null?value.length():0;
+            int start = 0;
+
+            while(start < length) {
+                int end = value.indexOf(44, start);
+                if(end < 0) {
+                    end = length;
+                }
+
+                int nameStart = start;
+                int nameEnd = end;
+
+                while(nameStart < nameEnd && isWhitespace(value.charAt(nameStart))) {
+                    ++nameStart;
+                }
+
+                while(nameEnd > nameStart && isWhitespace(value.charAt(nameEnd - 1))) {
+                    --nameEnd;
+                }
+
+                if(nameEnd - nameStart == 1 && value.charAt(nameStart) == 42) {
+                    return WILDCARD;
+                }
+
+                if(nameEnd > nameStart) {
+                    names.add(normalize(value.substring(nameStart, nameEnd)));
+                }
+
+                start = end + 1;
+            }
+        }
+
+        return compile(names);
+    }
+
+    private static String normalize(String name) {
+        int index = HttpHeaderNames.indexOf(name);
+        return index >= 0?HttpHeaderNames.NAMES[index]:name.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static VarySpec compile(List<String> names) {
+        String[] sorted = (String[])names.toArray(new String[names.size()]);
+        Arrays.sort(sorted, String.CASE_INSENSITIVE_ORDER);
+        int count = 0;
+
+        for(int i = 0; i < sorted.length; ++i) {
+            if(count == 0 || !sorted[i].equalsIgnoreCase(sorted[count - 1])) {
+                sorted[count++] = sorted[i];
+            }
+        }
+
+        return new VarySpec(Arrays.copyOf(sorted, count), false);
+    }
+
+    // normalized, sorted and without duplicates; empty for a wildcard
+    public List<String> getHeaderNames() {
+        return Collections.unmodifiableList(Arrays.asList(this.names));
+    }
+
+    // Vary: * (no stored response may be reused) has no fingerprint
+    public boolean isWildcard() {
+        return this.wildcard;
+    }
+
+    public long fingerprint(HttpHeaders request) {
+        return this.hash(request, (long[])null);
+    }
+
+    // stores the 128-bit fingerprint in result[0] and result[1]
+    public void fingerprint(HttpHeaders request, long[] result) {
+        Assert.isTrue(result != null && result.length >= 2, "\'result\' must hold two longs");
+        result[0] = this.hash(request, result);
+    }
+
+    private long hash(HttpHeaders request, long[] result) {
+        Assert.notNull(request, "\'request\' must not be null");
+        if(this.wildcard) {
+            throw new IllegalStateException("A response with Vary: * matches no other request");
+        } else {
+            long h1 = this.seed1;
+            long h2 = this.seed2;
+
+            for(int i = 0; i < this.names.length; ++i) {
+                List<String> values = request.getValues(this.names[i]);
+                if(values == null) {
+                    h1 = (h1 ^ (long)ABSENT) * PRIME_1;
+                    h2 = (h2 ^ (long)ABSENT) * PRIME_2;
+                } else {
+                    h1 = (h1 ^ (long)PRESENT) * PRIME_1;
+                    h2 = (h2 ^ (long)PRESENT) * PRIME_2;
+                    boolean ignoreCase = this.caseInsensitive[i];
+                    boolean quoted = false;
+                    boolean escaped = false;
+                    boolean inElement = false;
+                    boolean separator = false;
+                    boolean space = false;
+                    int size = values.size();
+
+                    for(int j = 0; j < size; ++j) {
+                        String value = (String)values.get(j);
+                        int length = value != null?value.length():0;
+                        // a new line starts a new list element
+                        separator |= inElement;
+                        inElement = false;
+                        space = false;
+
+                        for(int k = 0; k < length; ++k) {
+                            int c = value.charAt(k);
+                            if(quoted) {
+                                if(escaped) {
+                                    escaped = false;
+                                } else if(c == 92) {
+                                    escaped = true;
+                                } else if(c == 34) {
+                                    quoted = false;
+                                }
+                            } else if(c == 32 || c == 9) {
+                                space = inElement;
+                                continue;
+                            } else if(c == 44) {
+                                separator |= inElement;
+                                inElement = false;
+                                space = false;
+                                continue;
+                            } else {
+                                if(c == 34) {
+                                    quoted = true;
+                                } else if(ignoreCase && c >= 65 && c <= 90) {
+                                    c += 32;
+                                }
+
+                                if(separator) {
+                                    h1 = (h1 ^ 44L) * PRIME_1;
+                                    h2 = (h2 ^ 44L) * PRIME_2;
+                                    separator = false;
+                                } else if(space) {
+                                    h1 = (h1 ^ 32L) * PRIME_1;
+                                    h2 = (h2 ^ 32L) * PRIME_2;
+                                }
+
+                                space = false;
+                                inElement = true;
+                            }
+
+                            h1 = (h1 ^ (long)c) * PRIME_1;
+                            h2 = (h2 ^ (long)c) * PRIME_2;
+                        }
+
+                        // quoted strings do not span lines
+                        quoted = false;
+                        escaped = false;
+                    }
+
+                    h1 = (h1 ^ (long)END) * PRIME_1;
+                    h2 = (h2 ^ (long)END) * PRIME_2;
+                }
+            }
+
+            if(result != null) {
+                result[1] = mix(h2 ^ h1 >>> 32);
+            }
+
+            return mix(h1);
+        }
+    }
+
+    // the MurmurHash3 finalizer, so that every input bit affects every output bit
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= -49064778989728563L;
+        h ^= h >>> 33;
+        h *= -4265267296055464877L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == 32 || c == 9;
+    }
+
+    public boolean equals(Object other) {
+        if(this == other) {
+            return true;
+        } else if(!(other instanceof VarySpec)) {
+            return false;
+        } else {
+            VarySpec otherSpec = (VarySpec)other;
+            return this.wildcard == otherSpec.wildcard && Arrays.equals(this.names, otherSpec.names);
+        }
+    }
+
+    public int hashCode() {
+        return this.wildcard?42:Arrays.hashCode(this.names);
+    }
+
+    // the Vary value this spec stands for
+    public String toString() {
+        if(this.wildcard) {
+            return "*";
+        } else {
+            StringBuilder builder = new StringBuilder();
+
+            for(int i = 0; i < this.names.length; ++i) {
+                if(i > 0) {
+                    builder.append(", ");
+                }
+
+                builder.append(this.names[i]);
+            }
+
+            return builder.toString();
+        }
+    }
+}
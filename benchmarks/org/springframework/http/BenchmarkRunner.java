@@ -0,0 +1,24 @@
+package org.springframework.http;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// runs the given benchmark patterns (all by default) with the GC profiler for allocation rates
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+        if(args.length == 0) {
+            builder.include("org\\.springframework\\.http\\..*Benchmark");
+        }
+
+        for(int i = 0; i < args.length; ++i) {
+            builder.include(args[i]);
+        }
+
+        Options options = builder.addProfiler(GCProfiler.class).build();
+        (new Runner(options)).run();
+    }
+}
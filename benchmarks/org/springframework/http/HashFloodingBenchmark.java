@@ -0,0 +1,180 @@
+package org.springframework.http;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+// Custom-name lookups under a hash flooding attack: names that all share one
+// String.hashCode(), in lower case too, so that they also collide in the
+// LinkedCaseInsensitiveMap HttpHeaders used to keep custom names in. The "random"
+// workload has names of the same length without collisions, for reference.
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashFloodingBenchmark {
+    // "a~" and "b_" have the same String.hashCode(), so any sequence of them does as well
+    private static final String[] BLOCKS = new String[]{"a~", "b_"};
+    private static final int BLOCK_COUNT = 14;
+    private static final int LOOKUPS = 100000;
+    @Param({"colliding", "random"})
+    public String workload;
+    @Param({"100", "1000", "10000"})
+    public int names;
+    private String[] keys;
+    private String present;
+    private String absent;
+    private HttpHeaders headers;
+    private LinkedCaseInsensitiveMap<List<String>> legacy;
+
+    @Setup
+    public void setup() {
+        this.keys = createNames(this.workload, this.names + 1);
+        this.headers = new HttpHeaders();
+        this.legacy = new LinkedCaseInsensitiveMap<List<String>>(8, Locale.ENGLISH);
+
+        for(int i = 0; i < this.names; ++i) {
+            this.headers.add(this.keys[i], "v");
+            this.legacy.put(this.keys[i], Collections.singletonList("v"));
+        }
+
+        this.present = this.keys[this.names / 2].toUpperCase(Locale.ENGLISH);
+        this.absent = this.keys[this.names];
+    }
+
+    static String[] createNames(String workload, int count) {
+        String[] names = new String[count];
+        Random random = new Random(42L);
+
+        for(int i = 0; i < count; ++i) {
+            StringBuilder name = new StringBuilder("x-");
+
+            for(int block = 0; block < BLOCK_COUNT; ++block) {
+                if(workload.equals("colliding")) {
+                    name.append(BLOCKS[i >> block & 1]);
+                } else {
+                    name.append((char)(97 + random.nextInt(26))).append((char)(97 + random.nextInt(26)));
+                }
+            }
+
+            names[i] = name.toString();
+        }
+
+        return names;
+    }
+
+    @Benchmark
+    public String getPresent() {
+        return this.headers.getFirst(this.present);
+    }
+
+    @Benchmark
+    public String getAbsent() {
+        return this.headers.getFirst(this.absent);
+    }
+
+    // baseline: the map custom names were kept in before
+    @Benchmark
+    public List<String> getPresentLegacy() {
+        return this.legacy.get(this.present);
+    }
+
+    @Benchmark
+    public List<String> getAbsentLegacy() {
+        return this.legacy.get(this.absent);
+    }
+
+    // a whole request's worth of custom headers, as a parser adds them
+    @Benchmark
+    public HttpHeaders fill() {
+        HttpHeaders headers = new HttpHeaders();
+
+        for(int i = 0; i < this.names; ++i) {
+            headers.add(this.keys[i], "v");
+        }
+
+        return headers;
+    }
+
+    @Benchmark
+    public LinkedCaseInsensitiveMap<List<String>> fillLegacy() {
+        LinkedCaseInsensitiveMap<List<String>> map = new LinkedCaseInsensitiveMap<List<String>>(8, Locale.ENGLISH);
+
+        for(int i = 0; i < this.names; ++i) {
+            map.put(this.keys[i], Collections.singletonList("v"));
+        }
+
+        return map;
+    }
+
+    // A quick load test without JMH: the mean time of a lookup of a present and an absent
+    // name for each workload and number of names. Flat columns mean that lookups do not
+    // slow down as an attacker adds names.
+    public static void main(String[] args) {
+        int[] counts = new int[]{10, 100, 1000, 10000};
+        String[] workloads = new String[]{"random", "colliding"};
+        System.out.println("workload     names   HttpHeaders ns   legacy ns");
+
+        for(int i = 0; i < workloads.length; ++i) {
+            for(int j = 0; j < counts.length; ++j) {
+                HashFloodingBenchmark benchmark = new HashFloodingBenchmark();
+                benchmark.workload = workloads[i];
+                benchmark.names = counts[j];
+                benchmark.setup();
+                long headersTime = 0L;
+                long legacyTime = 0L;
+
+                // the first rounds warm up
+                for(int round = 0; round < 6; ++round) {
+                    long start = System.nanoTime();
+                    int hits = benchmark.lookUp(false);
+                    long middle = System.nanoTime();
+                    hits += benchmark.lookUp(true);
+                    long end = System.nanoTime();
+                    if(hits != 2 * LOOKUPS) {
+                        throw new IllegalStateException("Lookups failed");
+                    }
+
+                    if(round >= 3) {
+                        headersTime += middle - start;
+                        legacyTime += end - middle;
+                    }
+                }
+
+                System.out.println(String.format("%-10s %7d %16.1f %11.1f", new Object[]{workloads[i], Integer.valueOf(counts[j]), Double.valueOf((double)headersTime / (double)(6 * LOOKUPS)), Double.valueOf((double)legacyTime / (double)(6 * LOOKUPS))}));
+            }
+        }
+
+    }
+
+    // counts the present names found and the absent ones not found
+    private int lookUp(boolean legacy) {
+        int hits = 0;
+
+        for(int i = 0; i < LOOKUPS; ++i) {
+            if(legacy) {
+                hits += (this.legacy.get(this.present) != null?1:0) + (this.legacy.get(this.absent) == null?1:0);
+            } else {
+                hits += (this.headers.getFirst(this.present) != null?1:0) + (this.headers.getFirst(this.absent) == null?1:0);
+            }
+        }
+
+        return hits / 2;
+    }
+}
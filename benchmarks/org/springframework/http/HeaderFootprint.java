@@ -0,0 +1,65 @@
+package org.springframework.http;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map.Entry;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+// Prints the retained heap size of header value lists and of whole header sets, as laid
+// out by the running JVM and measured with JOL. Names and values are shared Strings and
+// not counted, so the figures are the overhead of the data structures alone.
+public class HeaderFootprint {
+    public static void main(String[] args) {
+        System.out.println(VM.current().details());
+        System.out.println("values   LinkedList   HeaderValueList");
+
+        for(int count = 1; count <= 4; ++count) {
+            String[] values = new String[count];
+            LinkedList<String> linkedList = new LinkedList<String>();
+            HeaderValueList valueList = new HeaderValueList();
+
+            for(int i = 0; i < count; ++i) {
+                values[i] = "value-" + i;
+                linkedList.add(values[i]);
+                valueList.add(values[i]);
+            }
+
+            System.out.println(String.format("%6d %12d %17d", count, size(linkedList, values), size(valueList, values)));
+        }
+
+        System.out.println();
+        System.out.println("dataset      size   LinkedCaseInsensitiveMap   HttpHeaders");
+        String[] datasets = new String[]{"browser", "api-client", "cdn"};
+        int[] sizes = new int[]{10, 30, 100};
+
+        for(int i = 0; i < datasets.length; ++i) {
+            for(int j = 0; j < sizes.length; ++j) {
+                HttpHeaders headers = HeaderDatasets.create(datasets[i], sizes[j]);
+                Object[] strings = strings(headers);
+                System.out.println(String.format("%-12s %4d %26d %13d", datasets[i], sizes[j], size(HttpHeadersSerializationBenchmark.defaultForm(headers), strings), size(headers, strings)));
+            }
+        }
+
+    }
+
+    private static long size(Object root, Object[] excluded) {
+        return GraphLayout.parseInstance(root).subtract(GraphLayout.parseInstance(excluded)).totalSize();
+    }
+
+    // the names and values; the lower-case keys LinkedCaseInsensitiveMap adds are counted
+    private static Object[] strings(HttpHeaders headers) {
+        List<String> strings = new ArrayList<String>();
+        Iterator<Entry<String, List<String>>> var2 = headers.entrySet().iterator();
+
+        while(var2.hasNext()) {
+            Entry<String, List<String>> entry = var2.next();
+            strings.add(entry.getKey());
+            strings.addAll(entry.getValue());
+        }
+
+        return strings.toArray();
+    }
+}
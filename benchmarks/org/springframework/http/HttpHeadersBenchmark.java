@@ -0,0 +1,342 @@
+package org.springframework.http;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpHeadersBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String CONTENT_DISPOSITION = "form-data; name=\"file\"; filename*=UTF-8''%C3%85ngstr%C3%B6m%20r%C3%A9sum%C3%A9%202023.pdf";
+    private static final String CACHE_CONTROL = "public, max-age=3600, s-maxage=600, stale-while-revalidate=30, stale-if-error=86400";
+    private static final String NON_ASCII_FILENAME = "\u00c5ngstr\u00f6m r\u00e9sum\u00e9 2023.pdf";
+    @Param({"browser", "api-client", "cdn"})
+    public String dataset;
+    @Param({"10", "30", "100"})
+    public int size;
+    private HttpHeaders headers;
+    private HttpHeaders copy;
+    private final HttpHeaders recycled = new HttpHeaders();
+    private String[] names;
+    private String[] values;
+    private String customName;
+    private long date;
+    private ContentNegotiator negotiator;
+    private VarySpec varySpec;
+    private HttpHeaders key;
+    private HttpHeaders otherKey;
+
+    @Setup
+    public void setup() {
+        this.headers = HeaderDatasets.create(this.dataset, this.size);
+        // every dataset answers the typed accessors, so that no benchmark measures a miss
+        setIfAbsent(this.headers, "Content-Type", "application/json;charset=UTF-8");
+        setIfAbsent(this.headers, "Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
+        setIfAbsent(this.headers, "If-None-Match", "W/\"5e15153d-120f\", \"xyzzy\"");
+        setIfAbsent(this.headers, "Vary", "Accept-Encoding, Origin");
+        setIfAbsent(this.headers, "Date", "Mon, 16 Oct 2023 10:15:30 GMT");
+        this.copy = new HttpHeaders();
+        this.copy.putAll(this.headers);
+        this.names = new String[this.headers.size()];
+        this.values = new String[this.headers.size()];
+        this.customName = "X-Not-Present";
+        int i = 0;
+
+        for(Iterator<Entry<String, List<String>>> var2 = this.headers.entrySet().iterator(); var2.hasNext(); ++i) {
+            Entry<String, List<String>> entry = var2.next();
+            this.names[i] = (String)entry.getKey();
+            this.values[i] = (String)((List)entry.getValue()).get(0);
+            if(this.customName.equals("X-Not-Present") && HttpHeaderNames.indexOf(this.names[i]) < 0) {
+                this.customName = this.names[i];
+            }
+        }
+
+        this.date = this.headers.getDate();
+        this.varySpec = this.headers.getVarySpec();
+        this.key = new HttpHeaders();
+        this.key.setHashCodeCaching(true);
+        this.key.putAll(this.headers);
+        this.otherKey = new HttpHeaders();
+        this.otherKey.setHashCodeCaching(true);
+        this.otherKey.putAll(this.headers);
+        this.otherKey.set("Date", "Tue, 17 Oct 2023 10:15:30 GMT");
+        this.negotiator = new ContentNegotiator(Arrays.asList(new MediaType[]{new MediaType("application", "json"), new MediaType("text", "html")}), Arrays.asList(new Charset[]{UTF_8}), Arrays.asList(new String[]{"br", "gzip"}));
+    }
+
+    private static void setIfAbsent(HttpHeaders headers, String name, String value) {
+        if(!headers.containsKey(name)) {
+            headers.set(name, value);
+        }
+
+    }
+
+    @Benchmark
+    public HttpHeaders populateWithAdd() {
+        HttpHeaders result = new HttpHeaders();
+
+        for(int i = 0; i < this.names.length; ++i) {
+            result.add(this.names[i], this.values[i]);
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public HttpHeaders populateWithSet() {
+        HttpHeaders result = new HttpHeaders();
+
+        for(int i = 0; i < this.names.length; ++i) {
+            result.set(this.names[i], this.values[i]);
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public HttpHeaders populateWithStrictValidation() {
+        HttpHeaders result = new HttpHeaders();
+        result.setStrictValidation(true);
+
+        for(int i = 0; i < this.names.length; ++i) {
+            result.add(this.names[i], this.values[i]);
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public HttpHeaders validateAll() {
+        this.headers.validateAll();
+        return this.headers;
+    }
+
+    @Benchmark
+    public HttpHeaders populateRecycled() {
+        this.recycled.reset();
+
+        for(int i = 0; i < this.names.length; ++i) {
+            this.recycled.add(this.names[i], this.values[i]);
+        }
+
+        return this.recycled;
+    }
+
+    @Benchmark
+    public HttpHeaders setConstantName() {
+        this.headers.set("Content-Type", "text/plain");
+        return this.headers;
+    }
+
+    @Benchmark
+    public HttpHeaders setCustomName() {
+        this.headers.set("X-Benchmark", "value");
+        return this.headers;
+    }
+
+    @Benchmark
+    public HttpHeaders addConstantName() {
+        HttpHeaders result = new HttpHeaders();
+        result.add("Accept-Encoding", "gzip");
+        result.add("Accept-Encoding", "br");
+        return result;
+    }
+
+    @Benchmark
+    public HttpHeaders addCustomName() {
+        HttpHeaders result = new HttpHeaders();
+        result.add("X-Forwarded-For", "203.0.113.7");
+        result.add("X-Forwarded-For", "198.51.100.23");
+        return result;
+    }
+
+    @Benchmark
+    public String getFirstConstantName() {
+        return this.headers.getFirst("Content-Type");
+    }
+
+    @Benchmark
+    public String getFirstConstantNameOtherCase() {
+        return this.headers.getFirst("content-type");
+    }
+
+    @Benchmark
+    public String getFirstCustomName() {
+        return this.headers.getFirst(this.customName);
+    }
+
+    @Benchmark
+    public void getFirstAll(Blackhole blackhole) {
+        for(int i = 0; i < this.names.length; ++i) {
+            blackhole.consume(this.headers.getFirst(this.names[i]));
+        }
+
+    }
+
+    @Benchmark
+    public HttpHeaders setDate() {
+        this.copy.setDate(this.date);
+        return this.copy;
+    }
+
+    @Benchmark
+    public long getFirstDate() {
+        return this.headers.getFirstDate("Date");
+    }
+
+    @Benchmark
+    public MediaType getContentType() {
+        return this.headers.getContentType();
+    }
+
+    @Benchmark
+    public List<MediaType> getAccept() {
+        return this.headers.getAccept();
+    }
+
+    @Benchmark
+    public List<String> getValuesAsList() {
+        return this.headers.getValuesAsList("Vary");
+    }
+
+    @Benchmark
+    public List<String> getETagValuesAsList() {
+        return this.headers.getETagValuesAsList("If-None-Match");
+    }
+
+    @Benchmark
+    public HttpHeaders readOnlyHttpHeaders() {
+        return HttpHeaders.readOnlyHttpHeaders(this.headers);
+    }
+
+    @Benchmark
+    public String readOnlyHttpHeadersGetFirst() {
+        return HttpHeaders.readOnlyHttpHeaders(this.headers).getFirst("Content-Type");
+    }
+
+    @Benchmark
+    public HttpHeaders readOnlySnapshot() {
+        return HttpHeaders.readOnlySnapshot(this.headers);
+    }
+
+    // baseline: the copy readOnlyHttpHeaders used to make of every header set
+    @Benchmark
+    public Map<String, List<String>> readOnlyDeepCopy() {
+        LinkedCaseInsensitiveMap<List<String>> map = new LinkedCaseInsensitiveMap<List<String>>(this.headers.size(), Locale.ENGLISH);
+        Iterator<Entry<String, List<String>>> var1 = this.headers.entrySet().iterator();
+
+        while(var1.hasNext()) {
+            Entry<String, List<String>> entry = var1.next();
+            map.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Benchmark
+    public Map<String, String> toSingleValueMap() {
+        return this.headers.toSingleValueMap();
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return this.headers.equals(this.copy);
+    }
+
+    @Benchmark
+    public int hashCodeHeaders() {
+        return this.headers.hashCode();
+    }
+
+    @Benchmark
+    public ContentNegotiator.Variant negotiate() {
+        return this.negotiator.negotiate(this.headers);
+    }
+
+    @Benchmark
+    public String encodeHeaderFieldParam() {
+        return HttpHeaders.encodeHeaderFieldParam(NON_ASCII_FILENAME, UTF_8);
+    }
+
+    @Benchmark
+    public ContentDispositionValue parseContentDisposition() {
+        return ContentDispositionValue.parse(CONTENT_DISPOSITION);
+    }
+
+    @Benchmark
+    public long varyFingerprint() {
+        return this.varySpec.fingerprint(this.headers);
+    }
+
+    // baseline: the secondary cache key as a String built from getVary() and getFirst()
+    @Benchmark
+    public String varyKeyByConcatenation() {
+        StringBuilder key = new StringBuilder();
+        Iterator var2 = this.headers.getVary().iterator();
+
+        while(var2.hasNext()) {
+            String name = (String)var2.next();
+            key.append(name.trim().toLowerCase()).append('=').append(this.headers.getFirst(name.trim())).append(';');
+        }
+
+        return key.toString();
+    }
+
+    @Benchmark
+    public CacheControlDirectives parseCacheControl() {
+        return CacheControlDirectives.parse(CACHE_CONTROL);
+    }
+
+    // a new String per call, as for values read off the wire, so the cache lookup pays for hashing
+    @Benchmark
+    public CacheControlDirectives parseCacheControlFromNewString() {
+        return CacheControlDirectives.parse(new StringBuilder(CACHE_CONTROL).toString());
+    }
+
+    // baseline: the Map hash code, recomputed over all entries
+    @Benchmark
+    public int hashCodeRecomputed() {
+        return this.copy.hashCode();
+    }
+
+    @Benchmark
+    public int hashCodeCached() {
+        return this.key.hashCode();
+    }
+
+    // a set() on a key kept in caching mode, which updates the hash code for that header only
+    @Benchmark
+    public int setAndHashCodeCached() {
+        this.key.set("Date", "Mon, 16 Oct 2023 10:15:30 GMT");
+        return this.key.hashCode();
+    }
+
+    // keys that differ in one value, rejected on their hash codes
+    @Benchmark
+    public boolean equalsCachedMismatch() {
+        return this.key.equals(this.otherKey);
+    }
+}
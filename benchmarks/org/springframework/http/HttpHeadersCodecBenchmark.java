@@ -0,0 +1,152 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpHeadersCodecBenchmark {
+    @Param({"browser", "api-client", "cdn"})
+    public String dataset;
+    @Param({"10", "30", "100"})
+    public int size;
+    private HttpHeaders headers;
+    private byte[] http1Bytes;
+    private String http1String;
+    private byte[] hpackBlock;
+    private final HttpHeadersParser parser = new HttpHeadersParser();
+    private final ByteBuffer output = ByteBuffer.allocate(64 * 1024);
+    private HpackEncoder connectionEncoder;
+    private HpackDecoder connectionDecoder;
+    private byte[] hpackIndexedBlock;
+    private HttpHeaders frozen;
+
+    @Setup
+    public void setup() {
+        this.headers = HeaderDatasets.create(this.dataset, this.size);
+        this.http1Bytes = HeaderDatasets.toBytes(this.headers);
+        this.http1String = new String(this.http1Bytes, HttpHeadersParser.ISO_8859_1);
+        this.hpackBlock = this.encode(new HpackEncoder());
+        // a connection that has seen the same header list before sends it almost fully indexed
+        this.connectionEncoder = new HpackEncoder();
+        this.connectionDecoder = new HpackDecoder();
+        this.connectionDecoder.decode(ByteBuffer.wrap(this.encode(this.connectionEncoder)));
+        this.hpackIndexedBlock = this.encode(this.connectionEncoder);
+        this.frozen = HttpHeaders.readOnlySnapshot(this.headers);
+    }
+
+    private byte[] encode(HpackEncoder encoder) {
+        this.output.clear();
+        encoder.encode(this.headers, this.output);
+        this.output.flip();
+        byte[] block = new byte[this.output.remaining()];
+        this.output.get(block);
+        return block;
+    }
+
+    @Benchmark
+    public HttpHeaders parse() {
+        return this.parser.parse(ByteBuffer.wrap(this.http1Bytes));
+    }
+
+    @Benchmark
+    public HttpHeaders parseLazily() {
+        return this.parser.parseLazily(ByteBuffer.wrap(this.http1Bytes));
+    }
+
+    // what a typical handler does: a handful of reads out of many headers
+    @Benchmark
+    public void parseAndReadFew(Blackhole blackhole) {
+        readFew(this.parser.parse(ByteBuffer.wrap(this.http1Bytes)), blackhole);
+    }
+
+    @Benchmark
+    public void parseLazilyAndReadFew(Blackhole blackhole) {
+        readFew(this.parser.parseLazily(ByteBuffer.wrap(this.http1Bytes)), blackhole);
+    }
+
+    private static void readFew(HttpHeaders headers, Blackhole blackhole) {
+        blackhole.consume(headers.getFirst("Host"));
+        blackhole.consume(headers.getFirst("Accept"));
+        blackhole.consume(headers.getFirst("Content-Type"));
+        blackhole.consume(headers.getFirst("Authorization"));
+        blackhole.consume(headers.getFirst("X-Request-Id"));
+    }
+
+    // baseline: the String based splitting the parser replaces
+    @Benchmark
+    public HttpHeaders parseLineByLine() {
+        HttpHeaders result = new HttpHeaders();
+        String[] lines = this.http1String.split("\r\n");
+
+        for(int i = 0; i < lines.length; ++i) {
+            String line = lines[i];
+            if(line.isEmpty()) {
+                break;
+            }
+
+            int colon = line.indexOf(58);
+            result.add(line.substring(0, colon), line.substring(colon + 1).trim());
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public ByteBuffer write() {
+        this.output.clear();
+        this.headers.writer().writeTo(this.output);
+        return this.output;
+    }
+
+    // shared static headers as a frozen base plus two per-response headers
+    @Benchmark
+    public ByteBuffer writeOverFrozenBase() {
+        HttpHeaders response = this.frozen.fork();
+        response.set("Content-Length", "1024");
+        response.set("X-Request-Id", "8c2f6f0e-3e5c-4d0b-9f0a-2c1b1f6f3a77");
+        this.output.clear();
+        response.writer().writeTo(this.output);
+        return this.output;
+    }
+
+    @Benchmark
+    public ByteBuffer hpackEncodeNewConnection() {
+        this.output.clear();
+        (new HpackEncoder()).encode(this.headers, this.output);
+        return this.output;
+    }
+
+    @Benchmark
+    public ByteBuffer hpackEncodeSameConnection() {
+        this.output.clear();
+        this.connectionEncoder.encode(this.headers, this.output);
+        return this.output;
+    }
+
+    @Benchmark
+    public HttpHeaders hpackDecodeNewConnection() {
+        return (new HpackDecoder()).decode(ByteBuffer.wrap(this.hpackBlock));
+    }
+
+    @Benchmark
+    public HttpHeaders hpackDecodeSameConnection() {
+        return this.connectionDecoder.decode(ByteBuffer.wrap(this.hpackIndexedBlock));
+    }
+}
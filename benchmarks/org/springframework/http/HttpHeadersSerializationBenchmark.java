@@ -0,0 +1,128 @@
+package org.springframework.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpHeadersSerializationBenchmark {
+    @Param({"browser", "api-client", "cdn"})
+    public String dataset;
+    @Param({"10", "30", "100"})
+    public int size;
+    private HttpHeaders headers;
+    private LinkedCaseInsensitiveMap<List<String>> defaultForm;
+    private byte[] binary;
+    private byte[] serialized;
+    private byte[] defaultSerialized;
+    private final ByteBuffer output = ByteBuffer.allocate(64 * 1024);
+
+    @Setup
+    public void setup() throws IOException {
+        this.headers = HttpHeaders.readOnlySnapshot(HeaderDatasets.create(this.dataset, this.size));
+        this.defaultForm = defaultForm(this.headers);
+        this.binary = HttpHeadersBinaryCodec.toByteArray(this.headers);
+        this.serialized = serialize(this.headers);
+        this.defaultSerialized = serialize(this.defaultForm);
+    }
+
+    // baseline: the field-by-field form HttpHeaders was serialized in before, a
+    // case-insensitive map of LinkedLists
+    static LinkedCaseInsensitiveMap<List<String>> defaultForm(HttpHeaders headers) {
+        LinkedCaseInsensitiveMap<List<String>> map = new LinkedCaseInsensitiveMap<List<String>>(8, Locale.ENGLISH);
+        Iterator<Entry<String, List<String>>> var2 = headers.entrySet().iterator();
+
+        while(var2.hasNext()) {
+            Entry<String, List<String>> entry = var2.next();
+            map.put(entry.getKey(), new LinkedList<String>(entry.getValue()));
+        }
+
+        return map;
+    }
+
+    static byte[] serialize(Serializable value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(value);
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        return (new ObjectInputStream(new ByteArrayInputStream(bytes))).readObject();
+    }
+
+    @Benchmark
+    public ByteBuffer binaryWrite() {
+        this.output.clear();
+        HttpHeadersBinaryCodec.write(this.headers, this.output);
+        return this.output;
+    }
+
+    @Benchmark
+    public HttpHeaders binaryRead() {
+        return HttpHeadersBinaryCodec.read(ByteBuffer.wrap(this.binary));
+    }
+
+    @Benchmark
+    public byte[] javaSerialize() throws IOException {
+        return serialize(this.headers);
+    }
+
+    @Benchmark
+    public Object javaDeserialize() throws IOException, ClassNotFoundException {
+        return deserialize(this.serialized);
+    }
+
+    @Benchmark
+    public byte[] defaultSerialize() throws IOException {
+        return serialize(this.defaultForm);
+    }
+
+    @Benchmark
+    public Object defaultDeserialize() throws IOException, ClassNotFoundException {
+        return deserialize(this.defaultSerialized);
+    }
+
+    // prints the encoded sizes in bytes for every dataset and size
+    public static void main(String[] args) throws IOException {
+        System.out.println("dataset      size   binary   java   default");
+        String[] datasets = new String[]{"browser", "api-client", "cdn"};
+        int[] sizes = new int[]{10, 30, 100};
+
+        for(int i = 0; i < datasets.length; ++i) {
+            for(int j = 0; j < sizes.length; ++j) {
+                HttpHeaders headers = HttpHeaders.readOnlySnapshot(HeaderDatasets.create(datasets[i], sizes[j]));
+                System.out.println(String.format("%-12s %4d %8d %6d %9d", datasets[i], sizes[j], HttpHeadersBinaryCodec.toByteArray(headers).length, serialize(headers).length, serialize(defaultForm(headers)).length));
+            }
+        }
+
+    }
+}
@@ -0,0 +1,101 @@
+package org.springframework.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CacheControlDirectivesTests {
+
+    @Test
+    public void parseFlagsAndSeconds() {
+        CacheControlDirectives directives = CacheControlDirectives.parse("public, max-age=60, S-MAXAGE=120 ,must-revalidate,immutable");
+        assertTrue(directives.isPublic());
+        assertTrue(directives.isMustRevalidate());
+        assertTrue(directives.isImmutable());
+        assertFalse(directives.isNoStore());
+        assertEquals(60L, directives.getMaxAge());
+        assertEquals(120L, directives.getSMaxAge());
+        assertEquals(-1L, directives.getStaleIfError());
+        assertEquals("public, must-revalidate, immutable, max-age=60, s-maxage=120", directives.toString());
+    }
+
+    @Test
+    public void parseFieldNames() {
+        CacheControlDirectives directives = CacheControlDirectives.parse("no-cache=\"Set-Cookie, X-\\\"A\\\"\", private=X-B");
+        assertTrue(directives.isNoCache());
+        assertEquals("Set-Cookie, X-\"A\"", directives.getNoCacheFields());
+        assertTrue(directives.isPrivate());
+        assertEquals("X-B", directives.getPrivateFields());
+        assertEquals(directives, CacheControlDirectives.parse(directives.toString()));
+    }
+
+    @Test
+    public void parseRequestDirectives() {
+        CacheControlDirectives directives = CacheControlDirectives.parse("max-stale, min-fresh=10, only-if-cached");
+        assertEquals(CacheControlDirectives.MAX_DELTA_SECONDS, directives.getMaxStale());
+        assertEquals(10L, directives.getMinFresh());
+        assertTrue(directives.isOnlyIfCached());
+    }
+
+    @Test
+    public void parseUnusualInput() {
+        // invalid delta-seconds count as 0 for max-age (RFC 7234, section 4.2.1), the first occurrence wins
+        assertEquals(0L, CacheControlDirectives.parse("max-age=abc").getMaxAge());
+        assertEquals(10L, CacheControlDirectives.parse("max-age=10, max-age=20").getMaxAge());
+        assertEquals(CacheControlDirectives.MAX_DELTA_SECONDS, CacheControlDirectives.parse("max-age=99999999999999999999").getMaxAge());
+        assertEquals(5L, CacheControlDirectives.parse("max-age=\"5\"").getMaxAge());
+        assertEquals("community=\"UCI\", foo", CacheControlDirectives.parse("community=\"UCI\", foo").toString());
+        assertEquals(CacheControlDirectives.empty(), CacheControlDirectives.parse(" , ,"));
+        assertEquals("", CacheControlDirectives.parse("").toString());
+    }
+
+    @Test
+    public void builders() {
+        assertEquals("no-store", CacheControlDirectives.noStore().toString());
+        assertEquals("no-cache", CacheControlDirectives.noCache().toString());
+        CacheControlDirectives directives = CacheControlDirectives.maxAge(3600).withPublic().withStaleWhileRevalidate(60).withNoTransform();
+        assertEquals("public, no-transform, max-age=3600, stale-while-revalidate=60", directives.toString());
+        assertEquals(directives, CacheControlDirectives.parse(directives.toString()));
+        assertEquals(directives.hashCode(), CacheControlDirectives.parse(directives.toString()).hashCode());
+    }
+
+    @Test
+    public void parsedValuesAreShared() {
+        assertSame(CacheControlDirectives.parse("private, max-age=0"), CacheControlDirectives.parse("private, max-age=0"));
+    }
+
+    @Test
+    public void headersAccessors() {
+        HttpHeaders headers = new HttpHeaders();
+        assertNull(headers.getCacheControlDirectives());
+        headers.setCacheControl(CacheControlDirectives.maxAge(60).withPrivate());
+        assertEquals("private, max-age=60", headers.getCacheControl());
+        headers.add(HttpHeaders.CACHE_CONTROL, "no-transform");
+        CacheControlDirectives directives = headers.getCacheControlDirectives();
+        assertTrue(directives.isPrivate());
+        assertTrue(directives.isNoTransform());
+        assertSame(directives, headers.getCacheControlDirectives());
+        headers.set(HttpHeaders.CACHE_CONTROL, "no-store");
+        assertTrue(headers.getCacheControlDirectives().isNoStore());
+    }
+
+    @Test
+    public void serialization() throws Exception {
+        CacheControlDirectives directives = CacheControlDirectives.parse("no-cache=\"X-A\", max-age=5, ext");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(directives);
+        out.close();
+        Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(directives, copy);
+        assertEquals(directives.toString(), copy.toString());
+    }
+}
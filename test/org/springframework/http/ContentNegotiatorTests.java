@@ -0,0 +1,157 @@
+package org.springframework.http;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ContentNegotiatorTests {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private final ContentNegotiator negotiator = new ContentNegotiator(
+            Arrays.asList(MediaType.APPLICATION_JSON, MediaType.TEXT_HTML),
+            Arrays.asList(UTF_8, ISO_8859_1), Arrays.asList("br", "gzip"));
+
+    private static HttpHeaders request(String headerName, String... values) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String value : values) {
+            headers.add(headerName, value);
+        }
+        return headers;
+    }
+
+    @Test
+    public void mediaTypeByQuality() {
+        assertEquals(MediaType.TEXT_HTML, negotiator.selectMediaType(request("Accept", "text/html;q=0.9, application/*;q=0.5")));
+        assertEquals(MediaType.APPLICATION_JSON, negotiator.selectMediaType(request("Accept", "text/html;q=0.5", "application/json")));
+    }
+
+    @Test
+    public void mediaTypeTiesGoToServerPreference() {
+        assertEquals(MediaType.APPLICATION_JSON, negotiator.selectMediaType(request("Accept", "*/*")));
+        assertEquals(MediaType.APPLICATION_JSON, negotiator.selectMediaType(request("Accept", "*")));
+        assertEquals(MediaType.APPLICATION_JSON, negotiator.selectMediaType(new HttpHeaders()));
+    }
+
+    @Test
+    public void mostSpecificRangeDecides() {
+        assertEquals(MediaType.APPLICATION_JSON, negotiator.selectMediaType(request("Accept", "text/*;q=0.8, text/html;q=0.1, */*;q=0.5")));
+        assertNull(negotiator.selectMediaType(request("Accept", "text/*, text/html;q=0")));
+    }
+
+    @Test
+    public void mediaTypeParameters() {
+        assertNull(negotiator.selectMediaType(request("Accept", "text/html;level=1")));
+        ContentNegotiator withCharset = new ContentNegotiator(
+                Collections.singletonList(MediaType.valueOf("text/plain;charset=UTF-8")),
+                Collections.<Charset>emptyList(), Collections.<String>emptyList());
+        assertEquals(MediaType.valueOf("text/plain;charset=UTF-8"), withCharset.selectMediaType(request("Accept", "text/plain;charset=\"utf-8\"")));
+        assertNull(withCharset.selectMediaType(request("Accept", "text/plain;charset=ISO-8859-1")));
+    }
+
+    @Test
+    public void notAcceptableMediaType() {
+        assertNull(negotiator.selectMediaType(request("Accept", "image/png")));
+        assertNull(negotiator.selectMediaType(request("Accept", "*/*;q=0")));
+        assertNull(negotiator.negotiate(request("Accept", "image/png")));
+    }
+
+    @Test
+    public void charset() {
+        assertEquals(UTF_8, negotiator.selectCharset(new HttpHeaders()));
+        assertEquals(ISO_8859_1, negotiator.selectCharset(request("Accept-Charset", "iso-8859-1, utf-8;q=0.5")));
+        assertEquals(ISO_8859_1, negotiator.selectCharset(request("Accept-Charset", "latin1")));
+        assertEquals(ISO_8859_1, negotiator.selectCharset(request("Accept-Charset", "*;q=0.1, utf-8;q=0")));
+        assertNull(negotiator.selectCharset(request("Accept-Charset", "koi8-r")));
+    }
+
+    @Test
+    public void encoding() {
+        assertEquals("identity", negotiator.selectEncoding(new HttpHeaders()));
+        assertEquals("br", negotiator.selectEncoding(request("Accept-Encoding", "gzip;q=0.8, br")));
+        assertEquals("gzip", negotiator.selectEncoding(request("Accept-Encoding", "x-gzip")));
+        assertEquals("gzip", negotiator.selectEncoding(request("Accept-Encoding", "*;q=0.5, br;q=0")));
+    }
+
+    @Test
+    public void identityIsTheLastResort() {
+        assertEquals("identity", negotiator.selectEncoding(request("Accept-Encoding", "deflate")));
+        assertEquals("identity", negotiator.selectEncoding(request("Accept-Encoding", "gzip;q=0, br;q=0")));
+        assertNull(negotiator.selectEncoding(request("Accept-Encoding", "identity;q=0")));
+        assertNull(negotiator.selectEncoding(request("Accept-Encoding", "*;q=0")));
+    }
+
+    @Test
+    public void negotiate() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Accept", "text/html");
+        headers.add("Accept-Charset", "iso-8859-1");
+        headers.add("Accept-Encoding", "gzip");
+        ContentNegotiator.Variant variant = negotiator.negotiate(headers);
+        assertEquals(MediaType.TEXT_HTML, variant.getMediaType());
+        assertEquals(ISO_8859_1, variant.getCharset());
+        assertEquals("gzip", variant.getEncoding());
+        headers.set("Accept-Encoding", "identity;q=0");
+        assertNull(negotiator.negotiate(headers));
+    }
+
+    @Test
+    public void cachedDecisionsMatchUncachedOnes() {
+        ContentNegotiator uncached = new ContentNegotiator(
+                Arrays.asList(MediaType.APPLICATION_JSON, MediaType.TEXT_HTML),
+                Arrays.asList(UTF_8, ISO_8859_1), Arrays.asList("br", "gzip"));
+        uncached.setCacheLimit(0);
+        negotiator.setCacheLimit(2);
+        String[] accepts = {"text/html", "application/json;q=0.1, text/*", "image/png", "text/html"};
+        for (int round = 0; round < 3; round++) {
+            for (String accept : accepts) {
+                assertEquals(uncached.selectMediaType(request("Accept", accept)), negotiator.selectMediaType(request("Accept", accept)));
+            }
+        }
+    }
+
+    @Test
+    public void cacheLimit() {
+        assertEquals(ContentNegotiator.DEFAULT_CACHE_LIMIT, negotiator.getCacheLimit());
+        try {
+            negotiator.setCacheLimit(-1);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void producibleMediaTypesMustBeConcrete() {
+        try {
+            new ContentNegotiator(Collections.singletonList(MediaType.ALL),
+                    Collections.<Charset>emptyList(), Collections.<String>emptyList());
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void parseQuality() {
+        assertEquals(1000, ContentNegotiator.parseQuality("1", 0, 1));
+        assertEquals(1000, ContentNegotiator.parseQuality("1.000", 0, 5));
+        assertEquals(500, ContentNegotiator.parseQuality(" 0.5 ", 0, 5));
+        assertEquals(500, ContentNegotiator.parseQuality(".5", 0, 2));
+        assertEquals(123, ContentNegotiator.parseQuality("0.123", 0, 5));
+        assertEquals(-1, ContentNegotiator.parseQuality("1.5", 0, 3));
+        assertEquals(-1, ContentNegotiator.parseQuality("0.1234", 0, 6));
+        assertEquals(-1, ContentNegotiator.parseQuality("2", 0, 1));
+        assertEquals(-1, ContentNegotiator.parseQuality("", 0, 0));
+    }
+
+}
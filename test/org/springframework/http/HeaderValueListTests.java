@@ -0,0 +1,152 @@
+package org.springframework.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+public class HeaderValueListTests {
+
+    @Test
+    public void behavesLikeLinkedList() {
+        Random random = new Random(42);
+        HeaderValueList list = new HeaderValueList();
+        List<String> baseline = new LinkedList<String>();
+        for(int i = 0; i < 2000; ++i) {
+            int size = baseline.size();
+            int operation = random.nextInt(size == 0 ? 1 : 4);
+            String value = Integer.toString(i);
+            if(operation == 0) {
+                int index = random.nextInt(size + 1);
+                list.add(index, value);
+                baseline.add(index, value);
+            }
+            else if(operation == 1) {
+                int index = random.nextInt(size);
+                assertEquals(baseline.set(index, value), list.set(index, value));
+            }
+            else if(operation == 2) {
+                int index = random.nextInt(size);
+                assertEquals(baseline.remove(index), list.remove(index));
+            }
+            else if(random.nextInt(10) == 0) {
+                list.clear();
+                baseline.clear();
+            }
+            assertEquals(baseline, list);
+            assertEquals(baseline.hashCode(), list.hashCode());
+        }
+    }
+
+    @Test
+    public void singleValue() {
+        HeaderValueList list = new HeaderValueList("a");
+        assertEquals(Arrays.asList("a"), list);
+        list.add("b");
+        list.add(0, "c");
+        assertEquals(Arrays.asList("c", "a", "b"), list);
+        assertEquals("c", list.remove(0));
+        assertEquals("a", list.remove(0));
+        assertEquals(Arrays.asList("b"), list);
+    }
+
+    @Test
+    public void nullValues() {
+        HeaderValueList list = new HeaderValueList();
+        list.add(null);
+        list.add("a");
+        list.add(null);
+        assertEquals(Arrays.asList(null, "a", null), list);
+        assertEquals(2, list.lastIndexOf(null));
+    }
+
+    @Test
+    public void indexOutOfBounds() {
+        HeaderValueList list = new HeaderValueList("a");
+        assertOutOfBounds(list, 1);
+        assertOutOfBounds(list, -1);
+        try {
+            list.add(2, "b");
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch (IndexOutOfBoundsException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void listIterator() {
+        HeaderValueList list = new HeaderValueList();
+        list.addAll(Arrays.asList("a", "b", "c"));
+        ListIterator<String> iterator = list.listIterator();
+        iterator.next();
+        iterator.set("x");
+        iterator.next();
+        iterator.remove();
+        iterator.add("y");
+        assertEquals(Arrays.asList("x", "y", "c"), list);
+    }
+
+    @Test
+    public void setIsNotAStructuralChange() {
+        HeaderValueList list = new HeaderValueList();
+        list.addAll(Arrays.asList("a", "b"));
+        int version = list.version();
+        for(String value : list) {
+            list.set(list.indexOf(value), value.toUpperCase());
+        }
+        assertEquals(Arrays.asList("A", "B"), list);
+        assertNotEquals(version, list.version());
+    }
+
+    @Test
+    public void addWhileIteratingFails() {
+        HeaderValueList list = new HeaderValueList("a");
+        Iterator<String> iterator = list.iterator();
+        list.add("b");
+        try {
+            iterator.next();
+            fail("Expected ConcurrentModificationException");
+        }
+        catch (ConcurrentModificationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void serialization() throws Exception {
+        for(List<String> values : Arrays.<List<String>>asList(new ArrayList<String>(), Arrays.asList("a"), Arrays.asList("a", null, "c"))) {
+            HeaderValueList list = new HeaderValueList();
+            list.addAll(values);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(list);
+            out.close();
+            Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+            assertEquals(values, copy);
+        }
+    }
+
+    private static void assertOutOfBounds(HeaderValueList list, int index) {
+        try {
+            list.get(index);
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch (IndexOutOfBoundsException ex) {
+            // expected
+        }
+    }
+}
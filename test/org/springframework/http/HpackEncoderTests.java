@@ -0,0 +1,76 @@
+package org.springframework.http;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HpackEncoderTests {
+
+    @Test
+    public void retryAfterOverflowWithNewTable() {
+        HpackEncoder encoder = new HpackEncoder();
+        HttpHeaders headers = headers("x-a", "aaaaaaaaaa", "x-b", "bbbbbbbbbbbbbbbbbbbbbbbbbbbbbb");
+
+        int length = encode(new HpackEncoder(), headers).remaining();
+
+        for(int capacity = 0; capacity < length; ++capacity) {
+            assertOverflow(encoder, headers, capacity);
+        }
+
+        assertEquals(headers, new HpackDecoder().decode(encode(encoder, headers)));
+    }
+
+    @Test
+    public void retryAfterOverflowWithEvictions() {
+        HpackEncoder encoder = new HpackEncoder(100);
+        HpackDecoder decoder = new HpackDecoder(100);
+        HttpHeaders first = headers("x-a", "aaaaaaaaaa", "x-b", "bbbbbbbbbb");
+        HttpHeaders second = headers("x-b", "bbbbbbbbbb", "x-c", "cccccccccc", "x-d", "dddddddddd");
+        assertEquals(first, decoder.decode(encode(encoder, first)));
+        assertOverflow(encoder, second, 8);
+        assertEquals(second, decoder.decode(encode(encoder, second)));
+        assertEquals(first, decoder.decode(encode(encoder, first)));
+    }
+
+    @Test
+    public void retryAfterOverflowKeepsTableSizeUpdate() {
+        HpackEncoder encoder = new HpackEncoder();
+        HpackDecoder decoder = new HpackDecoder();
+        HttpHeaders headers = headers("x-a", "aaaaaaaaaa");
+        assertEquals(headers, decoder.decode(encode(encoder, headers)));
+        encoder.setMaxTableSize(0);
+        assertOverflow(encoder, headers, 2);
+        ByteBuffer block = encode(encoder, headers);
+        assertEquals(0x20, block.get(0) & 0xFF);
+        assertEquals(headers, decoder.decode(block));
+    }
+
+    private static void assertOverflow(HpackEncoder encoder, HttpHeaders headers, int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        try {
+            encoder.encode(headers, buffer);
+            fail("Expected BufferOverflowException for a buffer of " + capacity + " bytes");
+        }
+        catch (BufferOverflowException ex) {
+            assertEquals(0, buffer.position());
+        }
+    }
+
+    private static ByteBuffer encode(HpackEncoder encoder, HttpHeaders headers) {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        encoder.encode(headers, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static HttpHeaders headers(String... namesAndValues) {
+        HttpHeaders headers = new HttpHeaders();
+        for(int i = 0; i < namesAndValues.length; i += 2) {
+            headers.add(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,226 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+// The examples of RFC 7541, Appendix C.2 to C.6, through the encoder and the decoder,
+// with the dynamic table of both checked after each header block.
+public class HpackExamplesTests {
+
+    private static final HpackEncoder.IndexingPolicy INCREMENTAL = new HpackEncoder.IndexingPolicy() {
+        public HpackEncoder.Indexing getIndexing(String name, String value) {
+            return HpackEncoder.Indexing.INCREMENTAL;
+        }
+    };
+
+    private static final String DATE_21 = "Mon, 21 Oct 2013 20:13:21 GMT";
+
+    private static final String DATE_22 = "Mon, 21 Oct 2013 20:13:22 GMT";
+
+    private static final String COOKIE = "foo=ASDJKHQKBZXOQWEOPIUAXQWEOIU; max-age=3600; version=1";
+
+    @Test
+    public void literalWithIndexing() {
+        Codec codec = new Codec(4096, false, INCREMENTAL);
+        codec.check(headers("custom-key", "custom-header"),
+                "400a 6375 7374 6f6d 2d6b 6579 0d63 7573 746f 6d2d 6865 6164 6572",
+                55, "custom-key", "custom-header");
+    }
+
+    @Test
+    public void literalWithoutIndexing() {
+        Codec codec = new Codec(4096, false, policy(HpackEncoder.Indexing.WITHOUT_INDEXING));
+        codec.check(headers(":path", "/sample/path"), "040c 2f73 616d 706c 652f 7061 7468", 0);
+    }
+
+    @Test
+    public void literalNeverIndexed() {
+        Codec codec = new Codec(4096, false, policy(HpackEncoder.Indexing.NEVER_INDEXED));
+        codec.check(headers("password", "secret"), "1008 7061 7373 776f 7264 0673 6563 7265 74", 0);
+    }
+
+    @Test
+    public void indexed() {
+        Codec codec = new Codec(4096, false, INCREMENTAL);
+        codec.check(headers(":method", "GET"), "82", 0);
+    }
+
+    @Test
+    public void requestsWithoutHuffman() {
+        Codec codec = new Codec(4096, false, INCREMENTAL);
+        codec.check(firstRequest(),
+                "8286 8441 0f77 7777 2e65 7861 6d70 6c65 2e63 6f6d",
+                57, ":authority", "www.example.com");
+        codec.check(secondRequest(),
+                "8286 84be 5808 6e6f 2d63 6163 6865",
+                110, "cache-control", "no-cache", ":authority", "www.example.com");
+        codec.check(thirdRequest(),
+                "8287 85bf 400a 6375 7374 6f6d 2d6b 6579 0c63 7573 746f 6d2d 7661 6c75 65",
+                164, "custom-key", "custom-value", "cache-control", "no-cache", ":authority", "www.example.com");
+    }
+
+    @Test
+    public void requestsWithHuffman() {
+        Codec codec = new Codec(4096, true, INCREMENTAL);
+        codec.check(firstRequest(),
+                "8286 8441 8cf1 e3c2 e5f2 3a6b a0ab 90f4 ff",
+                57, ":authority", "www.example.com");
+        codec.check(secondRequest(),
+                "8286 84be 5886 a8eb 1064 9cbf",
+                110, "cache-control", "no-cache", ":authority", "www.example.com");
+        codec.check(thirdRequest(),
+                "8287 85bf 4088 25a8 49e9 5ba9 7d7f 8925 a849 e95b b8e8 b4bf",
+                164, "custom-key", "custom-value", "cache-control", "no-cache", ":authority", "www.example.com");
+    }
+
+    @Test
+    public void responsesWithoutHuffman() {
+        Codec codec = new Codec(256, false, INCREMENTAL);
+        codec.check(firstResponse(),
+                "4803 3330 3258 0770 7269 7661 7465 611d 4d6f 6e2c 2032 3120 4f63 7420 3230 3133 2032 303a " +
+                "3133 3a32 3120 474d 546e 1768 7474 7073 3a2f 2f77 7777 2e65 7861 6d70 6c65 2e63 6f6d",
+                222, "location", "https://www.example.com", "date", DATE_21, "cache-control", "private", ":status", "302");
+        codec.check(secondResponse(),
+                "4803 3330 37c1 c0bf",
+                222, ":status", "307", "location", "https://www.example.com", "date", DATE_21, "cache-control", "private");
+        codec.check(thirdResponse(),
+                "88c1 611d 4d6f 6e2c 2032 3120 4f63 7420 3230 3133 2032 303a 3133 3a32 3220 474d 54c0 5a04 " +
+                "677a 6970 7738 666f 6f3d 4153 444a 4b48 514b 425a 584f 5157 454f 5049 5541 5851 5745 4f49 " +
+                "553b 206d 6178 2d61 6765 3d33 3630 303b 2076 6572 7369 6f6e 3d31",
+                215, "set-cookie", COOKIE, "content-encoding", "gzip", "date", DATE_22);
+    }
+
+    @Test
+    public void responsesWithHuffman() {
+        Codec codec = new Codec(256, true, INCREMENTAL);
+        codec.check(firstResponse(),
+                "4882 6402 5885 aec3 771a 4b61 96d0 7abe 9410 54d4 44a8 2005 9504 0b81 66e0 82a6 2d1b ff6e " +
+                "919d 29ad 1718 63c7 8f0b 97c8 e9ae 82ae 43d3",
+                222, "location", "https://www.example.com", "date", DATE_21, "cache-control", "private", ":status", "302");
+        codec.check(secondResponse(),
+                "4883 640e ffc1 c0bf",
+                222, ":status", "307", "location", "https://www.example.com", "date", DATE_21, "cache-control", "private");
+        codec.check(thirdResponse(),
+                "88c1 6196 d07a be94 1054 d444 a820 0595 040b 8166 e084 a62d 1bff c05a 839b d9ab 77ad 94e7 " +
+                "821d d7f2 e6c7 b335 dfdf cd5b 3960 d5af 2708 7f36 72c1 ab27 0fb5 291f 9587 3160 65c0 03ed " +
+                "4ee5 b106 3d50 07",
+                215, "set-cookie", COOKIE, "content-encoding", "gzip", "date", DATE_22);
+    }
+
+    @Test
+    public void huffmanEncodesUnmappableCharsLikeRawStrings() {
+        HttpHeaders headers = headers("x-name", "café €€€€€€");
+        HpackEncoder raw = new HpackEncoder();
+        raw.setHuffmanEnabled(false);
+        ByteBuffer block = ByteBuffer.allocate(64);
+        new HpackEncoder().encode(headers, block);
+        block.flip();
+        assertEquals("café ??????", new HpackDecoder().decode(block).getFirst("x-name"));
+        block.clear();
+        raw.encode(headers, block);
+        block.flip();
+        assertEquals("café ??????", new HpackDecoder().decode(block).getFirst("x-name"));
+    }
+
+    private static HttpHeaders firstRequest() {
+        return headers(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com");
+    }
+
+    private static HttpHeaders secondRequest() {
+        return headers(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+                "cache-control", "no-cache");
+    }
+
+    private static HttpHeaders thirdRequest() {
+        return headers(":method", "GET", ":scheme", "https", ":path", "/index.html", ":authority", "www.example.com",
+                "custom-key", "custom-value");
+    }
+
+    private static HttpHeaders firstResponse() {
+        return headers(":status", "302", "cache-control", "private", "date", DATE_21,
+                "location", "https://www.example.com");
+    }
+
+    private static HttpHeaders secondResponse() {
+        return headers(":status", "307", "cache-control", "private", "date", DATE_21,
+                "location", "https://www.example.com");
+    }
+
+    private static HttpHeaders thirdResponse() {
+        return headers(":status", "200", "cache-control", "private", "date", DATE_22,
+                "location", "https://www.example.com", "content-encoding", "gzip", "set-cookie", COOKIE);
+    }
+
+    private static HpackEncoder.IndexingPolicy policy(final HpackEncoder.Indexing indexing) {
+        return new HpackEncoder.IndexingPolicy() {
+            public HpackEncoder.Indexing getIndexing(String name, String value) {
+                return indexing;
+            }
+        };
+    }
+
+    private static HttpHeaders headers(String... namesAndValues) {
+        HttpHeaders headers = new HttpHeaders();
+        for(int i = 0; i < namesAndValues.length; i += 2) {
+            headers.add(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return headers;
+    }
+
+    private static byte[] hex(String hex) {
+        String digits = hex.replace(" ", "");
+        byte[] bytes = new byte[digits.length() / 2];
+        for(int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte)Integer.parseInt(digits.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static String hex(ByteBuffer buffer) {
+        StringBuilder builder = new StringBuilder();
+        for(int i = buffer.position(); i < buffer.limit(); ++i) {
+            builder.append(String.format("%02x", buffer.get(i) & 0xFF));
+        }
+        return builder.toString();
+    }
+
+    // an encoder and a decoder for one connection, each with its own dynamic table
+    private static final class Codec {
+
+        private final HpackEncoder encoder;
+
+        private final HpackDecoder decoder;
+
+        Codec(int maxTableSize, boolean huffman, HpackEncoder.IndexingPolicy policy) {
+            this.encoder = new HpackEncoder(maxTableSize);
+            this.encoder.setHuffmanEnabled(huffman);
+            this.encoder.setIndexingPolicy(policy);
+            this.decoder = new HpackDecoder(maxTableSize);
+        }
+
+        // entries as name and value pairs, most recently added first
+        void check(HttpHeaders headers, String block, int tableSize, String... entries) {
+            ByteBuffer encoded = ByteBuffer.allocate(256);
+            this.encoder.encode(headers, encoded);
+            encoded.flip();
+            assertEquals(block.replace(" ", ""), hex(encoded));
+            assertTable(this.encoder.dynamicTable(), tableSize, entries);
+
+            assertEquals(headers, this.decoder.decode(ByteBuffer.wrap(hex(block))));
+            assertTable(this.decoder.dynamicTable(), tableSize, entries);
+        }
+
+        private static void assertTable(HpackDynamicTable table, int size, String... entries) {
+            assertEquals(entries.length / 2, table.length());
+            for(int i = 0; i < entries.length; i += 2) {
+                // the decoder keeps the usual spelling of well-known names
+                assertEquals(entries[i], table.name(i / 2 + 1).toLowerCase(Locale.ENGLISH));
+                assertEquals(entries[i + 1], table.value(i / 2 + 1));
+            }
+            assertEquals(size, table.size());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.springframework.http;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HttpDateFormatterTests {
+
+    @Test
+    public void formatLikeSimpleDateFormat() {
+        long[] dates = {0L, -1L, 784111777000L, 1382386401999L, 951782400000L, 4102444799000L, -11644473600000L};
+        for(long date : dates) {
+            assertEquals(format(0, date), HttpDateFormatter.format(date));
+        }
+        Random random = new Random(42);
+        for(int i = 0; i < 1000; ++i) {
+            long date = (random.nextLong() % 100000000000000L);
+            assertEquals(format(0, date), HttpDateFormatter.format(date));
+        }
+    }
+
+    @Test
+    public void parseAllFormatsLikeSimpleDateFormat() {
+        Random random = new Random(42);
+        for(int i = 0; i < 1000; ++i) {
+            long date = Math.abs(random.nextLong() % 4000000000000L) / 1000L * 1000L;
+            for(int format = 0; format < HttpDateFormatter.DATE_FORMATS.length; ++format) {
+                String value = format(format, date);
+                assertEquals(value, parse(value), HttpDateFormatter.parse(value));
+                // the second time may come from the cache
+                assertEquals(value, parse(value), HttpDateFormatter.parse(value));
+            }
+        }
+    }
+
+    @Test
+    public void parseKnownValues() {
+        assertEquals(784111777000L, HttpDateFormatter.parse("Sun, 06 Nov 1994 08:49:37 GMT"));
+        assertEquals(784111777000L, HttpDateFormatter.parse("Sun Nov  6 08:49:37 1994"));
+        assertEquals(parse("Sunday, 06-Nov-94 08:49:37 GMT"), HttpDateFormatter.parse("Sunday, 06-Nov-94 08:49:37 GMT"));
+    }
+
+    @Test
+    public void parseNonCanonicalValuesLikeSimpleDateFormat() {
+        String[] values = {
+                "Mon, 06 Nov 1994 08:49:37 GMT",
+                "Sun, 06 Nov 1994 08:49:37 PST",
+                "Sun, 6 Nov 1994 08:49:37 GMT",
+                "Sun, 31 Feb 1994 08:49:37 GMT",
+                "Sun, 06 Nov 1994 24:49:37 GMT",
+                "Sun, 06 Nov 1994 08:49:37 GMT trailing",
+                "Sun, 06 Nov 0994 08:49:37 GMT"};
+        for(String value : values) {
+            assertEquals(value, parse(value), HttpDateFormatter.parse(value));
+        }
+    }
+
+    @Test
+    public void parseInvalidValues() {
+        assertEquals(-1L, HttpDateFormatter.parse(""));
+        assertEquals(-1L, HttpDateFormatter.parse("now"));
+        assertEquals(-1L, HttpDateFormatter.parse("Sun, 06 Nov"));
+        assertEquals(-1L, HttpDateFormatter.parse("not a date at all, really not"));
+    }
+
+    private static String format(int format, long date) {
+        return dateFormat(format).format(new Date(date));
+    }
+
+    // what HttpHeaders did before: each format in turn, -1 if none matches
+    private static long parse(String value) {
+        for(int format = 0; format < HttpDateFormatter.DATE_FORMATS.length; ++format) {
+            Date date = dateFormat(format).parse(value, new ParsePosition(0));
+            if(date != null) {
+                return date.getTime();
+            }
+        }
+        return -1L;
+    }
+
+    private static SimpleDateFormat dateFormat(int format) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(HttpDateFormatter.DATE_FORMATS[format], Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return dateFormat;
+    }
+}
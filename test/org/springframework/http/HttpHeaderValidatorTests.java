@@ -0,0 +1,142 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HttpHeaderValidatorTests {
+
+    private static final String TCHARS = "!#$%&'*+-.^_`|~0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    @Test
+    public void names() {
+        assertEquals(-1, HttpHeaderValidator.invalidNameIndex(TCHARS));
+        assertEquals(0, HttpHeaderValidator.invalidNameIndex(""));
+        assertEquals(1, HttpHeaderValidator.invalidNameIndex("X Y"));
+        assertEquals(1, HttpHeaderValidator.invalidNameIndex("X:Y"));
+        assertEquals(2, HttpHeaderValidator.invalidNameIndex("X-é"));
+        assertEquals(1, HttpHeaderValidator.invalidNameIndex("XĀ"));
+        for(int c = 0; c < 256; ++c) {
+            assertEquals(TCHARS.indexOf(c) >= 0 ? -1 : 0, HttpHeaderValidator.invalidNameIndex(String.valueOf((char)c)));
+        }
+    }
+
+    @Test
+    public void valuesMatchCharByCharCheckAtEveryPosition() {
+        char[] specials = {'\t', '\r', '\n', 0, 0x1f, 0x7f, 0x80, 0xa0, 0xff, 0x100, 0x20ac, ' ', '~'};
+        for(int length = 0; length <= 24; ++length) {
+            for(int position = 0; position < length; ++position) {
+                for(char special : specials) {
+                    char[] chars = new char[length];
+                    Arrays.fill(chars, 'a');
+                    chars[position] = special;
+                    assertSameResult(new String(chars));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void valuesMatchCharByCharCheckAtRandom() {
+        Random random = new Random(42);
+        for(int i = 0; i < 20000; ++i) {
+            char[] chars = new char[random.nextInt(40)];
+            for(int j = 0; j < chars.length; ++j) {
+                int kind = random.nextInt(20);
+                chars[j] = (char)(kind == 0 ? random.nextInt(32) : kind == 1 ? 0x7f + random.nextInt(0x81) : kind == 2 ? random.nextInt(0x10000) : 0x20 + random.nextInt(0x5f));
+            }
+            assertSameResult(new String(chars));
+        }
+    }
+
+    @Test
+    public void validation() {
+        HttpHeaderValidator.validateName("X-Custom");
+        HttpHeaderValidator.validateValue("X-Custom", "a\tb c", false);
+        HttpHeaderValidator.validateValue("X-Custom", null, false);
+        HttpHeaderValidator.validateValue("X-Custom", "café", true);
+        assertInvalidValue("a\r\nX-Injected: 1", false, "Invalid character 0xd at index 1 in value of header 'X-Custom'");
+        assertInvalidValue("café", false, "Invalid character 0xe9 at index 3 in value of header 'X-Custom'");
+        try {
+            HttpHeaderValidator.validateName("X Custom");
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            assertEquals("Invalid character 0x20 at index 1 in header name 'X Custom'", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void strictHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setStrictValidation(true);
+        headers.add("X-Custom", "a\tb");
+        try {
+            headers.add("X-Custom", "a\nX-Injected: 1");
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            headers.set("X Custom", "a");
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // expected
+        }
+        assertEquals(1, headers.size());
+    }
+
+    private static void assertInvalidValue(String value, boolean allowObsText, String message) {
+        try {
+            HttpHeaderValidator.validateValue("X-Custom", value, allowObsText);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            assertEquals(message, ex.getMessage());
+        }
+    }
+
+    private static void assertSameResult(String value) {
+        for(boolean allowObsText : new boolean[] {false, true}) {
+            int expected = expectedIndex(value, allowObsText);
+            assertEquals(value, expected, HttpHeaderValidator.invalidValueIndex(value, allowObsText));
+            if(noWideChars(value)) {
+                // the bytes of the value, at an offset so that words are not aligned with it
+                ByteBuffer buffer = ByteBuffer.allocate(value.length() + 3);
+                buffer.position(3);
+                for(int i = 0; i < value.length(); ++i) {
+                    buffer.put((byte)value.charAt(i));
+                }
+                int index = HttpHeaderValidator.invalidValueIndex(buffer, 3, buffer.limit(), allowObsText);
+                assertEquals(value, expected < 0 ? -1 : expected + 3, index);
+            }
+        }
+    }
+
+    private static boolean noWideChars(String value) {
+        for(int i = 0; i < value.length(); ++i) {
+            if(value.charAt(i) > 0xff) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // field-content without obs-fold: VCHAR, SP, HTAB and optionally obs-text
+    private static int expectedIndex(String value, boolean allowObsText) {
+        for(int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            boolean valid = c == '\t' || (c >= 0x20 && c <= 0x7e) || (allowObsText && c >= 0x80 && c <= 0xff);
+            if(!valid) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
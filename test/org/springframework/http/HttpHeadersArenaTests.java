@@ -0,0 +1,123 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HttpHeadersArenaTests {
+
+    @Test
+    public void storedHeadersReadLikeTheOriginal() {
+        HttpHeadersArena arena = new HttpHeadersArena(1024);
+        HttpHeaders original = headers();
+        HttpHeaders stored = arena.store(original);
+        assertEquals(original, stored);
+        assertEquals(Arrays.asList("a", "b"), stored.get("x-trace"));
+        assertEquals("text/html", stored.getFirst("CONTENT-TYPE"));
+        assertEquals("café", stored.getFirst("X-Name"));
+        assertNull(stored.get("X-Other"));
+        assertEquals(Arrays.asList("Content-Type", "X-Trace", "X-Name"), new ArrayList<String>(stored.keySet()));
+        assertEquals(3, stored.size());
+        assertTrue(arena.getUsedBytes() > 0);
+    }
+
+    @Test
+    public void storedHeadersAreReadOnly() {
+        HttpHeaders stored = new HttpHeadersArena().store(headers());
+        try {
+            stored.add("X-New", "1");
+            fail("Expected UnsupportedOperationException");
+        }
+        catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void oversizedHeadersGetTheirOwnBuffer() {
+        HttpHeadersArena arena = new HttpHeadersArena(64);
+        HttpHeaders small = arena.store(headers("X-A", "1"));
+        char[] chars = new char[200];
+        Arrays.fill(chars, 'v');
+        HttpHeaders large = arena.store(headers("X-Large", new String(chars), "X-Empty", ""));
+        assertEquals(new String(chars), large.getFirst("X-Large"));
+        assertEquals("", large.getFirst("x-empty"));
+        assertEquals("1", small.getFirst("X-A"));
+        assertTrue(arena.getAllocatedBytes() >= 64 + 200);
+    }
+
+    @Test
+    public void resetInvalidatesStoredHeaders() {
+        HttpHeadersArena arena = new HttpHeadersArena(1024);
+        HttpHeaders stored = arena.store(headers());
+        arena.reset();
+        HttpHeaders next = arena.store(headers("X-Other", "1"));
+        assertEquals(0, arena.getAllocatedBytes() - 1024);
+        assertEquals("1", next.getFirst("X-Other"));
+        try {
+            stored.getFirst("X-Trace");
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void closeInvalidatesStoredHeaders() {
+        HttpHeadersArena arena = new HttpHeadersArena(1024);
+        HttpHeaders stored = arena.store(headers());
+        arena.close();
+        assertTrue(arena.isClosed());
+        assertEquals(0, arena.getAllocatedBytes());
+        try {
+            stored.size();
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            // expected
+        }
+        try {
+            arena.store(headers());
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void garbageCountsDoNotAllocate() {
+        HttpHeadersArena arena = new HttpHeadersArena();
+        // one custom name "x" with a value count of 2^28 - 1
+        byte[] bytes = {1, 0, 1, 'x', (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x7F};
+        ArenaHeaderMap map = new ArenaHeaderMap(arena, ByteBuffer.wrap(bytes), 0, arena.generation);
+        try {
+            map.get("x");
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            assertEquals("Corrupt HttpHeadersArena entry", ex.getMessage());
+        }
+        assertEquals(Collections.emptyMap(), new ArenaHeaderMap(arena, ByteBuffer.wrap(new byte[] {0}), 0, arena.generation));
+    }
+
+    private static HttpHeaders headers() {
+        return headers("Content-Type", "text/html", "X-Trace", "a", "X-Trace", "b", "X-Name", "café");
+    }
+
+    private static HttpHeaders headers(String... namesAndValues) {
+        HttpHeaders headers = new HttpHeaders();
+        for(int i = 0; i < namesAndValues.length; i += 2) {
+            headers.add(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,177 @@
+package org.springframework.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HttpHeadersBinaryCodecTests {
+
+    @Test
+    public void roundTrip() {
+        HttpHeaders headers = headers();
+        HttpHeaders copy = HttpHeadersBinaryCodec.read(ByteBuffer.wrap(HttpHeadersBinaryCodec.toByteArray(headers)));
+        assertEquals(headers, copy);
+        assertEquals(Arrays.asList("Content-Type", "x-trace", "X-Name", "X-Null"), new ArrayList<String>(copy.keySet()));
+        assertEquals(Arrays.asList("a", "b"), copy.get("X-Trace"));
+        assertEquals("café €", copy.getFirst("X-Name"));
+        assertNull(copy.getFirst("X-Null"));
+    }
+
+    @Test
+    public void framesOneAfterAnother() {
+        HttpHeaders first = headers();
+        HttpHeaders second = new HttpHeaders();
+        second.add("Host", "example.com");
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        HttpHeadersBinaryCodec.write(first, buffer);
+        HttpHeadersBinaryCodec.write(second, buffer);
+        buffer.flip();
+        assertEquals(first, HttpHeadersBinaryCodec.read(buffer));
+        assertEquals(second, HttpHeadersBinaryCodec.read(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void dataStreams() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HttpHeadersBinaryCodec.write(headers(), new DataOutputStream(bytes));
+        assertEquals(headers(), HttpHeadersBinaryCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        byte[] corrupt = bytes.toByteArray();
+        corrupt[corrupt.length - 1] ^= 1;
+        try {
+            HttpHeadersBinaryCodec.read(new DataInputStream(new ByteArrayInputStream(corrupt)));
+            fail("Expected StreamCorruptedException");
+        }
+        catch (StreamCorruptedException ex) {
+            assertEquals("HttpHeaders frame checksum mismatch", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void settingsAreKept() {
+        HttpHeaders headers = headers();
+        headers.setStrictValidation(true);
+        headers.setObsTextAllowed(true);
+        headers.setHashCodeCaching(true);
+        headers.setMaxHeaderCount(10);
+        headers.setMaxValuesPerHeader(5);
+        headers.setMaxHeaderBytes(1000);
+        HttpHeaders copy = HttpHeadersBinaryCodec.read(ByteBuffer.wrap(HttpHeadersBinaryCodec.toByteArray(headers)));
+        assertTrue(copy.isStrictValidation());
+        assertTrue(copy.isObsTextAllowed());
+        assertTrue(copy.isHashCodeCaching());
+        assertEquals(10, copy.getMaxHeaderCount());
+        assertEquals(5, copy.getMaxValuesPerHeader());
+        assertEquals(1000, copy.getMaxHeaderBytes());
+    }
+
+    @Test
+    public void readOnlyAndFrozenAreKept() {
+        HttpHeaders readOnly = roundTrip(HttpHeaders.readOnlyHttpHeaders(headers()));
+        HttpHeaders frozen = roundTrip(HttpHeaders.readOnlySnapshot(headers()));
+        for(HttpHeaders headers : Arrays.asList(readOnly, frozen)) {
+            assertEquals(headers(), headers);
+            try {
+                headers.add("X-New", "1");
+                fail("Expected UnsupportedOperationException");
+            }
+            catch (UnsupportedOperationException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void javaSerialization() throws Exception {
+        HttpHeaders headers = headers();
+        headers.setMaxHeaderCount(10);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(headers);
+        out.close();
+        HttpHeaders copy = (HttpHeaders)new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(headers, copy);
+        assertEquals(10, copy.getMaxHeaderCount());
+    }
+
+    @Test
+    public void truncatedFrames() {
+        byte[] frame = HttpHeadersBinaryCodec.toByteArray(headers());
+        for(int length = 0; length < frame.length; ++length) {
+            assertInvalid(Arrays.copyOf(frame, length), "Truncated HttpHeaders frame");
+        }
+    }
+
+    @Test
+    public void corruptFrames() {
+        byte[] frame = HttpHeadersBinaryCodec.toByteArray(headers());
+        for(int i = 5; i < frame.length; ++i) {
+            byte[] corrupt = frame.clone();
+            corrupt[i] ^= 0x10;
+            assertInvalid(corrupt, "HttpHeaders frame checksum mismatch");
+        }
+        byte[] version = frame.clone();
+        version[0] = 2;
+        assertInvalid(version, "Unsupported HttpHeaders format version 2");
+    }
+
+    @Test
+    public void corruptPayloadWithValidChecksum() {
+        // entry count 200 with only a few bytes after it
+        byte[] payload = {0, (byte)0xC8, 0x01, 1};
+        assertInvalid(frame(payload), "Invalid length 200 in HttpHeaders payload");
+        // a limit of 0
+        assertInvalid(frame(new byte[] {(byte)HttpHeadersBinaryCodec.FLAG_LIMITS, 0, 1, 1, 0}), "Invalid limit 0 in HttpHeaders payload");
+        // an unknown well-known name code
+        assertInvalid(frame(new byte[] {0, 1, (byte)0xFF, 1, 1}), "Unknown header name code 255");
+        // bytes after the entries
+        assertInvalid(frame(new byte[] {0, 0, 0}), "Unexpected bytes after HttpHeaders payload");
+    }
+
+    private static HttpHeaders roundTrip(HttpHeaders headers) {
+        return HttpHeadersBinaryCodec.read(ByteBuffer.wrap(HttpHeadersBinaryCodec.toByteArray(headers)));
+    }
+
+    private static byte[] frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(payload.length + 9);
+        frame.put((byte)HttpHeadersBinaryCodec.VERSION).putInt(payload.length).put(payload).putInt((int)crc.getValue());
+        return frame.array();
+    }
+
+    private static void assertInvalid(byte[] frame, String message) {
+        try {
+            HttpHeadersBinaryCodec.read(ByteBuffer.wrap(frame));
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            assertEquals(message, ex.getMessage());
+        }
+    }
+
+    private static HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Content-Type", "text/html");
+        headers.add("x-trace", "a");
+        headers.add("x-trace", "b");
+        headers.add("X-Name", "café €");
+        headers.put("X-Null", Arrays.asList((String)null));
+        return headers;
+    }
+}
@@ -0,0 +1,86 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HttpHeadersDecoderTests {
+
+    private static final String BLOCK = "Host: example.com\r\nX-Trace: a\r\nX-Trace: b\r\nAccept: text/html\r\n\r\n";
+
+    @Test
+    public void anySplitGivesTheSameHeaders() {
+        HttpHeaders expected = new HttpHeadersParser().parse(buffer(BLOCK));
+        byte[] bytes = BLOCK.getBytes(Charset.forName("ISO-8859-1"));
+        for(int split = 0; split <= bytes.length; ++split) {
+            HttpHeadersDecoder decoder = new HttpHeadersDecoder();
+            ByteBuffer first = ByteBuffer.wrap(bytes, 0, split);
+            HttpHeadersDecoder.Status status = decoder.decode(first);
+            assertEquals(0, first.remaining());
+            if(split < bytes.length) {
+                assertEquals(HttpHeadersDecoder.Status.NEED_MORE_INPUT, status);
+                status = decoder.decode(ByteBuffer.wrap(bytes, split, bytes.length - split));
+            }
+            assertEquals(HttpHeadersDecoder.Status.COMPLETE, status);
+            assertEquals(expected, decoder.getHeaders());
+        }
+    }
+
+    @Test
+    public void byteByByte() {
+        HttpHeadersDecoder decoder = new HttpHeadersDecoder();
+        byte[] bytes = BLOCK.getBytes(Charset.forName("ISO-8859-1"));
+        for(int i = 0; i < bytes.length - 1; ++i) {
+            assertEquals(HttpHeadersDecoder.Status.NEED_MORE_INPUT, decoder.decode(ByteBuffer.wrap(bytes, i, 1)));
+        }
+        assertEquals(HttpHeadersDecoder.Status.COMPLETE, decoder.decode(ByteBuffer.wrap(bytes, bytes.length - 1, 1)));
+        assertEquals(Arrays.asList("a", "b"), decoder.getHeaders().get("X-Trace"));
+    }
+
+    @Test
+    public void stopsAfterTheBlock() {
+        HttpHeadersDecoder decoder = new HttpHeadersDecoder();
+        ByteBuffer buffer = buffer(BLOCK + "body");
+        assertEquals(HttpHeadersDecoder.Status.COMPLETE, decoder.decode(buffer));
+        assertEquals(4, buffer.remaining());
+        assertEquals(HttpHeadersDecoder.Status.COMPLETE, decoder.decode(buffer));
+        assertEquals(4, buffer.remaining());
+    }
+
+    @Test
+    public void errors() {
+        assertError("Host: example.com\r\n folded\r\n\r\n", "Obsolete line folding (obs-fold) is not supported");
+        assertError("Host: exam\rple.com\r\n\r\n", "Bare CR in header value");
+        assertError("Host : example.com\r\n\r\n", "Whitespace between header name and colon");
+        HttpHeadersParser parser = new HttpHeadersParser();
+        parser.setMaxLineLength(16);
+        HttpHeadersDecoder decoder = new HttpHeadersDecoder(parser, new HttpHeaders());
+        decoder.decode(buffer("X-Long: 0123456789"));
+        assertEquals(HttpHeadersDecoder.Status.ERROR, decoder.decode(buffer("0123456789\r\n\r\n")));
+    }
+
+    @Test
+    public void resetForTheNextBlock() {
+        HttpHeadersDecoder decoder = new HttpHeadersDecoder();
+        decoder.decode(buffer("Host : example.com\r\n\r\n"));
+        assertEquals(HttpHeadersDecoder.Status.ERROR, decoder.getStatus());
+        decoder.reset(new HttpHeaders());
+        assertNull(decoder.getErrorMessage());
+        assertEquals(HttpHeadersDecoder.Status.COMPLETE, decoder.decode(buffer(BLOCK)));
+        assertEquals("example.com", decoder.getHeaders().getFirst("Host"));
+    }
+
+    private static void assertError(String block, String message) {
+        HttpHeadersDecoder decoder = new HttpHeadersDecoder();
+        assertEquals(HttpHeadersDecoder.Status.ERROR, decoder.decode(buffer(block)));
+        assertEquals(message, decoder.getErrorMessage());
+    }
+
+    private static ByteBuffer buffer(String block) {
+        return ByteBuffer.wrap(block.getBytes(Charset.forName("ISO-8859-1")));
+    }
+}
@@ -0,0 +1,134 @@
+package org.springframework.http;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HttpHeadersForkTests {
+
+    @Test
+    public void readingDoesNotCopy() {
+        HttpHeaders original = headers();
+        HttpHeaders fork = original.fork();
+        assertEquals(Arrays.asList("a", "b"), fork.get("x-trace"));
+        assertEquals("example.com", fork.getFirst("Host"));
+        assertFalse(((CopyOnWriteHeaderMap)fork.getHeaderMap()).isModified());
+    }
+
+    @Test
+    public void changesThroughGetStayInFork() {
+        HttpHeaders original = headers();
+        HttpHeaders fork = original.fork();
+        List<String> trace = fork.get("X-Trace");
+        trace.add("c");
+        assertEquals(Arrays.asList("a", "b", "c"), trace);
+        assertEquals(Arrays.asList("a", "b", "c"), fork.get("X-Trace"));
+        assertEquals(Arrays.asList("a", "b"), original.get("X-Trace"));
+        fork.add("Host", "other.example.com");
+        assertEquals(Arrays.asList("example.com", "other.example.com"), fork.get("Host"));
+        assertEquals(Arrays.asList("example.com"), original.get("Host"));
+    }
+
+    @Test
+    public void listOfReplacedEntryIsDetached() {
+        HttpHeaders fork = headers().fork();
+        List<String> trace = fork.get("X-Trace");
+        fork.set("X-Trace", "z");
+        trace.add("c");
+        assertEquals(Arrays.asList("z"), fork.get("X-Trace"));
+        assertEquals(Arrays.asList("a", "b", "c"), trace);
+    }
+
+    @Test
+    public void originalChangesStayOutOfFork() {
+        HttpHeaders original = headers();
+        HttpHeaders fork = original.fork();
+        original.add("X-Trace", "c");
+        original.remove("Host");
+        assertEquals(Arrays.asList("a", "b"), fork.get("X-Trace"));
+        assertEquals("example.com", fork.getFirst("Host"));
+    }
+
+    @Test
+    public void orderAndRemoval() {
+        HttpHeaders fork = headers().fork();
+        fork.add("X-New", "1");
+        fork.remove("X-Trace");
+        fork.set("Host", "other.example.com");
+        assertEquals(Arrays.asList("Host", "Accept", "X-New"), new ArrayList<String>(fork.keySet()));
+        assertEquals(3, fork.size());
+        assertNull(fork.get("x-trace"));
+        HttpHeaders expected = new HttpHeaders();
+        expected.add("Host", "other.example.com");
+        expected.add("Accept", "text/html");
+        expected.add("X-New", "1");
+        assertEquals(expected, fork);
+        assertEquals(expected.hashCode(), fork.hashCode());
+    }
+
+    @Test
+    public void setWhileIterating() {
+        HttpHeaders fork = headers().fork();
+        fork.add("X-New", "1");
+        for(String name : fork.keySet()) {
+            fork.set(name, "z");
+        }
+        assertEquals(Arrays.asList("Host", "X-Trace", "Accept", "X-New"), new ArrayList<String>(fork.keySet()));
+        assertEquals(Arrays.asList("z"), fork.get("X-New"));
+    }
+
+    @Test
+    public void forkOfFork() {
+        HttpHeaders fork = headers().fork();
+        fork.add("X-One", "1");
+        for(int i = 0; i < 10; ++i) {
+            fork = fork.fork();
+            fork.add("X-Level", Integer.toString(i));
+        }
+        assertEquals(10, fork.get("X-Level").size());
+        assertEquals("1", fork.getFirst("X-One"));
+        assertEquals(5, fork.size());
+    }
+
+    @Test
+    public void snapshotIsImmutable() {
+        HttpHeaders original = headers();
+        HttpHeaders snapshot = HttpHeaders.readOnlySnapshot(original);
+        original.add("X-Trace", "c");
+        assertEquals(Arrays.asList("a", "b"), snapshot.get("X-Trace"));
+        try {
+            snapshot.add("X-New", "1");
+            fail("Expected UnsupportedOperationException");
+        }
+        catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        try {
+            snapshot.get("X-Trace").add("c");
+            fail("Expected UnsupportedOperationException");
+        }
+        catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        HttpHeaders fork = snapshot.fork();
+        fork.add("X-New", "1");
+        assertTrue(fork.containsKey("x-new"));
+        assertFalse(snapshot.containsKey("x-new"));
+    }
+
+    private static HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Host", "example.com");
+        headers.add("X-Trace", "a");
+        headers.add("X-Trace", "b");
+        headers.add("Accept", "text/html");
+        return headers;
+    }
+}
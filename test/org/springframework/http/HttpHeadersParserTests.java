@@ -0,0 +1,160 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class HttpHeadersParserTests {
+
+    private final HttpHeadersParser parser = new HttpHeadersParser();
+
+    @Test
+    public void parse() {
+        HttpHeaders headers = this.parser.parse(buffer(
+                "content-type: text/html\r\nX-Trace:a\r\nx-trace: \t b \t\r\nX-Empty:\r\nX-Name: caf\u00e9\n\r\n"));
+        assertEquals(Arrays.asList("Content-Type", "X-Trace", "X-Empty", "X-Name"), new ArrayList<String>(headers.keySet()));
+        assertEquals("text/html", headers.getFirst("Content-Type"));
+        assertEquals(Arrays.asList("a", "b"), headers.get("X-Trace"));
+        assertEquals("", headers.getFirst("X-Empty"));
+        assertEquals("caf\u00e9", headers.getFirst("X-Name"));
+    }
+
+    @Test
+    public void wellKnownNamesAreShared() {
+        HttpHeaders headers = this.parser.parse(buffer("cache-control: no-cache\r\n\r\n"));
+        assertSame(HttpHeaders.CACHE_CONTROL, headers.keySet().iterator().next());
+    }
+
+    @Test
+    public void parseLikeEachLineAdded() {
+        String block = "Host: example.com\r\nAccept: text/html\r\nAccept: */*\r\nX-A: 1\r\n\r\n";
+        HttpHeaders expected = new HttpHeaders();
+        expected.add("Host", "example.com");
+        expected.add("Accept", "text/html");
+        expected.add("Accept", "*/*");
+        expected.add("X-A", "1");
+        assertEquals(expected, this.parser.parse(buffer(block)));
+        ByteBuffer direct = ByteBuffer.allocateDirect(block.length());
+        direct.put(buffer(block)).flip();
+        assertEquals(expected, this.parser.parse(direct));
+    }
+
+    @Test
+    public void stopsAfterTheBlock() {
+        ByteBuffer buffer = buffer("Host: example.com\r\n\r\nbody");
+        this.parser.parse(buffer);
+        assertEquals(4, buffer.remaining());
+        buffer = buffer("Host: example.com\r\n\r\nbody");
+        this.parser.parseLazily(buffer);
+        assertEquals(4, buffer.remaining());
+    }
+
+    @Test
+    public void invalidLines() {
+        assertInvalid("Host: example.com\r\n folded\r\n\r\n", "Obsolete line folding (obs-fold) is not supported");
+        assertInvalid("\tHost: example.com\r\n\r\n", "Obsolete line folding (obs-fold) is not supported");
+        assertInvalid("Host: exam\rple.com\r\n\r\n", "Bare CR in header value");
+        assertInvalid("Ho\rst: example.com\r\n\r\n", "Bare CR in header name");
+        assertInvalid("Host : example.com\r\n\r\n", "Whitespace between header name and colon");
+        assertInvalid(": example.com\r\n\r\n", "Invalid header name");
+        assertInvalid("Host\r\n\r\n", "Invalid header name");
+        assertInvalid("H(st: example.com\r\n\r\n", "Invalid header name");
+        assertInvalid("Host: exam\u0000ple.com\r\n\r\n", "Invalid character 0x0 in header value");
+        assertInvalid("Host: exam\u007fple.com\r\n\r\n", "Invalid character 0x7f in header value");
+    }
+
+    @Test
+    public void obsTextWithStrictValidation() {
+        HttpHeaders template = new HttpHeaders();
+        template.setStrictValidation(true);
+        try {
+            this.parser.parseLazily(buffer("X-Name: caf\u00e9\r\n\r\n"), template);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            assertEquals("Invalid character 0xe9 in header value", ex.getMessage());
+        }
+        template.setObsTextAllowed(true);
+        assertEquals("caf\u00e9", this.parser.parseLazily(buffer("X-Name: caf\u00e9\r\n\r\n"), template).getFirst("X-Name"));
+    }
+
+    @Test
+    public void maxLineLength() {
+        this.parser.setMaxLineLength(16);
+        assertEquals("01234567890", this.parser.parse(buffer("X-L: 01234567890\r\n\r\n")).getFirst("X-L"));
+        assertInvalid("X-L: 012345678901\r\n\r\n", "Header line exceeds the limit of 16 bytes");
+        assertInvalid("X-Long: 0123456789012345678901234567890\r\n\r\n", "Header line exceeds the limit of 16 bytes");
+    }
+
+    @Test
+    public void limitsOfTheTargetHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setMaxHeaderCount(1);
+        try {
+            this.parser.parse(buffer("Host: example.com\r\nAccept: */*\r\n\r\n"), headers);
+            fail("Expected HttpHeadersLimitException");
+        }
+        catch (HttpHeadersLimitException ex) {
+            assertEquals("example.com", headers.getFirst("Host"));
+        }
+    }
+
+    @Test
+    public void incompleteBlock() {
+        assertIncomplete("Host: example.com\r\n");
+        assertIncomplete("Host: example.com\r\nAccept: */*\r\n");
+        assertIncomplete("");
+    }
+
+    @Test
+    public void incompleteBlockParsedLazily() {
+        assertIncompleteLazily("Host: example.com\r\n");
+        assertIncompleteLazily("");
+    }
+
+    @Test
+    public void truncatedLine() {
+        assertInvalid("Host: example.com\r\nAccept: */*", "Incomplete header line at end of buffer");
+        try {
+            this.parser.parseLazily(buffer("Host: example.com\r\nAccept"));
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            assertEquals("Incomplete header line at end of buffer", ex.getMessage());
+        }
+    }
+
+    private void assertIncomplete(String block) {
+        assertInvalid(block, "Incomplete header block: no empty line at end of buffer");
+    }
+
+    private void assertIncompleteLazily(String block) {
+        try {
+            this.parser.parseLazily(buffer(block));
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            assertEquals("Incomplete header block: no empty line at end of buffer", ex.getMessage());
+        }
+    }
+
+    private void assertInvalid(String block, String message) {
+        try {
+            this.parser.parse(buffer(block));
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            assertEquals(message, ex.getMessage());
+        }
+    }
+
+    private static ByteBuffer buffer(String block) {
+        return ByteBuffer.wrap(block.getBytes(Charset.forName("ISO-8859-1")));
+    }
+}
@@ -0,0 +1,66 @@
+package org.springframework.http;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class HttpHeadersPoolTests {
+
+    @Test
+    public void releasedValuesAreNotReused() {
+        HttpHeadersPool pool = new HttpHeadersPool(1, false);
+        HttpHeaders headers = pool.acquire();
+        headers.add("Accept", "text/plain");
+        headers.add("X-Request-Id", "1");
+        HttpHeaders copy = new HttpHeaders();
+        copy.putAll(headers);
+        List<String> accept = headers.get("Accept");
+
+        pool.release(headers);
+        HttpHeaders next = pool.acquire();
+        assertSame(headers, next);
+        assertNull(next.getFirst("Accept"));
+        next.add("Accept", "application/json");
+        next.set("X-Request-Id", "2");
+
+        assertEquals(Collections.singletonList("text/plain"), accept);
+        assertEquals(Collections.singletonList("text/plain"), copy.get("Accept"));
+        assertEquals(Collections.singletonList("1"), copy.get("X-Request-Id"));
+        assertEquals("application/json", next.getFirst("Accept"));
+        assertEquals("2", next.getFirst("X-Request-Id"));
+    }
+
+    @Test
+    public void releaseRestoresSettings() {
+        HttpHeadersPool pool = new HttpHeadersPool(1, false);
+        HttpHeaders headers = pool.acquire();
+        headers.setStrictValidation(true);
+        headers.setMaxHeaderCount(1);
+        headers.add("Accept", "text/plain");
+        pool.release(headers);
+
+        HttpHeaders next = pool.acquire();
+        next.add("Accept", "text/plain");
+        next.add("X-Custom", "bad\u0001value");
+        assertEquals(2, next.size());
+    }
+
+    @Test
+    public void releaseTwiceFails() {
+        HttpHeadersPool pool = new HttpHeadersPool(2, true);
+        HttpHeaders headers = pool.acquire();
+        pool.release(headers);
+        try {
+            pool.release(headers);
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+}
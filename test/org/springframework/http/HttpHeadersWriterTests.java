@@ -0,0 +1,141 @@
+package org.springframework.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HttpHeadersWriterTests {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final String LINES = "Content-Type: text/html\r\nx-trace: a\r\nx-trace: b\r\nX-Name: café ?\r\n";
+
+    @Test
+    public void writeTo() {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        assertTrue(headers().writer().writeTo(buffer));
+        buffer.flip();
+        assertEquals(LINES, ISO_8859_1.decode(buffer).toString());
+    }
+
+    @Test
+    public void writeToSmallBuffers() {
+        for(int capacity = 1; capacity < LINES.length(); ++capacity) {
+            HttpHeadersWriter writer = headers().writer();
+            ByteBuffer buffer = ByteBuffer.allocate(capacity);
+            StringBuilder written = new StringBuilder();
+            boolean complete;
+            do {
+                buffer.clear();
+                complete = writer.writeTo(buffer);
+                buffer.flip();
+                written.append(ISO_8859_1.decode(buffer));
+            }
+            while(!complete);
+            assertEquals(LINES, written.toString());
+            assertTrue(writer.isComplete());
+        }
+    }
+
+    @Test
+    public void writeToDirectBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+        headers().writer().writeTo(buffer);
+        buffer.flip();
+        assertEquals(LINES, ISO_8859_1.decode(buffer).toString());
+    }
+
+    @Test
+    public void roundTripThroughParser() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Host", "example.com");
+        headers.add("Accept", "text/html");
+        headers.add("Accept", "*/*");
+        headers.add("X-Empty", "");
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        headers.writer().writeTo(buffer);
+        buffer.put((byte)'\r').put((byte)'\n').flip();
+        assertEquals(headers, new HttpHeadersParser().parse(buffer));
+    }
+
+    @Test
+    public void frozenAndForkedHeaders() {
+        HttpHeaders frozen = HttpHeaders.readOnlySnapshot(headers());
+        assertEquals(LINES, write(frozen));
+        HttpHeaders fork = frozen.fork();
+        fork.add("X-New", "1");
+        assertEquals(LINES + "X-New: 1\r\n", write(fork));
+        fork.set("x-trace", "c");
+        assertEquals("Content-Type: text/html\r\nx-trace: c\r\nX-Name: café ?\r\nX-New: 1\r\n", write(fork));
+    }
+
+    @Test
+    public void writeToBlockingChannel() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        headers().writeTo(Channels.newChannel(out), ByteBuffer.allocate(7));
+        assertEquals(LINES, new String(out.toByteArray(), ISO_8859_1));
+    }
+
+    @Test
+    public void resumeOnNonBlockingChannel() throws IOException {
+        StallingChannel channel = new StallingChannel();
+        HttpHeadersWriter writer = headers().writer();
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        int calls = 0;
+        while(!writer.writeTo(channel, buffer)) {
+            ++calls;
+        }
+        assertTrue(calls > 0);
+        assertEquals(LINES, new String(channel.out.toByteArray(), ISO_8859_1));
+    }
+
+    private static String write(HttpHeaders headers) {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        headers.writer().writeTo(buffer);
+        buffer.flip();
+        return ISO_8859_1.decode(buffer).toString();
+    }
+
+    private static HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Content-Type", "text/html");
+        headers.add("x-trace", "a");
+        headers.add("x-trace", "b");
+        headers.add("X-Name", "café €");
+        return headers;
+    }
+
+    // takes at most 3 bytes per write, and none on every other write
+    private static final class StallingChannel implements WritableByteChannel {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private boolean stall;
+
+        public int write(ByteBuffer source) {
+            this.stall = !this.stall;
+            if(this.stall) {
+                return 0;
+            }
+            int length = Math.min(3, source.remaining());
+            for(int i = 0; i < length; ++i) {
+                this.out.write(source.get());
+            }
+            return length;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public void close() {
+        }
+    }
+}
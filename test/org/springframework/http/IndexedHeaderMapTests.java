@@ -0,0 +1,150 @@
+package org.springframework.http;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.Test;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IndexedHeaderMapTests {
+
+    private final IndexedHeaderMap map = new IndexedHeaderMap();
+
+    private final Map<String, List<String>> baseline = new LinkedCaseInsensitiveMap<List<String>>(8, Locale.ENGLISH);
+
+    @Test
+    public void caseInsensitiveLookup() {
+        put("Content-Type", "text/plain");
+        put("X-Custom", "1");
+        for(Map<String, List<String>> headers : both()) {
+            assertEquals(list("text/plain"), headers.get("content-type"));
+            assertEquals(list("text/plain"), headers.get("CONTENT-TYPE"));
+            assertEquals(list("1"), headers.get("x-custom"));
+            assertTrue(headers.containsKey("x-CUSTOM"));
+            assertFalse(headers.containsKey("X-Other"));
+            assertNull(headers.get(1));
+        }
+    }
+
+    @Test
+    public void insertionOrder() {
+        put("X-B", "1");
+        put("Accept", "*/*");
+        put("X-A", "2");
+        put("Host", "example.com");
+        put("x-b", "3");
+        assertEquals(Arrays.asList("Accept", "X-A", "Host", "x-b"), new ArrayList<String>(this.map.keySet()));
+        assertEquals(new ArrayList<String>(this.baseline.keySet()), new ArrayList<String>(this.map.keySet()));
+        assertEquals(new ArrayList<List<String>>(this.baseline.values()), new ArrayList<List<String>>(this.map.values()));
+    }
+
+    @Test
+    public void setWhileIterating() {
+        put("Accept", "*/*");
+        put("X-A", "1");
+        put("Host", "example.com");
+        for(String key : this.map.keySet()) {
+            this.map.put(key, list("z"));
+        }
+        for(Map.Entry<String, List<String>> entry : this.map.entrySet()) {
+            entry.setValue(list("y"));
+        }
+        assertEquals(Arrays.asList("Accept", "X-A", "Host"), new ArrayList<String>(this.map.keySet()));
+        assertEquals(list("y"), this.map.get("host"));
+    }
+
+    @Test
+    public void addWhileIteratingFails() {
+        put("Accept", "*/*");
+        put("X-A", "1");
+        try {
+            for(String key : this.map.keySet()) {
+                this.map.put(key + "-copy", list("z"));
+            }
+            fail("Expected ConcurrentModificationException");
+        }
+        catch (ConcurrentModificationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void iteratorRemove() {
+        put("Accept", "*/*");
+        put("X-A", "1");
+        put("X-B", "2");
+        for(Map<String, List<String>> headers : both()) {
+            Iterator<String> iterator = headers.keySet().iterator();
+            iterator.next();
+            iterator.next();
+            iterator.remove();
+        }
+        assertEquals(this.baseline, this.map);
+        assertEquals(Arrays.asList("Accept", "X-B"), new ArrayList<String>(this.map.keySet()));
+        assertNull(this.map.get("x-a"));
+    }
+
+    @Test
+    public void equalsAndHashCodeMatchBaseline() {
+        put("Accept", "*/*");
+        put("X-A", "1");
+        assertEquals(this.baseline, this.map);
+        assertEquals(this.map, this.baseline);
+        assertEquals(this.baseline.hashCode(), this.map.hashCode());
+        this.map.remove("X-A");
+        assertFalse(this.map.equals(this.baseline));
+    }
+
+    @Test
+    public void manyCustomNames() {
+        for(int i = 0; i < 100; ++i) {
+            put("X-Header-" + i, Integer.toString(i));
+        }
+        for(int i = 0; i < 100; i += 2) {
+            this.map.remove("x-header-" + i);
+            this.baseline.remove("x-header-" + i);
+        }
+        assertEquals(50, this.map.size());
+        assertEquals(this.baseline, this.map);
+        assertEquals(new ArrayList<String>(this.baseline.keySet()), new ArrayList<String>(this.map.keySet()));
+        assertEquals(list("51"), this.map.get("X-HEADER-51"));
+    }
+
+    @Test
+    public void resetKeepsNothingVisible() {
+        put("Accept", "*/*");
+        put("X-A", "1");
+        List<String> accept = this.map.get("Accept");
+        this.map.reset();
+        assertTrue(this.map.isEmpty());
+        assertNull(this.map.get("X-A"));
+        this.map.put("X-B", list("2"));
+        this.map.put("Accept", list("text/plain"));
+        assertEquals(Arrays.asList("X-B", "Accept"), new ArrayList<String>(this.map.keySet()));
+        assertEquals(list("*/*"), accept);
+    }
+
+    private void put(String name, String value) {
+        this.map.put(name, list(value));
+        this.baseline.put(name, list(value));
+    }
+
+    private List<Map<String, List<String>>> both() {
+        return Arrays.<Map<String, List<String>>>asList(this.map, this.baseline);
+    }
+
+    private static List<String> list(String value) {
+        return new ArrayList<String>(Collections.singletonList(value));
+    }
+}
@@ -0,0 +1,135 @@
+package org.springframework.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class LazyHeaderMapTests {
+
+    private static final String BLOCK = "Host: example.com\r\nX-Trace: a\r\nAccept: text/html\r\nx-trace: b\r\nX-Empty:\r\n\r\n";
+
+    @Test
+    public void readsLikeEagerParsing() {
+        HttpHeaders lazy = parseLazily(BLOCK);
+        HttpHeaders eager = new HttpHeadersParser().parse(buffer(BLOCK));
+        assertEquals(eager, lazy);
+        assertEquals(Arrays.asList("a", "b"), lazy.get("X-TRACE"));
+        assertEquals("", lazy.getFirst("x-empty"));
+        assertNull(lazy.get("X-Other"));
+        assertFalse(lazy.containsKey("X-Other"));
+        assertEquals(Arrays.asList("Host", "X-Trace", "Accept", "X-Empty"), new ArrayList<String>(lazy.keySet()));
+        assertEquals(4, lazy.size());
+    }
+
+    @Test
+    public void sameListOnEveryRead() {
+        HttpHeaders lazy = parseLazily(BLOCK);
+        assertSame(lazy.get("X-Trace"), lazy.get("x-trace"));
+    }
+
+    @Test
+    public void setWhileIterating() {
+        HttpHeaders lazy = parseLazily(BLOCK);
+        for(String name : lazy.keySet()) {
+            lazy.set(name, "z");
+        }
+        assertEquals(Arrays.asList("Host", "X-Trace", "Accept", "X-Empty"), new ArrayList<String>(lazy.keySet()));
+        assertEquals(Arrays.asList("z"), lazy.get("x-trace"));
+    }
+
+    @Test
+    public void setValueWhileIterating() {
+        LazyHeaderMap map = (LazyHeaderMap)parseLazily(BLOCK).getHeaderMap();
+        List<String> names = new ArrayList<String>();
+        for(Map.Entry<String, List<String>> entry : map.entrySet()) {
+            entry.setValue(new HeaderValueList("z"));
+            names.add(entry.getKey());
+        }
+        assertEquals(Arrays.asList("Host", "X-Trace", "Accept", "X-Empty"), names);
+        assertEquals(Arrays.asList("z"), map.get("Accept"));
+    }
+
+    @Test
+    public void iteratorRemove() {
+        HttpHeaders lazy = parseLazily(BLOCK);
+        Iterator<String> iterator = lazy.getHeaderMap().keySet().iterator();
+        iterator.next();
+        iterator.next();
+        iterator.remove();
+        assertEquals("Accept", iterator.next());
+        assertEquals(Arrays.asList("Host", "Accept", "X-Empty"), new ArrayList<String>(lazy.keySet()));
+    }
+
+    @Test
+    public void addWhileIteratingFails() {
+        HttpHeaders lazy = parseLazily(BLOCK);
+        try {
+            for(String name : lazy.getHeaderMap().keySet()) {
+                lazy.getHeaderMap().put(name + "-Copy", new HeaderValueList("z"));
+            }
+            fail("Expected ConcurrentModificationException");
+        }
+        catch (ConcurrentModificationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void listsReadBeforeWriteStayLive() {
+        HttpHeaders lazy = parseLazily(BLOCK);
+        List<String> trace = lazy.get("X-Trace");
+        lazy.add("X-New", "1");
+        trace.add("c");
+        assertEquals(Arrays.asList("a", "b", "c"), lazy.get("x-trace"));
+        assertEquals("1", lazy.getFirst("X-New"));
+    }
+
+    @Test
+    public void limitsOfTemplate() {
+        HttpHeaders template = new HttpHeaders();
+        template.setMaxHeaderCount(3);
+        assertLimitExceeded(BLOCK, template);
+        template = new HttpHeaders();
+        template.setMaxValuesPerHeader(1);
+        assertLimitExceeded(BLOCK, template);
+        template = new HttpHeaders();
+        template.setMaxHeaderBytes(20);
+        assertLimitExceeded(BLOCK, template);
+        template = new HttpHeaders();
+        template.setMaxHeaderCount(4);
+        template.setMaxValuesPerHeader(2);
+        HttpHeaders lazy = new HttpHeadersParser().parseLazily(buffer(BLOCK), template);
+        assertEquals(4, lazy.getMaxHeaderCount());
+        assertEquals(4, lazy.size());
+    }
+
+    private static void assertLimitExceeded(String block, HttpHeaders template) {
+        try {
+            new HttpHeadersParser().parseLazily(buffer(block), template);
+            fail("Expected HttpHeadersLimitException");
+        }
+        catch (HttpHeadersLimitException ex) {
+            // expected
+        }
+    }
+
+    private static HttpHeaders parseLazily(String block) {
+        return new HttpHeadersParser().parseLazily(buffer(block));
+    }
+
+    private static ByteBuffer buffer(String block) {
+        return ByteBuffer.wrap(block.getBytes(Charset.forName("ISO-8859-1")));
+    }
+}
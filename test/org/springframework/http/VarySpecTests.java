@@ -0,0 +1,107 @@
+package org.springframework.http;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VarySpecTests {
+
+    @Test
+    public void namesAreNormalizedSortedAndDeduplicated() {
+        HttpHeaders response = new HttpHeaders();
+        response.add("Vary", "accept-encoding, X-Custom");
+        response.add("Vary", " Accept ,x-custom,,");
+        VarySpec spec = VarySpec.of(response);
+        assertEquals(Arrays.asList("Accept", "Accept-Encoding", "x-custom"), spec.getHeaderNames());
+        assertEquals(VarySpec.of(Arrays.asList("X-CUSTOM", "Accept", "Accept-Encoding")), spec);
+        assertEquals(VarySpec.of(Arrays.asList("X-CUSTOM", "Accept", "Accept-Encoding")).hashCode(), spec.hashCode());
+        assertFalse(spec.isWildcard());
+    }
+
+    @Test
+    public void wildcard() {
+        HttpHeaders response = new HttpHeaders();
+        response.add("Vary", "Accept, *");
+        VarySpec spec = VarySpec.of(response);
+        assertTrue(spec.isWildcard());
+        assertEquals(Collections.emptyList(), spec.getHeaderNames());
+        try {
+            spec.fingerprint(new HttpHeaders());
+            fail("Expected IllegalStateException");
+        }
+        catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void noVary() {
+        VarySpec spec = VarySpec.of(new HttpHeaders());
+        assertEquals(Collections.emptyList(), spec.getHeaderNames());
+        assertEquals(spec.fingerprint(request("Accept", "text/html")), spec.fingerprint(new HttpHeaders()));
+    }
+
+    @Test
+    public void equivalentRequestsMatch() {
+        VarySpec spec = VarySpec.of(Arrays.asList("Accept", "Accept-Encoding", "X-Custom"));
+        long fingerprint = spec.fingerprint(request("Accept", "text/html, application/json", "Accept-Encoding", "gzip", "X-Custom", "a \"b  c\""));
+        assertEquals(fingerprint, spec.fingerprint(request("accept", "text/html,application/json", "Accept-Encoding", "GZIP", "x-custom", "a   \"b  c\"")));
+        HttpHeaders split = new HttpHeaders();
+        split.add("Accept", "text/html");
+        split.add("Accept", " application/json ");
+        split.add("Accept-Encoding", "gzip,");
+        split.add("X-Custom", "a \"b  c\"");
+        assertEquals(fingerprint, spec.fingerprint(split));
+        // request headers outside the spec do not matter
+        HttpHeaders extra = request("Accept", "text/html, application/json", "Accept-Encoding", "gzip", "X-Custom", "a \"b  c\"");
+        extra.add("Host", "example.com");
+        assertEquals(fingerprint, spec.fingerprint(extra));
+    }
+
+    @Test
+    public void differentRequestsDiffer() {
+        VarySpec spec = VarySpec.of(Arrays.asList("Accept", "X-Custom"));
+        long fingerprint = spec.fingerprint(request("Accept", "text/html", "X-Custom", "a"));
+        assertNotEquals(fingerprint, spec.fingerprint(request("Accept", "text/html", "X-Custom", "A")));
+        assertNotEquals(fingerprint, spec.fingerprint(request("Accept", "text/html", "X-Custom", "a \"b  c\"")));
+        assertNotEquals(fingerprint, spec.fingerprint(request("Accept", "text/html")));
+        // an absent header differs from an empty one
+        assertNotEquals(spec.fingerprint(request("Accept", "text/html")), spec.fingerprint(request("Accept", "text/html", "X-Custom", "")));
+        // the values of one header do not spill into the next
+        assertNotEquals(spec.fingerprint(request("Accept", "a", "X-Custom", "")), spec.fingerprint(request("Accept", "", "X-Custom", "a")));
+    }
+
+    @Test
+    public void specsWithOtherNamesDiffer() {
+        HttpHeaders request = request("Accept", "text/html", "X-A", "1");
+        assertNotEquals(VarySpec.of(Arrays.asList("Accept")).fingerprint(request),
+                VarySpec.of(Arrays.asList("Accept", "X-B")).fingerprint(request));
+    }
+
+    @Test
+    public void wideFingerprint() {
+        VarySpec spec = VarySpec.of(Arrays.asList("Accept"));
+        long[] first = new long[2];
+        long[] second = new long[2];
+        spec.fingerprint(request("Accept", "text/html"), first);
+        spec.fingerprint(request("Accept", "TEXT/HTML"), second);
+        assertEquals(first[0], second[0]);
+        assertEquals(first[1], second[1]);
+        spec.fingerprint(request("Accept", "text/plain"), second);
+        assertNotEquals(first[1], second[1]);
+    }
+
+    private static HttpHeaders request(String... namesAndValues) {
+        HttpHeaders headers = new HttpHeaders();
+        for(int i = 0; i < namesAndValues.length; i += 2) {
+            headers.add(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return headers;
+    }
+}